@@ -0,0 +1,35 @@
+package com.ameriod.checkboxtext.benchmarks;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks and fails when a result regressed from the baseline on the device, so
+ * {@code gradlew connectedInstrumentTest} exits non-zero. It also fails when the device has no
+ * baseline or the baseline misses a benchmark, save one first (see {@link BenchmarkActivity}).
+ */
+public class BenchmarkRegressionTest extends ActivityInstrumentationTestCase2<BenchmarkActivity> {
+
+    /**
+     * Every benchmark runs five times
+     */
+    private static final long TIMEOUT_MINUTES = 150;
+
+    public BenchmarkRegressionTest() {
+        super(BenchmarkActivity.class);
+    }
+
+    public void testNoRegressions() throws InterruptedException {
+        List<String> regressions = getActivity().awaitRegressions(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+
+        assertNotNull("the benchmarks did not finish in " + TIMEOUT_MINUTES + " minutes", regressions);
+        assertTrue("no baseline on the device, save one with: adb shell am start -n "
+                + "com.ameriod.checkboxtext.benchmarks/.BenchmarkActivity --ez saveBaseline true",
+                getActivity().hasBaseline());
+        assertTrue("not in the baseline, save a new one: " + getActivity().getMissingFromBaseline(),
+                getActivity().getMissingFromBaseline().isEmpty());
+        assertTrue("regressed: " + regressions, regressions.isEmpty());
+    }
+}
@@ -0,0 +1,1510 @@
+package com.ameriod.checkboxtext.benchmarks;
+
+import android.app.Activity;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.text.TextPaint;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CompoundButton;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import com.ameriod.lib.checkboxtext.CheckBoxText;
+import com.ameriod.lib.checkboxtext.CheckBoxTextAdapter;
+import com.ameriod.lib.checkboxtext.CheckBoxTextFactory;
+import com.ameriod.lib.checkboxtext.CheckBoxTextGroup;
+import com.ameriod.lib.checkboxtext.CheckBoxTextLayoutEngine;
+import com.ameriod.lib.checkboxtext.CheckBoxTextListView;
+import com.ameriod.lib.checkboxtext.CheckBoxTextOptionSet;
+import com.ameriod.lib.checkboxtext.CheckBoxTextPersister;
+import com.ameriod.lib.checkboxtext.CheckBoxTextPool;
+import com.ameriod.lib.checkboxtext.CheckBoxTextSpec;
+import com.ameriod.lib.checkboxtext.CheckBoxTextStyle;
+import com.ameriod.lib.checkboxtext.CheckBoxTextTree;
+import com.ameriod.lib.checkboxtext.FileCheckBoxTextStorage;
+import com.ameriod.lib.checkboxtext.FlatCheckBoxText;
+import com.ameriod.lib.checkboxtext.PrecomputedLabel;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the CheckBoxText benchmarks on launch, off the UI thread on views that are never attached
+ * (except the tap benchmarks, which need an attached view to click).
+ * <p/>
+ * Every benchmark is warmed up and then timed over a fixed number of operations, and the whole set
+ * is run several times (the runs extra, 5 by default). For every benchmark the run with the median
+ * is kept, with its noise: half the range of the runs in percent of the median. The results are
+ * written as one JSON object per line to logcat (tag CheckBoxTextBenchmark) and to results.json in
+ * the app's external files dir, each line has the ns/op (or bytes/op for the memory benchmarks) of
+ * the baseline and the change in percent when a baseline exists. A result more than
+ * regressionPercent (10 by default) plus the baseline's noise slower or bigger than the baseline is
+ * marked regressed.
+ * <p/>
+ * Save the current results as the baseline, and pull the results, with:
+ * <pre>
+ * adb shell am start -n com.ameriod.checkboxtext.benchmarks/.BenchmarkActivity --ez saveBaseline true
+ * adb pull /sdcard/Android/data/com.ameriod.checkboxtext.benchmarks/files/results.json
+ * </pre>
+ * BenchmarkRegressionTest runs them from {@code gradlew connectedInstrumentTest} and fails the
+ * build when a result regressed, or when there is no baseline to compare with.
+ */
+public class BenchmarkActivity extends Activity {
+
+    private static final String TAG = "CheckBoxTextBenchmark";
+
+    public static final String EXTRA_SAVE_BASELINE = "saveBaseline";
+    public static final String EXTRA_REGRESSION_PERCENT = "regressionPercent";
+    public static final String EXTRA_RUNS = "runs";
+
+    private static final float DEFAULT_REGRESSION_PERCENT = 10;
+    private static final int DEFAULT_RUNS = 5;
+
+    private static final String RESULTS_FILE = "results.json";
+    private static final String BASELINE_FILE = "baseline.json";
+
+    private static final int WARMUP_OPS = 200;
+    private static final int OPS = 1000;
+    /**
+     * Cells in the label-less grid memory benchmark
+     */
+    private static final int GRID_CELLS = 500;
+    /**
+     * Copies of the example app's screen (five CheckBoxTexts each) inflated per op in the screen
+     * benchmarks, and how many ops
+     */
+    private static final int SCREEN_COPIES = 100;
+    private static final int SCREEN_WIDGETS = SCREEN_COPIES * 5;
+    private static final int SCREEN_RUNS = 20;
+    /**
+     * Styled rows inflated per op in the style cache benchmarks, and how many ops
+     */
+    private static final int STYLE_ROWS = 1000;
+    private static final int STYLE_RUNS = 20;
+    /**
+     * Items in the checklist benchmarks
+     */
+    private static final int CHECKLIST_ITEMS = 10000;
+    /**
+     * Views a config push goes to in the spec benchmarks
+     */
+    private static final int SPEC_VIEWS = 200;
+    /**
+     * Options in the group benchmarks, and how many of them have an attached view
+     */
+    private static final int GROUP_OPTIONS = 100000;
+    private static final int GROUP_ATTACHED = 20;
+    /**
+     * Nodes in the tree benchmarks, each inner node has TREE_FAN_OUT children (the last ones fewer)
+     */
+    private static final int TREE_NODES = 100000;
+    private static final int TREE_FAN_OUT = 10;
+    /**
+     * Rows of mixed orientations laid out per op in the layout engine benchmarks, how many ops, and
+     * the thread counts compared
+     */
+    private static final int ENGINE_ROWS = 1000;
+    private static final int ENGINE_RUNS = 20;
+    private static final int[] ENGINE_THREADS = {1, 2, 4};
+    /**
+     * Boxes toggled in the persistence benchmarks
+     */
+    private static final int PERSIST_BOXES = 1000;
+    /**
+     * Words the option set labels are made of
+     */
+    private static final String[] WORDS = {
+            "north", "south", "east", "west", "river", "lake", "mountain", "valley", "island", "bay",
+            "port", "saint", "new", "old", "upper", "lower", "green"
+    };
+    /**
+     * Typed one character per op in the filter benchmarks, the space starts a new search
+     */
+    private static final String TYPED = "mountain valley 12 riv";
+
+    private static final int[] ORIENTATIONS = {
+            CheckBoxText.TEXT_RIGHT, CheckBoxText.TEXT_LEFT, CheckBoxText.TEXT_ABOVE, CheckBoxText.TEXT_BELOW
+    };
+    private static final String[] ORIENTATION_NAMES = {"right", "left", "above", "below"};
+
+    private TextView mOutput;
+
+    /**
+     * Counted down once the results are written, mRegressions and mMissingFromBaseline are complete
+     * then
+     */
+    private final CountDownLatch mDone = new CountDownLatch(1);
+    private final List<String> mRegressions = new ArrayList<String>();
+    private final List<String> mMissingFromBaseline = new ArrayList<String>();
+    private volatile boolean mHasBaseline;
+
+    /**
+     * One timed operation
+     */
+    private interface Op {
+        void run(int i);
+    }
+
+    /**
+     * Creates one grid cell for the memory benchmarks
+     */
+    private interface Factory {
+        View create();
+    }
+
+    /**
+     * Counts the layout requests of its children: it never reports a pending layout so every
+     * child's request reaches it
+     */
+    private static final class LayoutRequestCounter extends FrameLayout {
+
+        int requests;
+
+        LayoutRequestCounter(Activity activity) {
+            super(activity);
+        }
+
+        @Override
+        public boolean isLayoutRequested() {
+            return false;
+        }
+
+        @Override
+        public void requestLayout() {
+            requests++;
+        }
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mOutput = new TextView(this);
+        mOutput.setText("Running...");
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(mOutput);
+        setContentView(scrollView);
+
+        final boolean saveBaseline = getIntent().getBooleanExtra(EXTRA_SAVE_BASELINE, false);
+        final float regressionPercent = getIntent().getFloatExtra(EXTRA_REGRESSION_PERCENT, DEFAULT_REGRESSION_PERCENT);
+        final int runs = Math.max(1, getIntent().getIntExtra(EXTRA_RUNS, DEFAULT_RUNS));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final String results;
+                try {
+                    results = runAll(saveBaseline, regressionPercent, runs);
+                } finally {
+                    mDone.countDown();
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        mOutput.setText(results);
+                    }
+                });
+            }
+        }, TAG).start();
+    }
+
+    /**
+     * Waits for the benchmarks to finish
+     *
+     * @param timeout
+     * @param unit
+     * @return the results that regressed from the baseline, with their change, or null if the
+     * benchmarks did not finish in time
+     * @throws InterruptedException
+     */
+    public List<String> awaitRegressions(long timeout, TimeUnit unit) throws InterruptedException {
+        return mDone.await(timeout, unit) ? mRegressions : null;
+    }
+
+    /**
+     * @return true if a baseline was read, only known once {@link #awaitRegressions} returned
+     */
+    public boolean hasBaseline() {
+        return mHasBaseline;
+    }
+
+    /**
+     * @return the benchmarks the baseline has no result for, only complete once
+     * {@link #awaitRegressions} returned
+     */
+    public List<String> getMissingFromBaseline() {
+        return mMissingFromBaseline;
+    }
+
+    private String runAll(boolean saveBaseline, float regressionPercent, int runs) {
+        JSONObject baseline = readBaseline();
+        mHasBaseline = baseline != null;
+        List<List<JSONObject>> allRuns = new ArrayList<List<JSONObject>>();
+        for (int run = 0; run < runs; run++) {
+            Log.i(TAG, "run " + (run + 1) + " of " + runs);
+            allRuns.add(runBenchmarks());
+        }
+        List<JSONObject> results = medians(allRuns);
+
+        StringBuilder lines = new StringBuilder();
+        JSONObject current = new JSONObject();
+        for (JSONObject result : results) {
+            try {
+                String name = result.getString("name");
+                String unit = result.has("nsPerOp") ? "nsPerOp" : "bytesPerOp";
+                JSONObject saved = new JSONObject();
+                saved.put("median", result.getDouble(unit));
+                saved.put("noisePercent", result.getDouble("noisePercent"));
+                current.put(name, saved);
+                if (baseline != null && !baseline.has(name)) {
+                    mMissingFromBaseline.add(name);
+                } else if (baseline != null) {
+                    // a plain number is a baseline saved before the runs were repeated
+                    JSONObject base = baseline.optJSONObject(name);
+                    double baseMedian = base != null ? base.getDouble("median") : baseline.getDouble(name);
+                    double baseNoise = base != null ? base.getDouble("noisePercent") : 0;
+                    double deltaPercent = (result.getDouble(unit) - baseMedian) * 100 / baseMedian;
+                    result.put(unit.equals("nsPerOp") ? "baselineNsPerOp" : "baselineBytesPerOp", baseMedian);
+                    result.put("deltaPercent", deltaPercent);
+                    if (deltaPercent > regressionPercent + baseNoise) {
+                        result.put("regressed", true);
+                        mRegressions.add(name + " +" + Math.round(deltaPercent) + "%");
+                    }
+                }
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+            Log.i(TAG, result.toString());
+            lines.append(result.toString()).append('\n');
+        }
+
+        write(RESULTS_FILE, lines.toString());
+        if (saveBaseline) {
+            write(BASELINE_FILE, current.toString());
+        }
+        if (baseline == null) {
+            Log.w(TAG, "no baseline in " + new File(getResultsDir(), BASELINE_FILE)
+                    + ", nothing was compared. Save one with --ez saveBaseline true");
+        } else if (!mMissingFromBaseline.isEmpty()) {
+            Log.w(TAG, "not in the baseline, save a new one: " + mMissingFromBaseline);
+        }
+        Log.i(TAG, "results in " + new File(getResultsDir(), RESULTS_FILE) + ", " + mRegressions.size()
+                + " regressed more than " + regressionPercent + "% plus their noise: " + mRegressions);
+        return lines.toString();
+    }
+
+    /**
+     * Every run has the same benchmarks in the same order
+     *
+     * @param runs
+     * @return for each benchmark the result of the run with the median ns/op (or bytes/op), with the
+     * number of runs and the noise: half the range of the runs in percent of the median
+     */
+    private static List<JSONObject> medians(List<List<JSONObject>> runs) {
+        final List<JSONObject> medians = new ArrayList<JSONObject>();
+        final int count = runs.get(0).size();
+        final double[] values = new double[runs.size()];
+        try {
+            for (int i = 0; i < count; i++) {
+                final String unit = runs.get(0).get(i).has("nsPerOp") ? "nsPerOp" : "bytesPerOp";
+                for (int run = 0; run < values.length; run++) {
+                    values[run] = runs.get(run).get(i).getDouble(unit);
+                }
+                final double[] sorted = values.clone();
+                Arrays.sort(sorted);
+                final double median = sorted[sorted.length / 2];
+                JSONObject result = null;
+                for (int run = 0; result == null; run++) {
+                    if (values[run] == median) {
+                        result = runs.get(run).get(i);
+                    }
+                }
+                result.put("runs", values.length);
+                result.put("noisePercent", median > 0 ? (sorted[sorted.length - 1] - sorted[0]) * 50 / median : 0);
+                medians.add(result);
+            }
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return medians;
+    }
+
+    /**
+     * Runs every benchmark once
+     */
+    private List<JSONObject> runBenchmarks() {
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        results.add(benchmark("construct/context", new Op() {
+            @Override
+            public void run(int i) {
+                new CheckBoxText(BenchmarkActivity.this);
+            }
+        }));
+        for (int o = 0; o < ORIENTATIONS.length; o++) {
+            final int orientation = ORIENTATIONS[o];
+            results.add(benchmark("construct/orientation/" + ORIENTATION_NAMES[o], new Op() {
+                @Override
+                public void run(int i) {
+                    new CheckBoxText(BenchmarkActivity.this, orientation);
+                }
+            }));
+        }
+
+        final LayoutInflater inflater = LayoutInflater.from(this);
+        results.add(benchmark("inflate/allAttrs", new Op() {
+            @Override
+            public void run(int i) {
+                inflater.inflate(R.layout.benchmark_row, null);
+            }
+        }));
+
+        results.add(benchmark("inflate/style", new Op() {
+            @Override
+            public void run(int i) {
+                inflater.inflate(R.layout.benchmark_styled, null);
+            }
+        }));
+        final LayoutInflater themedInflater = LayoutInflater.from(new ContextThemeWrapper(this, R.style.BenchmarkTheme));
+        results.add(benchmark("inflate/themeStyle", new Op() {
+            @Override
+            public void run(int i) {
+                themedInflater.inflate(R.layout.benchmark_label, null);
+            }
+        }));
+
+        results.add(styleCacheBenchmark("inflate/rows/styleCache", true));
+        results.add(styleCacheBenchmark("inflate/rows/noStyleCache", false));
+
+        results.add(benchmark("inflate/labelless", new Op() {
+            @Override
+            public void run(int i) {
+                inflater.inflate(R.layout.benchmark_cell, null);
+            }
+        }));
+        results.add(screenBenchmark("inflate/screen/reflection", false));
+        results.add(screenBenchmark("inflate/screen/factory", true));
+        results.add(poolBenchmark("build/screen/constructors", false));
+        results.add(poolBenchmark("build/screen/pool", true));
+        results.add(memoryBenchmark("memory/labelless", new Factory() {
+            @Override
+            public View create() {
+                return new CheckBoxText(BenchmarkActivity.this, CheckBoxText.TEXT_BELOW);
+            }
+        }));
+        results.add(memoryBenchmark("memory/labelled", new Factory() {
+            @Override
+            public View create() {
+                CheckBoxText view = new CheckBoxText(BenchmarkActivity.this, CheckBoxText.TEXT_BELOW);
+                view.setText(R.string.benchmark_label);
+                return view;
+            }
+        }));
+        // the same app selector on every row. perView loads it from a Resources of its own, so every
+        // row decodes its own bitmaps. resources gets it from the activity's Resources, whose
+        // drawable cache shares the bitmaps while a drawable is alive. shared goes through
+        // CheckBoxTextDrawableCache.
+        results.add(memoryBenchmark("memory/drawable/perView", new Factory() {
+            @Override
+            public View create() {
+                final Resources res = getResources();
+                final Resources uncached = new Resources(getAssets(), res.getDisplayMetrics(), res.getConfiguration());
+                CheckBoxText view = new CheckBoxText(BenchmarkActivity.this);
+                view.setCheckBoxDrawable(uncached.getDrawable(R.drawable.benchmark_check));
+                return view;
+            }
+        }));
+        results.add(memoryBenchmark("memory/drawable/resources", new Factory() {
+            @Override
+            public View create() {
+                CheckBoxText view = new CheckBoxText(BenchmarkActivity.this);
+                view.setCheckBoxDrawable(getResources().getDrawable(R.drawable.benchmark_check));
+                return view;
+            }
+        }));
+        results.add(memoryBenchmark("memory/drawable/shared", new Factory() {
+            @Override
+            public View create() {
+                CheckBoxText view = new CheckBoxText(BenchmarkActivity.this);
+                view.setCheckBoxDrawable(R.drawable.benchmark_check);
+                return view;
+            }
+        }));
+
+        final int widthSpec = View.MeasureSpec.makeMeasureSpec(getResources().getDisplayMetrics().widthPixels, View.MeasureSpec.AT_MOST);
+        final int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        for (int o = 0; o < ORIENTATIONS.length; o++) {
+            final CheckBoxText view = new CheckBoxText(this, ORIENTATIONS[o]);
+            view.setText(R.string.benchmark_label);
+            results.add(benchmark("measureLayout/" + ORIENTATION_NAMES[o], new Op() {
+                @Override
+                public void run(int i) {
+                    view.forceLayout();
+                    view.measure(widthSpec, heightSpec);
+                    view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+                }
+            }));
+        }
+        // measureLayout/right with the size and positions from the layout engine
+        final CheckBoxText precomputedView = new CheckBoxText(this, CheckBoxText.TEXT_RIGHT);
+        precomputedView.setText(R.string.benchmark_label);
+        precomputedView.setPrecomputedLayout(new CheckBoxTextLayoutEngine(precomputedView.getTextMeasurer()).layout(
+                precomputedView.getText(), precomputedView.getLayoutGeometry(), View.MeasureSpec.getSize(widthSpec), false));
+        results.add(benchmark("measureLayout/precomputed", new Op() {
+            @Override
+            public void run(int i) {
+                precomputedView.forceLayout();
+                precomputedView.measure(widthSpec, heightSpec);
+                precomputedView.layout(0, 0, precomputedView.getMeasuredWidth(), precomputedView.getMeasuredHeight());
+            }
+        }));
+
+        results.addAll(flatBenchmarks(widthSpec, heightSpec));
+        results.addAll(precomputedLabelBenchmarks(widthSpec, heightSpec));
+
+        final CheckBoxText toggleView = new CheckBoxText(this);
+        toggleView.setText(R.string.benchmark_label);
+        Op toggle = new Op() {
+            @Override
+            public void run(int i) {
+                toggleView.toggle();
+            }
+        };
+        results.add(withAllocs(benchmark("toggle", toggle), toggle));
+        // laid out once, in minimal redraw mode the toggles should not request another layout
+        final CheckBoxText minimalView = new CheckBoxText(this);
+        minimalView.setText(R.string.benchmark_label);
+        minimalView.setMinimalRedraw(true);
+        minimalView.measure(widthSpec, heightSpec);
+        minimalView.layout(0, 0, minimalView.getMeasuredWidth(), minimalView.getMeasuredHeight());
+        JSONObject minimalToggle = benchmark("toggle/minimalRedraw", new Op() {
+            @Override
+            public void run(int i) {
+                minimalView.toggle();
+            }
+        });
+        try {
+            minimalToggle.put("layoutRequested", minimalView.isLayoutRequested());
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        results.add(minimalToggle);
+        results.add(benchmark("onClick", new Op() {
+            @Override
+            public void run(int i) {
+                toggleView.onClick(toggleView);
+            }
+        }));
+        // a recycled row rebound to the same item, and to the next of four items
+        final CheckBoxText bindView = new CheckBoxText(this);
+        final String[] bindTexts = {"Yes", "No", "Enable", "Disable"};
+        Op bindSame = new Op() {
+            @Override
+            public void run(int i) {
+                bindView.bind(bindTexts[0], (i & 1) == 0, 0);
+            }
+        };
+        results.add(withAllocs(benchmark("bind/sameItem", bindSame), bindSame));
+        results.add(benchmark("bind/nextItem", new Op() {
+            @Override
+            public void run(int i) {
+                bindView.bind(bindTexts[i & 3], (i & 1) == 0, i & 3);
+            }
+        }));
+        results.add(tapBenchmark("tap/childListeners", false));
+        results.add(tapBenchmark("tap/singleTouchTarget", true));
+
+        results.addAll(checklistBenchmarks());
+        results.addAll(specBenchmarks());
+        results.addAll(engineBenchmarks());
+        results.addAll(groupBenchmarks());
+        results.addAll(treeBenchmarks());
+        results.addAll(persistBenchmarks());
+        results.add(filterBenchmark("filter/10k", 10000));
+        results.add(filterBenchmark("filter/100k", 100000));
+
+        final CheckBoxText textView = new CheckBoxText(this);
+        final String[] texts = {"Yes", "No", "Enable", "Disable"};
+        results.add(benchmark("setText/string", new Op() {
+            @Override
+            public void run(int i) {
+                textView.setText(texts[i & 3]);
+            }
+        }));
+        Op setTextResId = new Op() {
+            @Override
+            public void run(int i) {
+                textView.setText(R.string.benchmark_label);
+            }
+        };
+        results.add(withAllocs(benchmark("setText/resId", setTextResId), setTextResId));
+        return results;
+    }
+
+    private static JSONObject benchmark(String name, Op op) {
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            op.run(i);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < OPS; i++) {
+            op.run(i);
+        }
+        final long nanos = System.nanoTime() - start;
+
+        JSONObject result = new JSONObject();
+        try {
+            result.put("name", name);
+            result.put("ops", OPS);
+            result.put("nsPerOp", (double) nanos / OPS);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Constructs, measures/lays out and draws a labelled CheckBoxText and a FlatCheckBoxText, the
+     * draw ops draw the laid out view into a bitmap
+     */
+    private List<JSONObject> flatBenchmarks(final int widthSpec, final int heightSpec) {
+        final String label = getString(R.string.benchmark_label);
+        final Factory[] factories = {
+                new Factory() {
+                    @Override
+                    public View create() {
+                        CheckBoxText view = new CheckBoxText(BenchmarkActivity.this);
+                        view.setText(label);
+                        return view;
+                    }
+                },
+                new Factory() {
+                    @Override
+                    public View create() {
+                        FlatCheckBoxText view = new FlatCheckBoxText(BenchmarkActivity.this);
+                        view.setText(label);
+                        return view;
+                    }
+                }
+        };
+        final String[] names = {"checkBoxText", "flat"};
+        List<JSONObject> results = new ArrayList<JSONObject>();
+        for (int f = 0; f < factories.length; f++) {
+            final Factory factory = factories[f];
+            results.add(benchmark("flat/construct/" + names[f], new Op() {
+                @Override
+                public void run(int i) {
+                    factory.create();
+                }
+            }));
+
+            final View view = factory.create();
+            results.add(benchmark("flat/measureLayout/" + names[f], new Op() {
+                @Override
+                public void run(int i) {
+                    view.forceLayout();
+                    view.measure(widthSpec, heightSpec);
+                    view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+                }
+            }));
+
+            final Canvas canvas = new Canvas(Bitmap.createBitmap(Math.max(1, view.getWidth()),
+                    Math.max(1, view.getHeight()), Bitmap.Config.ARGB_8888));
+            results.add(benchmark("flat/draw/" + names[f], new Op() {
+                @Override
+                public void run(int i) {
+                    view.draw(canvas);
+                }
+            }));
+        }
+        return results;
+    }
+
+    /**
+     * Measures and lays out a FlatCheckBoxText of each orientation with a plain label and with a
+     * PrecomputedLabel made for it
+     */
+    private List<JSONObject> precomputedLabelBenchmarks(final int widthSpec, final int heightSpec) {
+        final String label = getString(R.string.benchmark_label);
+        List<JSONObject> results = new ArrayList<JSONObject>();
+        for (int o = 0; o < ORIENTATIONS.length; o++) {
+            final FlatCheckBoxText textView = new FlatCheckBoxText(this, ORIENTATIONS[o]);
+            textView.setText(label);
+            results.add(benchmark("precomputedLabel/measureLayout/" + ORIENTATION_NAMES[o] + "/text", new Op() {
+                @Override
+                public void run(int i) {
+                    textView.forceLayout();
+                    textView.measure(widthSpec, heightSpec);
+                    textView.layout(0, 0, textView.getMeasuredWidth(), textView.getMeasuredHeight());
+                }
+            }));
+
+            final FlatCheckBoxText precomputedView = new FlatCheckBoxText(this, ORIENTATIONS[o]);
+            precomputedView.setText(PrecomputedLabel.create(label, new TextPaint(precomputedView.getTextPaint()),
+                    precomputedView.getMaxTextWidth(View.MeasureSpec.getSize(widthSpec))));
+            results.add(benchmark("precomputedLabel/measureLayout/" + ORIENTATION_NAMES[o] + "/precomputed", new Op() {
+                @Override
+                public void run(int i) {
+                    precomputedView.forceLayout();
+                    precomputedView.measure(widthSpec, heightSpec);
+                    precomputedView.layout(0, 0, precomputedView.getMeasuredWidth(), precomputedView.getMeasuredHeight());
+                }
+            }));
+        }
+        return results;
+    }
+
+    /**
+     * Jumps around a 10k item checklist and draws a screen of it, once with a CheckBoxTextListView
+     * and once with a ListView of CheckBoxText rows. Each result also has the number of views used.
+     */
+    private List<JSONObject> checklistBenchmarks() {
+        final int width = getResources().getDisplayMetrics().widthPixels;
+        final int height = getResources().getDisplayMetrics().heightPixels;
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+        final String[] labels = new String[CHECKLIST_ITEMS];
+        final boolean[] checked = new boolean[CHECKLIST_ITEMS];
+        for (int i = 0; i < CHECKLIST_ITEMS; i++) {
+            labels[i] = "Option " + i;
+            checked[i] = i % 3 == 0;
+        }
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        final CheckBoxTextListView checklist = new CheckBoxTextListView(this);
+        checklist.setDataSource(new CheckBoxTextListView.DataSource() {
+            @Override
+            public int getCount() {
+                return CHECKLIST_ITEMS;
+            }
+
+            @Override
+            public CharSequence getLabel(int position) {
+                return labels[position];
+            }
+
+            @Override
+            public boolean isChecked(int position) {
+                return checked[position];
+            }
+
+            @Override
+            public void setChecked(int position, boolean isChecked) {
+                checked[position] = isChecked;
+            }
+        });
+        layout(checklist, width, height);
+        results.add(withViews(benchmark("checklist/checkBoxTextListView", new Op() {
+            @Override
+            public void run(int i) {
+                checklist.setSelection((i * 97) % CHECKLIST_ITEMS);
+                checklist.draw(canvas);
+            }
+        }), checklist));
+
+        final ListView listView = new ListView(this);
+        CheckBoxTextAdapter adapter = new CheckBoxTextAdapter(this, CheckBoxText.TEXT_RIGHT) {
+            @Override
+            public CharSequence getText(int position) {
+                return labels[position];
+            }
+
+            @Override
+            public int getCount() {
+                return CHECKLIST_ITEMS;
+            }
+
+            @Override
+            public Object getItem(int position) {
+                return labels[position];
+            }
+
+            @Override
+            public long getItemId(int position) {
+                return position;
+            }
+        };
+        for (int i = 0; i < CHECKLIST_ITEMS; i++) {
+            adapter.getCheckedIds().set(i, checked[i]);
+        }
+        listView.setAdapter(adapter);
+        layout(listView, width, height);
+        results.add(withViews(benchmark("checklist/listView", new Op() {
+            @Override
+            public void run(int i) {
+                listView.setSelectionFromTop((i * 97) % CHECKLIST_ITEMS, 0);
+                layout(listView, width, height);
+                listView.draw(canvas);
+            }
+        }), listView));
+        return results;
+    }
+
+    /**
+     * Tap to callback latency of a CheckBoxText attached to this activity, each op dispatches a down
+     * and an up over its label on the UI thread and waits for the OnCheckedChangeListener. Each
+     * result also has the objects allocated on the UI thread per tap (the MotionEvents are pooled).
+     */
+    private JSONObject tapBenchmark(String name, boolean singleTouchTarget) {
+        final CheckBoxText view = new CheckBoxText(this);
+        view.setText(R.string.benchmark_label);
+        view.setSingleTouchTarget(singleTouchTarget);
+        final Semaphore callbacks = new Semaphore(0);
+        view.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                callbacks.release();
+            }
+        });
+        runOnUiThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                addContentView(view, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                        ViewGroup.LayoutParams.WRAP_CONTENT));
+            }
+        });
+        while (view.getWidth() == 0) {
+            SystemClock.sleep(10);
+        }
+
+        final Runnable tap = new Runnable() {
+            @Override
+            public void run() {
+                final long now = SystemClock.uptimeMillis();
+                // the label is on the right
+                final float x = view.getWidth() * 3 / 4f;
+                final float y = view.getHeight() / 2f;
+                MotionEvent event = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, x, y, 0);
+                view.dispatchTouchEvent(event);
+                event.recycle();
+                event = MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, x, y, 0);
+                view.dispatchTouchEvent(event);
+                event.recycle();
+            }
+        };
+        runOnUiThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+            }
+        });
+        JSONObject result = benchmark(name, new Op() {
+            @Override
+            public void run(int i) {
+                runOnUiThread(tap);
+                callbacks.acquireUninterruptibly();
+            }
+        });
+        final int[] allocs = new int[1];
+        runOnUiThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                Debug.stopAllocCounting();
+                allocs[0] = Debug.getThreadAllocCount();
+                ((ViewGroup) view.getParent()).removeView(view);
+            }
+        });
+        try {
+            result.put("allocsPerOp", (double) allocs[0] / (WARMUP_OPS + OPS));
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    private void runOnUiThreadAndWait(final Runnable runnable) {
+        final CountDownLatch done = new CountDownLatch(1);
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                runnable.run();
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Pushes a new label, checked state, text color, typeface, check drawable and text padding to
+     * 200 CheckBoxTexts, once with the setters and once with a CheckBoxTextSpec per view. Each op is
+     * one push to all the views, each result also has the layout requests of one push.
+     */
+    private List<JSONObject> specBenchmarks() {
+        final LayoutRequestCounter parent = new LayoutRequestCounter(this);
+        final List<CheckBoxText> views = new ArrayList<CheckBoxText>(SPEC_VIEWS);
+        final List<CheckBoxTextSpec> specsA = new ArrayList<CheckBoxTextSpec>(SPEC_VIEWS);
+        final List<CheckBoxTextSpec> specsB = new ArrayList<CheckBoxTextSpec>(SPEC_VIEWS);
+        for (int i = 0; i < SPEC_VIEWS; i++) {
+            CheckBoxText view = new CheckBoxText(this);
+            views.add(view);
+            parent.addView(view);
+            specsA.add(new CheckBoxTextSpec.Builder()
+                    .setText("Option " + i)
+                    .setChecked(false)
+                    .setTextColor(Color.BLACK)
+                    .setTypeface(Typeface.DEFAULT)
+                    .setCheckBoxDrawable(android.R.drawable.checkbox_off_background)
+                    .setPaddingText(0, 0, 0, 0)
+                    .build());
+            specsB.add(new CheckBoxTextSpec.Builder()
+                    .setText("Option " + i + " (new)")
+                    .setChecked(true)
+                    .setTextColor(Color.RED)
+                    .setTypeface(Typeface.DEFAULT_BOLD)
+                    .setCheckBoxDrawable(android.R.drawable.checkbox_on_background)
+                    .setPaddingText(4, 4, 4, 4)
+                    .build());
+        }
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        final Op setters = new Op() {
+            @Override
+            public void run(int i) {
+                final List<CheckBoxTextSpec> specs = (i & 1) == 0 ? specsA : specsB;
+                for (int v = 0; v < SPEC_VIEWS; v++) {
+                    final CheckBoxText view = views.get(v);
+                    final CheckBoxTextSpec spec = specs.get(v);
+                    view.setText(spec.text.toString());
+                    view.setChecked(spec.checked);
+                    view.setTextColor(spec.textColor);
+                    view.setTypeface(spec.typeface);
+                    view.setCheckBoxDrawable(spec.checkBoxDrawableResId);
+                    view.setPaddingText(spec.textPaddingLeft, spec.textPaddingTop, spec.textPaddingRight, spec.textPaddingBottom);
+                }
+            }
+        };
+        results.add(withLayoutRequests(benchmark("spec/setters", setters), setters, parent));
+
+        final Op apply = new Op() {
+            @Override
+            public void run(int i) {
+                CheckBoxTextSpec.applyAll(views, (i & 1) == 0 ? specsA : specsB);
+            }
+        };
+        results.add(withLayoutRequests(benchmark("spec/applyAll", apply), apply, parent));
+        return results;
+    }
+
+    /**
+     * Toggles options of a 100k option CheckBoxTextGroup and selects and clears all of them, with a
+     * screen of views attached
+     */
+    private List<JSONObject> groupBenchmarks() {
+        final CheckBoxTextGroup group = new CheckBoxTextGroup(GROUP_OPTIONS);
+        for (int i = 0; i < GROUP_ATTACHED; i++) {
+            group.attach(new CheckBoxText(this), i);
+        }
+        List<JSONObject> results = new ArrayList<JSONObject>();
+        results.add(benchmark("group/toggle", new Op() {
+            @Override
+            public void run(int i) {
+                group.toggle((int) ((i * 7919L) % GROUP_OPTIONS));
+            }
+        }));
+        results.add(benchmark("group/selectAll", new Op() {
+            @Override
+            public void run(int i) {
+                if ((i & 1) == 0) {
+                    group.selectAll();
+                } else {
+                    group.clearAll();
+                }
+            }
+        }));
+        return results;
+    }
+
+    /**
+     * Toggles leaves and subtrees of a 100k node CheckBoxTextTree, and toggles leaves recounting the
+     * descendants of every ancestor for comparison
+     */
+    private static List<JSONObject> treeBenchmarks() {
+        final int[] parents = new int[TREE_NODES];
+        final int[] depths = new int[TREE_NODES];
+        // pre-order: each node gets its children right after it until the tree is full
+        final int[] stack = new int[TREE_NODES];
+        final int[] remaining = new int[TREE_NODES];
+        int depth = 0;
+        parents[0] = CheckBoxTextTree.NO_PARENT;
+        stack[depth] = 0;
+        remaining[depth++] = TREE_FAN_OUT;
+        for (int node = 1; node < TREE_NODES; node++) {
+            while (remaining[depth - 1] == 0) {
+                depth--;
+            }
+            final int parent = stack[depth - 1];
+            remaining[depth - 1]--;
+            parents[node] = parent;
+            depths[node] = depths[parent] + 1;
+            stack[depth] = node;
+            remaining[depth++] = depths[node] < 5 ? TREE_FAN_OUT : 0;
+        }
+        final CheckBoxTextTree tree = new CheckBoxTextTree(parents);
+        final int[] leaves = new int[TREE_NODES];
+        final int[] topNodes = new int[TREE_FAN_OUT];
+        int leafCount = 0;
+        int topCount = 0;
+        for (int node = 0; node < TREE_NODES; node++) {
+            if (tree.getChildCount(node) == 0) {
+                leaves[leafCount++] = node;
+            } else if (depths[node] == 1) {
+                topNodes[topCount++] = node;
+            }
+        }
+        final int leafTotal = leafCount;
+        final int topTotal = topCount;
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        results.add(benchmark("tree/toggleLeaf", new Op() {
+            @Override
+            public void run(int i) {
+                tree.toggle(leaves[(int) ((i * 7919L) % leafTotal)]);
+            }
+        }));
+        results.add(benchmark("tree/toggleSubtree", new Op() {
+            @Override
+            public void run(int i) {
+                tree.toggle(topNodes[i % topTotal]);
+            }
+        }));
+
+        final boolean[] checked = new boolean[TREE_NODES];
+        final int[] states = new int[TREE_NODES];
+        results.add(benchmark("tree/toggleLeaf/recount", new Op() {
+            @Override
+            public void run(int i) {
+                final int leaf = leaves[(int) ((i * 7919L) % leafTotal)];
+                checked[leaf] = !checked[leaf];
+                for (int node = parents[leaf]; node != CheckBoxTextTree.NO_PARENT; node = parents[node]) {
+                    int checkedLeaves = 0;
+                    int uncheckedLeaves = 0;
+                    for (int d = node + 1, end = tree.getSubtreeEnd(node); d < end; d++) {
+                        if (tree.getChildCount(d) == 0) {
+                            if (checked[d]) {
+                                checkedLeaves++;
+                            } else {
+                                uncheckedLeaves++;
+                            }
+                        }
+                    }
+                    states[node] = uncheckedLeaves == 0 ? CheckBoxTextTree.CHECKED
+                            : checkedLeaves == 0 ? CheckBoxTextTree.UNCHECKED : CheckBoxTextTree.INDETERMINATE;
+                }
+            }
+        }));
+        return results;
+    }
+
+    /**
+     * Rapidly toggles 1,000 bound CheckBoxTexts, saving each toggle with a SharedPreferences commit
+     * and with a CheckBoxTextPersister on a file. Each result also has the number of writes.
+     */
+    private List<JSONObject> persistBenchmarks() {
+        final CheckBoxText[] views = new CheckBoxText[PERSIST_BOXES];
+        for (int i = 0; i < PERSIST_BOXES; i++) {
+            views[i] = new CheckBoxText(this);
+        }
+        final Op toggle = new Op() {
+            @Override
+            public void run(int i) {
+                views[(int) ((i * 7919L) % PERSIST_BOXES)].toggle();
+            }
+        };
+        List<JSONObject> results = new ArrayList<JSONObject>();
+
+        final SharedPreferences preferences = getSharedPreferences("benchmark_persist", MODE_PRIVATE);
+        preferences.edit().clear().commit();
+        for (int i = 0; i < PERSIST_BOXES; i++) {
+            final String key = "box" + i;
+            views[i].setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+                @Override
+                public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                    preferences.edit().putBoolean(key, isChecked).commit();
+                }
+            });
+        }
+        results.add(withWrites(benchmark("persist/sharedPreferences", toggle), WARMUP_OPS + OPS));
+
+        final AtomicInteger writes = new AtomicInteger();
+        final FileCheckBoxTextStorage storage = new FileCheckBoxTextStorage(new File(getFilesDir(), "benchmark_persist")) {
+            @Override
+            public void write(String key, long[] words) throws IOException {
+                writes.incrementAndGet();
+                super.write(key, words);
+            }
+        };
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final CheckBoxTextPersister persister = new CheckBoxTextPersister(storage, "boxes", executor);
+        for (int i = 0; i < PERSIST_BOXES; i++) {
+            // the persister is added next to the view's listener, drop the SharedPreferences one
+            views[i].setOnCheckedChangeListener(null);
+            persister.bind(views[i], i);
+        }
+        JSONObject result = benchmark("persist/persister", toggle);
+        persister.close();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        results.add(withWrites(result, writes.get()));
+        return results;
+    }
+
+    private static JSONObject withWrites(JSONObject result, int writes) {
+        try {
+            result.put("writes", writes);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the op OPS more times counting the allocations of this thread, for ops that should not
+     * allocate. Logs a warning if they do.
+     */
+    private static JSONObject withAllocs(JSONObject result, Op op) {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < OPS; i++) {
+            op.run(i);
+        }
+        Debug.stopAllocCounting();
+        final int allocs = Debug.getThreadAllocCount();
+        try {
+            result.put("allocsPerOp", (double) allocs / OPS);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        if (allocs != 0) {
+            Log.w(TAG, result.optString("name") + " allocated " + allocs + " objects in " + OPS + " ops");
+        }
+        return result;
+    }
+
+    /**
+     * Runs the op once more, counting the layout requests that reach the parent
+     */
+    private static JSONObject withLayoutRequests(JSONObject result, Op op, LayoutRequestCounter parent) {
+        parent.requests = 0;
+        op.run(OPS + WARMUP_OPS);
+        try {
+            result.put("layoutRequests", parent.requests);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Lays out ENGINE_ROWS rows of every orientation, with labels of one to five words so some wrap,
+     * with a CheckBoxTextLayoutEngine on 1, 2 and 4 threads. Each result also has the speedup over
+     * one thread.
+     */
+    private List<JSONObject> engineBenchmarks() {
+        final CheckBoxTextLayoutEngine.Geometry[] geometries = new CheckBoxTextLayoutEngine.Geometry[ORIENTATIONS.length];
+        CheckBoxTextLayoutEngine.TextMeasurer measurer = null;
+        for (int o = 0; o < ORIENTATIONS.length; o++) {
+            CheckBoxText view = new CheckBoxText(this, ORIENTATIONS[o]);
+            view.setText(R.string.benchmark_label);
+            geometries[o] = view.getLayoutGeometry();
+            if (measurer == null) {
+                measurer = view.getTextMeasurer();
+            }
+        }
+        final String[] labels = new String[ENGINE_ROWS];
+        for (int i = 0; i < ENGINE_ROWS; i++) {
+            StringBuilder label = new StringBuilder();
+            for (int word = 0; word <= i % 5; word++) {
+                label.append(WORDS[(i + word * 7) % WORDS.length]).append(' ');
+            }
+            labels[i] = label.append(i).toString();
+        }
+        final CheckBoxTextLayoutEngine.Model model = new CheckBoxTextLayoutEngine.Model() {
+            @Override
+            public int getCount() {
+                return ENGINE_ROWS;
+            }
+
+            @Override
+            public CharSequence getText(int row) {
+                return labels[row];
+            }
+
+            @Override
+            public CheckBoxTextLayoutEngine.Geometry getGeometry(int row) {
+                return geometries[row % geometries.length];
+            }
+        };
+        final CheckBoxTextLayoutEngine engine = new CheckBoxTextLayoutEngine(measurer);
+        final int width = getResources().getDisplayMetrics().widthPixels;
+
+        List<JSONObject> results = new ArrayList<JSONObject>();
+        double singleThreadNsPerOp = 0;
+        for (int threads : ENGINE_THREADS) {
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            final double nsPerOp;
+            try {
+                engine.layoutAll(model, width, true, executor, threads);
+                final long start = System.nanoTime();
+                for (int run = 0; run < ENGINE_RUNS; run++) {
+                    engine.layoutAll(model, width, true, executor, threads);
+                }
+                nsPerOp = (double) (System.nanoTime() - start) / ENGINE_RUNS;
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                executor.shutdown();
+            }
+            if (threads == 1) {
+                singleThreadNsPerOp = nsPerOp;
+            }
+
+            JSONObject result = new JSONObject();
+            try {
+                result.put("name", "engine/threads/" + threads);
+                result.put("ops", ENGINE_RUNS);
+                result.put("nsPerOp", nsPerOp);
+                result.put("rows", ENGINE_ROWS);
+                result.put("threads", threads);
+                result.put("speedup", singleThreadNsPerOp / nsPerOp);
+            } catch (JSONException e) {
+                throw new RuntimeException(e);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Inflates the example app's screen SCREEN_COPIES times per op with a new LayoutInflater, with or
+     * without a CheckBoxTextFactory installed. The style cache is cleared first and the first op,
+     * including installing the factory, is also reported as coldMs.
+     */
+    private JSONObject screenBenchmark(String name, boolean factory) {
+        CheckBoxTextStyle.clearCache();
+        final long start = System.nanoTime();
+        final LayoutInflater inflater = LayoutInflater.from(this).cloneInContext(this);
+        if (factory) {
+            CheckBoxTextFactory.install(inflater);
+        }
+        for (int i = 0; i < SCREEN_COPIES; i++) {
+            inflater.inflate(R.layout.benchmark_screen, null);
+        }
+        final long coldNanos = System.nanoTime() - start;
+
+        final long runsStart = System.nanoTime();
+        for (int run = 0; run < SCREEN_RUNS; run++) {
+            for (int i = 0; i < SCREEN_COPIES; i++) {
+                inflater.inflate(R.layout.benchmark_screen, null);
+            }
+        }
+        final long nanos = System.nanoTime() - runsStart;
+
+        JSONObject result = new JSONObject();
+        try {
+            result.put("name", name);
+            result.put("ops", SCREEN_RUNS);
+            result.put("nsPerOp", (double) nanos / SCREEN_RUNS);
+            result.put("widgets", SCREEN_WIDGETS);
+            result.put("coldMs", coldNanos / 1000000.0);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the example app's screen SCREEN_COPIES times in code per op, as a screen shown for the
+     * first time would, with new CheckBoxTexts or with ones a CheckBoxTextPool prefetched before
+     * the op. Each result also has the pool hits and misses.
+     */
+    private JSONObject poolBenchmark(String name, boolean pooled) {
+        final int[] orientations = {
+                CheckBoxText.TEXT_BELOW, CheckBoxText.TEXT_LEFT, CheckBoxText.TEXT_RIGHT, CheckBoxText.TEXT_ABOVE,
+                CheckBoxText.TEXT_RIGHT
+        };
+        final int[] appearances = {0, 0, 0, 0, android.R.style.TextAppearance_Medium};
+        final String[] labels = {
+                "CheckTextBox Below", "CheckTextBox Left", "CheckTextBox Right", "CheckTextBox Above",
+                "CheckTextBox Styled"
+        };
+        long nanos = 0;
+        int hits = 0;
+        int misses = 0;
+        for (int run = 0; run < SCREEN_RUNS; run++) {
+            CheckBoxTextPool pool = null;
+            if (pooled) {
+                pool = new CheckBoxTextPool(this);
+                for (int w = 0; w < orientations.length; w++) {
+                    pool.prefetch(orientations[w], appearances[w], SCREEN_COPIES);
+                }
+                for (int w = 0; w < orientations.length; w++) {
+                    while (pool.getAvailable(orientations[w], appearances[w]) < SCREEN_COPIES) {
+                        SystemClock.sleep(5);
+                    }
+                }
+            }
+
+            final long start = System.nanoTime();
+            for (int copy = 0; copy < SCREEN_COPIES; copy++) {
+                LinearLayout screen = new LinearLayout(this);
+                screen.setOrientation(LinearLayout.VERTICAL);
+                for (int w = 0; w < orientations.length; w++) {
+                    CheckBoxText view;
+                    if (pool != null) {
+                        view = pool.obtain(orientations[w], appearances[w]);
+                    } else {
+                        view = new CheckBoxText(this, orientations[w]);
+                        if (appearances[w] != 0) {
+                            view.setTextAppearance(this, appearances[w]);
+                        }
+                    }
+                    view.setText(labels[w]);
+                    screen.addView(view);
+                }
+            }
+            nanos += System.nanoTime() - start;
+
+            if (pool != null) {
+                hits += pool.getHits();
+                misses += pool.getMisses();
+                pool.shutdown();
+            }
+        }
+
+        JSONObject result = new JSONObject();
+        try {
+            result.put("name", name);
+            result.put("ops", SCREEN_RUNS);
+            result.put("nsPerOp", (double) nanos / SCREEN_RUNS);
+            result.put("widgets", SCREEN_WIDGETS);
+            if (pooled) {
+                result.put("hits", hits);
+                result.put("misses", misses);
+            }
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Inflates STYLE_ROWS rows with a style="" per op, with the CheckBoxTextStyle cache on or off
+     */
+    private JSONObject styleCacheBenchmark(String name, boolean cacheEnabled) {
+        final LayoutInflater inflater = LayoutInflater.from(this);
+        CheckBoxTextStyle.setCacheEnabled(cacheEnabled);
+        final long nanos;
+        try {
+            for (int i = 0; i < STYLE_ROWS; i++) {
+                inflater.inflate(R.layout.benchmark_styled, null);
+            }
+            final long start = System.nanoTime();
+            for (int run = 0; run < STYLE_RUNS; run++) {
+                for (int i = 0; i < STYLE_ROWS; i++) {
+                    inflater.inflate(R.layout.benchmark_styled, null);
+                }
+            }
+            nanos = System.nanoTime() - start;
+        } finally {
+            CheckBoxTextStyle.setCacheEnabled(true);
+        }
+
+        JSONObject result = new JSONObject();
+        try {
+            result.put("name", name);
+            result.put("ops", STYLE_RUNS);
+            result.put("nsPerOp", (double) nanos / STYLE_RUNS);
+            result.put("rows", STYLE_ROWS);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Keystroke to results latency of a CheckBoxTextOptionSet, each op is one more character typed
+     * and filtered on this thread. Each result also has the time to build the index.
+     */
+    private static JSONObject filterBenchmark(String name, int count) {
+        final long[] ids = new long[count];
+        final String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+            labels[i] = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+        }
+        final long start = System.nanoTime();
+        final CheckBoxTextOptionSet options = new CheckBoxTextOptionSet(ids, labels);
+        final long buildNanos = System.nanoTime() - start;
+
+        JSONObject result = benchmark(name, new Op() {
+            @Override
+            public void run(int i) {
+                final int end = i % TYPED.length() + 1;
+                options.filterNow(TYPED.substring(TYPED.lastIndexOf(' ', end - 1) + 1, end));
+            }
+        });
+        options.shutdown();
+        try {
+            result.put("options", count);
+            result.put("buildMs", buildNanos / 1000000.0);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    private static void layout(View view, int width, int height) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+    }
+
+    private static JSONObject withViews(JSONObject result, View view) {
+        try {
+            result.put("views", countViews(view));
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the retained heap per view by creating a grid of them and comparing the used heap
+     * before and after, the views are kept alive until it is measured
+     */
+    private static JSONObject memoryBenchmark(String name, Factory factory) {
+        // warm up so class loading and the style caches are not counted
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            factory.create();
+        }
+        final long before = usedHeap();
+        View[] grid = new View[GRID_CELLS];
+        for (int i = 0; i < GRID_CELLS; i++) {
+            grid[i] = factory.create();
+        }
+        final long bytes = usedHeap() - before;
+
+        JSONObject result = new JSONObject();
+        try {
+            result.put("name", name);
+            result.put("ops", grid.length);
+            result.put("bytesPerOp", (double) bytes / grid.length);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return the external files dir, which adb can pull from without root, or the internal one
+     * when there is no external storage
+     */
+    private File getResultsDir() {
+        File dir = getExternalFilesDir(null);
+        return dir != null ? dir : getFilesDir();
+    }
+
+    private JSONObject readBaseline() {
+        File file = new File(getResultsDir(), BASELINE_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int count = in.read(bytes, read, bytes.length - read);
+                if (count < 0) {
+                    break;
+                }
+                read += count;
+            }
+            return new JSONObject(new String(bytes, 0, read, "UTF-8"));
+        } catch (IOException e) {
+            Log.w(TAG, "could not read the baseline", e);
+        } catch (JSONException e) {
+            Log.w(TAG, "could not read the baseline", e);
+        } finally {
+            close(in);
+        }
+        return null;
+    }
+
+    private void write(String name, String contents) {
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(new File(getResultsDir(), name));
+            out.write(contents.getBytes("UTF-8"));
+        } catch (IOException e) {
+            Log.w(TAG, "could not write " + name, e);
+        } finally {
+            close(out);
+        }
+    }
+
+    private static void close(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
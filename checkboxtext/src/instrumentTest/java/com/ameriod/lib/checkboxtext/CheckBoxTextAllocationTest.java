@@ -0,0 +1,110 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+/**
+ * Nothing is allocated per toggle or per setText(resId) with the same resource id
+ */
+public class CheckBoxTextAllocationTest extends AndroidTestCase {
+
+    private static final int OPS = 1000;
+
+    private CheckBoxText mView;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mView = new CheckBoxText(getContext());
+        mView.setText("Label");
+    }
+
+    public void testToggleDoesNotAllocate() {
+        assertToggleDoesNotAllocate();
+    }
+
+    public void testToggleDoesNotAllocateInMinimalRedraw() {
+        mView.setMinimalRedraw(true);
+        assertToggleDoesNotAllocate();
+    }
+
+    public void testToggleDoesNotAllocateFromIndeterminate() {
+        mView.setIndeterminate(true);
+        assertToggleDoesNotAllocate();
+    }
+
+    public void testRepeatedSetTextResIdDoesNotAllocate() {
+        mView.setText(android.R.string.ok);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < OPS; i++) {
+            mView.setText(android.R.string.ok);
+        }
+        Debug.stopAllocCounting();
+
+        assertEquals(0, Debug.getThreadAllocCount());
+        assertEquals(getContext().getString(android.R.string.ok), mView.getLabel().toString());
+    }
+
+    public void testToggleKeepsOtherDrawableStates() {
+        // both checked states made while enabled
+        mView.toggle();
+        mView.toggle();
+        mView.getChildAt(0).setEnabled(false);
+        mView.toggle();
+
+        final int[] state = mView.getChildAt(0).getDrawableState();
+        assertTrue(contains(state, android.R.attr.state_checked));
+        assertFalse(contains(state, android.R.attr.state_enabled));
+
+        mView.getChildAt(0).setEnabled(true);
+        mView.toggle();
+        final int[] enabledState = mView.getChildAt(0).getDrawableState();
+        assertFalse(contains(enabledState, android.R.attr.state_checked));
+        assertTrue(contains(enabledState, android.R.attr.state_enabled));
+    }
+
+    private void assertToggleDoesNotAllocate() {
+        // makes the drawable state of both checked states
+        mView.toggle();
+        mView.toggle();
+        mView.getChildAt(0).getDrawableState();
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < OPS; i++) {
+            mView.toggle();
+            // what drawing asks for
+            mView.getChildAt(0).getDrawableState();
+        }
+        Debug.stopAllocCounting();
+
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+
+    private static boolean contains(int[] state, int attr) {
+        for (int value : state) {
+            if (value == attr) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,226 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.test.InstrumentationTestCase;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+/**
+ * {@link CheckBoxText#apply(CheckBoxTextSpec)} requests at most one layout and one invalidate for
+ * all the fields it changes and keeps the spans of the text. The views are put in a window of their
+ * own, invalidates don't reach the parents of a detached view.
+ */
+public class CheckBoxTextApplyTest extends InstrumentationTestCase {
+
+    private static final int WIDTH = View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.AT_MOST);
+    private static final int HEIGHT = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+    private Context mContext;
+    private WindowManager mWindowManager;
+    private Counter mParent;
+    private CheckBoxText mView;
+    private boolean mLayoutRequested;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        mWindowManager = (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mView = new CheckBoxText(mContext);
+                mParent = new Counter(mContext);
+                mParent.addView(mView);
+                WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                        ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT,
+                        WindowManager.LayoutParams.TYPE_TOAST,
+                        WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE,
+                        PixelFormat.TRANSLUCENT);
+                mWindowManager.addView(mParent, params);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mWindowManager.removeView(mParent);
+            }
+        });
+        super.tearDown();
+    }
+
+    public void testEveryFieldChangedRequestsOneLayoutAndOneInvalidate() {
+        for (int orientation = 0; orientation < 4; orientation++) {
+            final int viewOrientation = orientation;
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    mView = new CheckBoxText(mContext, viewOrientation);
+                    mParent.removeAllViews();
+                    mParent.addView(mView);
+                }
+            });
+            layout();
+
+            apply(new CheckBoxTextSpec.Builder()
+                    .setText("Label")
+                    .setTextColor(Color.RED)
+                    .setTypeface(Typeface.DEFAULT_BOLD)
+                    .setTextSize(TypedValue.COMPLEX_UNIT_PX, 40)
+                    .setCheckBoxDrawable(android.R.drawable.checkbox_on_background)
+                    .setPaddingText(1, 2, 3, 4)
+                    .setPaddingCheckBox(4, 3, 2, 1)
+                    .setChecked(true)
+                    .build());
+            assertTrue(mLayoutRequested);
+            assertEquals(1, mParent.requests);
+            assertEquals(1, mParent.invalidates);
+
+            // all of them again with other values
+            layout();
+            apply(mView.getAppliedSpec().buildUpon()
+                    .setText("Other label")
+                    .setTextColor(Color.BLUE)
+                    .setTypeface(Typeface.MONOSPACE)
+                    .setTextSize(TypedValue.COMPLEX_UNIT_PX, 20)
+                    .setCheckBoxDrawable(android.R.drawable.checkbox_off_background)
+                    .setPaddingText(5, 6, 7, 8)
+                    .setPaddingCheckBox(8, 7, 6, 5)
+                    .setChecked(false)
+                    .build());
+            assertTrue(mLayoutRequested);
+            assertEquals(1, mParent.requests);
+            assertEquals(1, mParent.invalidates);
+        }
+    }
+
+    public void testUnchangedSpecRequestsNothing() {
+        apply(new CheckBoxTextSpec.Builder().setText("Label").setPaddingText(1, 2, 3, 4).build());
+        layout();
+
+        apply(new CheckBoxTextSpec.Builder().setText("Label").setPaddingText(1, 2, 3, 4).build());
+        assertFalse(mLayoutRequested);
+        assertEquals(0, mParent.requests);
+        assertEquals(0, mParent.invalidates);
+    }
+
+    public void testCheckedOnlyRequestsNoLayoutInMinimalRedraw() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mView.setMinimalRedraw(true);
+            }
+        });
+        apply(new CheckBoxTextSpec.Builder().setText("Label").build());
+        layout();
+
+        apply(mView.getAppliedSpec().buildUpon().setChecked(true).build());
+        assertFalse(mLayoutRequested);
+        assertEquals(0, mParent.requests);
+        assertEquals(1, mParent.invalidates);
+        assertTrue(mView.isChecked());
+    }
+
+    public void testTextKeepsItsSpans() {
+        SpannableString text = new SpannableString("Bold label");
+        text.setSpan(new StyleSpan(Typeface.BOLD), 0, 4, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        apply(new CheckBoxTextSpec.Builder().setText(text).build());
+
+        assertTrue(mView.getText() instanceof Spanned);
+        StyleSpan[] spans = ((Spanned) mView.getText()).getSpans(0, text.length(), StyleSpan.class);
+        assertEquals(1, spans.length);
+        assertEquals(Typeface.BOLD, spans[0].getStyle());
+    }
+
+    /**
+     * Applies the spec on the main thread, counting from a clean slate
+     */
+    private void apply(final CheckBoxTextSpec spec) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mParent.requests = 0;
+                mParent.invalidates = 0;
+                mLayoutRequested = mView.apply(spec);
+            }
+        });
+    }
+
+    /**
+     * Lays the view out and draws it, so the next change has to request a layout and invalidate
+     * again
+     */
+    private void layout() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mView.measure(WIDTH, HEIGHT);
+                mView.layout(0, 0, mView.getMeasuredWidth(), mView.getMeasuredHeight());
+                mParent.invalidate();
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * Counts every layout request and invalidate of its children, never lays out again after the
+     * first pass
+     */
+    private static final class Counter extends FrameLayout {
+
+        int requests;
+        int invalidates;
+
+        Counter(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean isLayoutRequested() {
+            return false;
+        }
+
+        @Override
+        public void requestLayout() {
+            requests++;
+        }
+
+        @Override
+        public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+            invalidates++;
+            return super.invalidateChildInParent(location, dirty);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The batcher delivers the changes of a frame in one callback
+ */
+public class CheckBoxTextBatcherTest extends InstrumentationTestCase {
+
+    private static final int VIEWS = 300;
+
+    private final List<long[]> mIds = new ArrayList<long[]>();
+    private final List<boolean[]> mChecked = new ArrayList<boolean[]>();
+    private CountDownLatch mDelivered;
+
+    private CheckBoxTextBatcher mBatcher;
+    private CheckBoxText[] mViews;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDelivered = new CountDownLatch(1);
+        final Context context = getInstrumentation().getTargetContext();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mBatcher = new CheckBoxTextBatcher(new CheckBoxTextBatcher.OnBatchCheckedChangeListener() {
+                    @Override
+                    public void onBatchCheckedChanged(long[] ids, boolean[] checked) {
+                        mIds.add(ids);
+                        mChecked.add(checked);
+                        mDelivered.countDown();
+                    }
+                });
+                mViews = new CheckBoxText[VIEWS];
+                for (int i = 0; i < VIEWS; i++) {
+                    mViews[i] = new CheckBoxText(context);
+                    mBatcher.register(mViews[i], 1000 + i);
+                }
+            }
+        });
+    }
+
+    public void testOneCallbackPerFrame() throws InterruptedException {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (CheckBoxText view : mViews) {
+                    view.toggle();
+                }
+            }
+        });
+        awaitFrames();
+
+        assertEquals(1, mIds.size());
+        assertEquals(VIEWS, mIds.get(0).length);
+        for (int i = 0; i < VIEWS; i++) {
+            assertEquals(1000 + i, mIds.get(0)[i]);
+            assertTrue(mChecked.get(0)[i]);
+        }
+    }
+
+    public void testLastStateOfABoxChangedTwice() throws InterruptedException {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mViews[0].toggle();
+                mViews[1].toggle();
+                mViews[0].toggle();
+            }
+        });
+        awaitFrames();
+
+        assertEquals(1, mIds.size());
+        assertEquals(2, mIds.get(0).length);
+        assertEquals(1000, mIds.get(0)[0]);
+        assertFalse(mChecked.get(0)[0]);
+        assertEquals(1001, mIds.get(0)[1]);
+        assertTrue(mChecked.get(0)[1]);
+    }
+
+    public void testEndBatchDeliversRightAway() {
+        final int[] callbacks = new int[2];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mBatcher.beginBatch();
+                for (CheckBoxText view : mViews) {
+                    view.toggle();
+                }
+                callbacks[0] = mIds.size();
+                mBatcher.endBatch();
+                callbacks[1] = mIds.size();
+            }
+        });
+
+        assertEquals(0, callbacks[0]);
+        assertEquals(1, callbacks[1]);
+        assertEquals(VIEWS, mIds.get(0).length);
+    }
+
+    public void testUnregisteredViewIsNotReported() throws InterruptedException {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mBatcher.unregister(mViews[0]);
+                mViews[0].toggle();
+                mViews[1].toggle();
+            }
+        });
+        awaitFrames();
+
+        assertEquals(1, mIds.size());
+        assertEquals(1, mIds.get(0).length);
+        assertEquals(1001, mIds.get(0)[0]);
+    }
+
+    /**
+     * Waits for the first callback and a few more frames in case a second one comes
+     */
+    private void awaitFrames() throws InterruptedException {
+        assertTrue(mDelivered.await(1, TimeUnit.SECONDS));
+        SystemClock.sleep(100);
+        getInstrumentation().waitForIdleSync();
+    }
+}
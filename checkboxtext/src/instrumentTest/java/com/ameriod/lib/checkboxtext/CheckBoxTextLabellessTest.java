@@ -0,0 +1,67 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.test.AndroidTestCase;
+import android.util.TypedValue;
+
+/**
+ * A CheckBoxText without text has no TextView, reading its text size or measurer does not make one
+ */
+public class CheckBoxTextLabellessTest extends AndroidTestCase {
+
+    private static final String LABEL = "Enable notifications for new messages";
+
+    public void testNoTextViewWithoutText() {
+        CheckBoxText view = new CheckBoxText(getContext());
+        view.getTextSize();
+        view.getTextMeasurer();
+
+        assertEquals(1, view.getChildCount());
+    }
+
+    public void testTextSizeOfTheAppearance() {
+        CheckBoxText labelless = new CheckBoxText(getContext());
+        CheckBoxText labelled = new CheckBoxText(getContext());
+        labelled.setText(LABEL);
+
+        assertEquals(labelled.getTextSize(), labelless.getTextSize(), 0f);
+    }
+
+    public void testPendingTextSize() {
+        CheckBoxText labelless = new CheckBoxText(getContext());
+        labelless.setTextSize(TypedValue.COMPLEX_UNIT_PX, 40);
+
+        assertEquals(40f, labelless.getTextSize(), 0f);
+        assertEquals(1, labelless.getChildCount());
+    }
+
+    public void testMeasurerMatchesTheTextView() {
+        CheckBoxText labelless = new CheckBoxText(getContext());
+        labelless.setTextSize(TypedValue.COMPLEX_UNIT_PX, 40);
+        CheckBoxText labelled = new CheckBoxText(getContext());
+        labelled.setTextSize(TypedValue.COMPLEX_UNIT_PX, 40);
+        labelled.setText(LABEL);
+
+        int[] expected = new int[2];
+        int[] actual = new int[2];
+        labelled.getTextMeasurer().measure(LABEL, 200, expected);
+        labelless.getTextMeasurer().measure(LABEL, 200, actual);
+        assertEquals(expected[0], actual[0]);
+        assertEquals(expected[1], actual[1]);
+    }
+}
@@ -0,0 +1,156 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.graphics.drawable.GradientDrawable;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+/**
+ * The engine lays a row out like CheckBoxText.onMeasure and onLayout do, for every orientation, an
+ * unknown one (laid out as TEXT_RIGHT), a short, a wrapping and no label, wrapping and matching the
+ * width, and with a minimum size from minHeight and from the background
+ */
+public class CheckBoxTextLayoutEngineTest extends AndroidTestCase {
+
+    private static final int MAX_WIDTH = 200;
+    private static final int UNKNOWN_ORIENTATION = 7;
+    private static final int MIN_WIDTH = 180;
+    private static final int MIN_HEIGHT = 300;
+    private static final int[] ORIENTATIONS = {
+            CheckBoxText.TEXT_RIGHT, CheckBoxText.TEXT_LEFT, CheckBoxText.TEXT_ABOVE, CheckBoxText.TEXT_BELOW,
+            UNKNOWN_ORIENTATION
+    };
+    private static final String[] TEXTS = {
+            "Label", "A label long enough to wrap onto more lines in a narrow row", null
+    };
+
+    public void testEngineMatchesTheView() {
+        for (int orientation : ORIENTATIONS) {
+            for (String text : TEXTS) {
+                for (boolean matchWidth : new boolean[]{false, true}) {
+                    assertSameLayout(orientation, text, matchWidth, false);
+                    assertSameLayout(orientation, text, matchWidth, true);
+                }
+            }
+        }
+    }
+
+    public void testUnknownOrientationIsLaidOutAsTextRight() {
+        final CheckBoxTextLayoutEngine engine = new CheckBoxTextLayoutEngine(new FixedWidthMeasurer());
+        final CheckBoxTextLayoutEngine.Geometry right = geometry(CheckBoxText.TEXT_RIGHT);
+        final CheckBoxTextLayoutEngine.Geometry unknown = geometry(UNKNOWN_ORIENTATION);
+        for (boolean matchWidth : new boolean[]{false, true}) {
+            CheckBoxTextLayoutEngine.RowLayout expected = engine.layout(TEXTS[1], right, MAX_WIDTH, matchWidth);
+            CheckBoxTextLayoutEngine.RowLayout actual = engine.layout(TEXTS[1], unknown, MAX_WIDTH, matchWidth);
+
+            assertEquals(expected.width, actual.width);
+            assertEquals(expected.height, actual.height);
+            assertEquals(expected.checkBoxLeft, actual.checkBoxLeft);
+            assertEquals(expected.checkBoxTop, actual.checkBoxTop);
+            assertEquals(expected.textLeft, actual.textLeft);
+            assertEquals(expected.textTop, actual.textTop);
+            assertEquals(expected.textRight, actual.textRight);
+            assertEquals(expected.textBottom, actual.textBottom);
+        }
+    }
+
+    public void testMinimumSizeIsInTheGeometry() {
+        final CheckBoxText view = new CheckBoxText(getContext());
+        setMinimumSize(view);
+        final CheckBoxTextLayoutEngine.Geometry geometry = view.getLayoutGeometry();
+
+        assertEquals(MIN_WIDTH, geometry.minWidth);
+        assertEquals(MIN_HEIGHT, geometry.minHeight);
+        final CheckBoxTextLayoutEngine.RowLayout row = new CheckBoxTextLayoutEngine(new FixedWidthMeasurer())
+                .layout("L", geometry, MAX_WIDTH, false);
+        assertEquals(MIN_WIDTH, row.width);
+        assertEquals(MIN_HEIGHT, row.height);
+    }
+
+    private void assertSameLayout(int orientation, String text, boolean matchWidth, boolean minimumSize) {
+        final String message = "orientation " + orientation + ", text " + text + ", matchWidth " + matchWidth
+                + ", minimumSize " + minimumSize;
+        final CheckBoxText view = new CheckBoxText(getContext(), orientation);
+        if (text != null) {
+            view.setText(text);
+        }
+        if (minimumSize) {
+            setMinimumSize(view);
+        }
+        view.setPadding(3, 5, 7, 11);
+        view.setPaddingText(2, 4, 6, 8);
+
+        final CheckBoxTextLayoutEngine engine = new CheckBoxTextLayoutEngine(view.getTextMeasurer());
+        final CheckBoxTextLayoutEngine.RowLayout row = engine.layout(view.getText(), view.getLayoutGeometry(),
+                MAX_WIDTH, matchWidth);
+
+        view.measure(View.MeasureSpec.makeMeasureSpec(MAX_WIDTH, matchWidth ? View.MeasureSpec.EXACTLY : View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+
+        assertEquals(message, view.getMeasuredWidth(), row.width);
+        assertEquals(message, view.getMeasuredHeight(), row.height);
+        final View checkBox = view.getChildAt(0);
+        assertEquals(message, checkBox.getLeft(), row.checkBoxLeft);
+        assertEquals(message, checkBox.getTop(), row.checkBoxTop);
+        assertEquals(message, checkBox.getRight(), row.checkBoxRight);
+        assertEquals(message, checkBox.getBottom(), row.checkBoxBottom);
+        if (text != null) {
+            final View textView = view.getChildAt(1);
+            assertEquals(message, textView.getLeft(), row.textLeft);
+            assertEquals(message, textView.getTop(), row.textTop);
+            assertEquals(message, textView.getRight(), row.textRight);
+            assertEquals(message, textView.getBottom(), row.textBottom);
+        } else {
+            assertEquals(message, 1, view.getChildCount());
+        }
+    }
+
+    /**
+     * A minHeight taller than any of the rows and a background wider than the short ones
+     */
+    private static void setMinimumSize(CheckBoxText view) {
+        view.setMinimumHeight(MIN_HEIGHT);
+        GradientDrawable background = new GradientDrawable();
+        background.setSize(MIN_WIDTH, 1);
+        view.setBackgroundDrawable(background);
+    }
+
+    private static CheckBoxTextLayoutEngine.Geometry geometry(int orientation) {
+        return new CheckBoxTextLayoutEngine.Geometry.Builder(orientation)
+                .setCheckBoxSize(32, 32)
+                .setCheckBoxMargins(1, 2, 3, 4)
+                .setTextMargins(4, 3, 2, 1)
+                .setTextPadding(2, 2, 2, 2)
+                .setPadding(5, 5, 5, 5)
+                .build();
+    }
+
+    /**
+     * Every character is 10 wide, lines are 20 high
+     */
+    private static final class FixedWidthMeasurer implements CheckBoxTextLayoutEngine.TextMeasurer {
+        @Override
+        public void measure(CharSequence text, int maxWidth, int[] outSize) {
+            final int perLine = Math.max(1, maxWidth / 10);
+            final int lines = (text.length() + perLine - 1) / perLine;
+            outSize[0] = Math.min(text.length() * 10, maxWidth);
+            outSize[1] = lines * 20;
+        }
+    }
+}
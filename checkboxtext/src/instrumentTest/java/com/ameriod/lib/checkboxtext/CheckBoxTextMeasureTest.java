@@ -0,0 +1,85 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+/**
+ * onMeasure measures each child once per pass and onLayout does not measure them again
+ */
+public class CheckBoxTextMeasureTest extends AndroidTestCase {
+
+    private static final int[] ORIENTATIONS = {
+            CheckBoxText.TEXT_RIGHT, CheckBoxText.TEXT_LEFT, CheckBoxText.TEXT_ABOVE, CheckBoxText.TEXT_BELOW
+    };
+
+    /**
+     * Counts the child measures
+     */
+    private static final class CountingCheckBoxText extends CheckBoxText {
+
+        int measures;
+
+        CountingCheckBoxText(Context context, int orientation) {
+            super(context, orientation);
+        }
+
+        @Override
+        protected void measureChildWithMargins(View child, int parentWidthMeasureSpec, int widthUsed,
+                                               int parentHeightMeasureSpec, int heightUsed) {
+            measures++;
+            super.measureChildWithMargins(child, parentWidthMeasureSpec, widthUsed, parentHeightMeasureSpec, heightUsed);
+        }
+    }
+
+    public void testOneMeasurePerChildPerPass() {
+        for (int orientation : ORIENTATIONS) {
+            CountingCheckBoxText view = new CountingCheckBoxText(getContext(), orientation);
+            view.setText("Enable notifications for new messages");
+            for (int pass = 0; pass < 3; pass++) {
+                view.measures = 0;
+                layoutPass(view, View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.AT_MOST));
+                assertEquals("orientation " + orientation, 2, view.measures);
+            }
+        }
+    }
+
+    public void testExactWidthMeasuresOncePerChild() {
+        for (int orientation : ORIENTATIONS) {
+            CountingCheckBoxText view = new CountingCheckBoxText(getContext(), orientation);
+            view.setText("Enable notifications for new messages");
+            layoutPass(view, View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY));
+            assertEquals("orientation " + orientation, 2, view.measures);
+        }
+    }
+
+    public void testLabellessMeasuresOnlyTheCheckBox() {
+        for (int orientation : ORIENTATIONS) {
+            CountingCheckBoxText view = new CountingCheckBoxText(getContext(), orientation);
+            layoutPass(view, View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.AT_MOST));
+            assertEquals("orientation " + orientation, 1, view.measures);
+        }
+    }
+
+    private static void layoutPass(View view, int widthMeasureSpec) {
+        view.forceLayout();
+        view.measure(widthMeasureSpec, View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+}
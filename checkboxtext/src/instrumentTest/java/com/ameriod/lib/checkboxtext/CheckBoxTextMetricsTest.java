@@ -0,0 +1,97 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+/**
+ * Clicks are timed whether they land on the label or the glyph, and nothing is allocated while the
+ * metrics are off
+ */
+public class CheckBoxTextMetricsTest extends AndroidTestCase {
+
+    private static final int OPS = 1000;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        CheckBoxTextMetrics.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        CheckBoxTextMetrics.setEnabled(false);
+        CheckBoxTextMetrics.reset();
+        super.tearDown();
+    }
+
+    public void testGlyphClickIsTimed() {
+        CheckBoxTextMetrics.setEnabled(true);
+        CheckBoxText view = new CheckBoxText(getContext(), CheckBoxText.TEXT_LEFT);
+        view.setText("Label");
+        // the CheckBox is the first child
+        view.getChildAt(0).performClick();
+
+        assertTrue(view.isChecked());
+        assertEquals(1, CheckBoxTextMetrics.snapshot().getCount(CheckBoxTextMetrics.CLICK, CheckBoxText.TEXT_LEFT));
+    }
+
+    public void testLabelClickIsTimed() {
+        CheckBoxTextMetrics.setEnabled(true);
+        CheckBoxText view = new CheckBoxText(getContext(), CheckBoxText.TEXT_LEFT);
+        view.setText("Label");
+        view.onClick(view.getChildAt(1));
+
+        assertTrue(view.isChecked());
+        assertEquals(1, CheckBoxTextMetrics.snapshot().getCount(CheckBoxTextMetrics.CLICK, CheckBoxText.TEXT_LEFT));
+    }
+
+    public void testDisabledRecordsNothing() {
+        CheckBoxText view = new CheckBoxText(getContext());
+        view.setText("Label");
+        view.getChildAt(0).performClick();
+        view.onClick(view.getChildAt(1));
+
+        for (int phase = 0; phase < CheckBoxTextMetrics.PHASE_COUNT; phase++) {
+            assertEquals(0, CheckBoxTextMetrics.snapshot().getCount(phase, CheckBoxText.TEXT_RIGHT));
+        }
+    }
+
+    public void testDisabledDoesNotAllocate() {
+        final CheckBoxText view = new CheckBoxText(getContext());
+        view.setText("Label");
+        // warm up
+        view.toggle();
+        view.toggle();
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < OPS; i++) {
+            final long start = CheckBoxTextMetrics.start();
+            view.toggle();
+            CheckBoxTextMetrics.record(CheckBoxTextMetrics.CLICK, CheckBoxText.TEXT_RIGHT, start);
+        }
+        Debug.stopAllocCounting();
+
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+
+    public void testDisabledStartIsZero() {
+        assertEquals(0, CheckBoxTextMetrics.start());
+    }
+}
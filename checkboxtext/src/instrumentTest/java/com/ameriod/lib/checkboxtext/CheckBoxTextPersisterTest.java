@@ -0,0 +1,223 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.widget.CompoundButton;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bind() shows the defaults while the saved states are read and binds again once they are, a closed
+ * persister ignores flush() and preload(), and the file storage keeps every key in a file of its own
+ * inside its directory
+ */
+public class CheckBoxTextPersisterTest extends InstrumentationTestCase {
+
+    private static final String KEY = "boxes";
+    private static final int VIEWS = 3;
+
+    private BlockingStorage mStorage;
+    private ScheduledExecutorService mExecutor;
+    private CheckBoxTextPersister mPersister;
+    private CheckBoxText[] mViews;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mStorage = new BlockingStorage();
+        // boxes 0 and 2 were checked
+        mStorage.write(KEY, new long[]{5});
+        mExecutor = Executors.newSingleThreadScheduledExecutor();
+        mPersister = new CheckBoxTextPersister(mStorage, KEY, mExecutor);
+        mPersister.setDelay(0, 0);
+        final Context context = getInstrumentation().getTargetContext();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mViews = new CheckBoxText[VIEWS];
+                for (int i = 0; i < VIEWS; i++) {
+                    mViews[i] = new CheckBoxText(context);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mStorage.mRead.countDown();
+        mPersister.close();
+        mExecutor.shutdown();
+        mExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        super.tearDown();
+    }
+
+    public void testBindDoesNotWaitForTheStorage() throws InterruptedException {
+        final long[] bindMs = new long[1];
+        final boolean[] checkedBeforeRead = new boolean[VIEWS];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final long start = SystemClock.uptimeMillis();
+                for (int i = 0; i < VIEWS; i++) {
+                    mPersister.bind(mViews[i], i);
+                }
+                bindMs[0] = SystemClock.uptimeMillis() - start;
+                for (int i = 0; i < VIEWS; i++) {
+                    checkedBeforeRead[i] = mViews[i].isChecked();
+                }
+            }
+        });
+        assertTrue(bindMs[0] < BlockingStorage.TIMEOUT_MS);
+        assertFalse(mPersister.isLoaded());
+        assertTrue(Arrays.equals(new boolean[VIEWS], checkedBeforeRead));
+
+        awaitRead();
+
+        assertTrue(mViews[0].isChecked());
+        assertFalse(mViews[1].isChecked());
+        assertTrue(mViews[2].isChecked());
+    }
+
+    public void testChangeBeforeTheReadIsKept() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < VIEWS; i++) {
+                    mPersister.bind(mViews[i], i);
+                }
+                mViews[1].toggle();
+            }
+        });
+
+        awaitRead();
+
+        assertTrue(mViews[0].isChecked());
+        assertTrue(mViews[1].isChecked());
+        assertTrue(mViews[2].isChecked());
+        mPersister.close();
+        mExecutor.shutdown();
+        assertTrue(mExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(Arrays.equals(new long[]{7}, mStorage.read(KEY)));
+    }
+
+    public void testViewsOwnListenerIsKept() throws InterruptedException {
+        final int[] calls = new int[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mViews[1].setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+                    @Override
+                    public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                        calls[0]++;
+                    }
+                });
+                mPersister.bind(mViews[1], 1);
+            }
+        });
+        awaitRead();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mViews[1].toggle();
+            }
+        });
+
+        // not called when bound again after the read
+        assertEquals(1, calls[0]);
+        assertTrue(mPersister.isChecked(1));
+    }
+
+    public void testFlushAndPreloadAfterCloseDoNothing() {
+        mStorage.mRead.countDown();
+        // owns its executor, close() shuts it down
+        CheckBoxTextPersister persister = new CheckBoxTextPersister(mStorage, KEY);
+        persister.close();
+
+        persister.flush();
+        persister.preload();
+        assertFalse(persister.isLoaded());
+    }
+
+    public void testFileKeysStayInTheDirectory() throws IOException {
+        final File parent = new File(getInstrumentation().getTargetContext().getCacheDir(), "persister_test");
+        final File directory = new File(parent, "boxes");
+        final FileCheckBoxTextStorage storage = new FileCheckBoxTextStorage(directory);
+        final String[] keys = {"../escape", "a/b", "Key", "key", "", "\u00e9t\u00e9"};
+        try {
+            for (int i = 0; i < keys.length; i++) {
+                storage.write(keys[i], new long[]{i});
+            }
+            for (int i = 0; i < keys.length; i++) {
+                assertTrue(keys[i], Arrays.equals(new long[]{i}, storage.read(keys[i])));
+            }
+            final String[] names = directory.list();
+            assertEquals(keys.length, names.length);
+            for (String name : names) {
+                assertTrue(name, name.matches("[0-9a-f]*\\.bits"));
+            }
+            assertFalse(new File(parent, "escape.bits").exists());
+        } finally {
+            for (String key : keys) {
+                new File(directory, FileCheckBoxTextStorage.getFileName(key)).delete();
+            }
+            directory.delete();
+            parent.delete();
+        }
+    }
+
+    /**
+     * Lets the storage be read and waits for the views to be bound again on the UI thread
+     */
+    private void awaitRead() throws InterruptedException {
+        mStorage.mRead.countDown();
+        final long deadline = SystemClock.uptimeMillis() + BlockingStorage.TIMEOUT_MS;
+        while (!mPersister.isLoaded() && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(mPersister.isLoaded());
+        getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * Reads only once the test lets it
+     */
+    private static final class BlockingStorage extends MemoryCheckBoxTextStorage {
+
+        static final long TIMEOUT_MS = 5000;
+
+        final CountDownLatch mRead = new CountDownLatch(1);
+
+        @Override
+        public long[] read(String key) {
+            try {
+                mRead.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.read(key);
+        }
+    }
+}
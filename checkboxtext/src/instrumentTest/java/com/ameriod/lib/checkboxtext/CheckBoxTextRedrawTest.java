@@ -0,0 +1,171 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.test.InstrumentationTestCase;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.WindowManager;
+import android.widget.FrameLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In minimal redraw mode a toggle requests no layout and only invalidates the glyph. The views are
+ * put in a window of their own, invalidates don't reach the parents of a detached view.
+ */
+public class CheckBoxTextRedrawTest extends InstrumentationTestCase {
+
+    private static final int TOGGLES = 10;
+    /**
+     * Makes the CheckBox bigger than the glyph
+     */
+    private static final int CHECK_BOX_PADDING = 40;
+
+    private WindowManager mWindowManager;
+    private LayoutRequestCounter mParent;
+    private InvalidateCounter mView;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final Context context = getInstrumentation().getTargetContext();
+        mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mView = new InvalidateCounter(context);
+                mView.setText("Label");
+                mView.setPaddingCheckBox(CHECK_BOX_PADDING, CHECK_BOX_PADDING, CHECK_BOX_PADDING, CHECK_BOX_PADDING);
+                mParent = new LayoutRequestCounter(context);
+                mParent.addView(mView);
+                WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                        ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT,
+                        WindowManager.LayoutParams.TYPE_TOAST,
+                        WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE | WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE,
+                        PixelFormat.TRANSLUCENT);
+                mWindowManager.addView(mParent, params);
+            }
+        });
+        // laid out and drawn once, so the glyph has its bounds
+        getInstrumentation().waitForIdleSync();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mWindowManager.removeView(mParent);
+            }
+        });
+        super.tearDown();
+    }
+
+    public void testMinimalRedrawToggleRequestsNoLayout() {
+        toggle(true);
+
+        assertEquals(0, mParent.requests);
+    }
+
+    public void testMinimalRedrawToggleOnlyInvalidatesTheGlyph() {
+        toggle(true);
+
+        final View checkBox = mView.getChildAt(0);
+        // the drawable invalidates itself and the CheckBox invalidates it once more
+        assertTrue(mView.dirty.size() >= TOGGLES);
+        assertTrue(mView.dirty.size() <= 2 * TOGGLES);
+        for (Rect dirty : mView.dirty) {
+            assertTrue(dirty.toShortString(), dirty.width() < checkBox.getWidth());
+            assertTrue(dirty.toShortString(), dirty.height() < checkBox.getHeight());
+        }
+    }
+
+    public void testToggleInvalidatesTheCheckBox() {
+        toggle(false);
+
+        final View checkBox = mView.getChildAt(0);
+        boolean whole = false;
+        for (Rect dirty : mView.dirty) {
+            whole |= dirty.width() == checkBox.getWidth() && dirty.height() == checkBox.getHeight();
+        }
+        assertTrue(whole);
+    }
+
+    private void toggle(final boolean minimalRedraw) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mView.setMinimalRedraw(minimalRedraw);
+                mParent.requests = 0;
+                mView.counting = true;
+                for (int i = 0; i < TOGGLES; i++) {
+                    mView.toggle();
+                }
+                mView.counting = false;
+            }
+        });
+    }
+
+    /**
+     * Records the rects its children invalidate, in the child's coordinates
+     */
+    private static final class InvalidateCounter extends CheckBoxText {
+
+        final List<Rect> dirty = new ArrayList<Rect>();
+        boolean counting;
+
+        InvalidateCounter(Context context) {
+            super(context, CheckBoxText.TEXT_RIGHT);
+        }
+
+        @Override
+        public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+            if (counting) {
+                this.dirty.add(new Rect(dirty));
+            }
+            return super.invalidateChildInParent(location, dirty);
+        }
+    }
+
+    /**
+     * Counts every layout request of its children, never lays out again after the first pass
+     */
+    private static final class LayoutRequestCounter extends FrameLayout {
+
+        int requests;
+
+        LayoutRequestCounter(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean isLayoutRequested() {
+            return false;
+        }
+
+        @Override
+        public void requestLayout() {
+            requests++;
+        }
+    }
+}
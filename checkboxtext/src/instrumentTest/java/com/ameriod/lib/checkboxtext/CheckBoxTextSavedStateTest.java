@@ -0,0 +1,143 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.test.AndroidTestCase;
+import android.util.SparseArray;
+import android.widget.LinearLayout;
+
+/**
+ * A CheckBoxText saves one small parcelable and its children nothing, and the states of a large
+ * form survive a trip through a Parcel, saved per view or as one CheckBoxTextGroupState
+ */
+public class CheckBoxTextSavedStateTest extends AndroidTestCase {
+
+    private static final int WIDGETS = 1000;
+
+    public void testOnlyTheViewSavesItsState() {
+        CheckBoxText view = new CheckBoxText(getContext());
+        view.setId(1);
+        view.setText("Label");
+        view.setChecked(true);
+        SparseArray<Parcelable> container = new SparseArray<Parcelable>();
+        view.saveHierarchyState(container);
+
+        assertEquals(1, container.size());
+        assertTrue(container.get(1) instanceof CheckBoxTextSavedState);
+    }
+
+    public void testSavedStateSize() {
+        CheckBoxText view = new CheckBoxText(getContext());
+        view.setChecked(true);
+        final int size = sizeOf(view.onSaveInstanceState());
+        // the empty View state and the flags
+        assertTrue("size: " + size, size <= 128);
+
+        view.setText("Label");
+        // and the text
+        assertTrue(sizeOf(view.onSaveInstanceState()) > size);
+    }
+
+    public void testRoundTripThousandWidgets() {
+        LinearLayout form = newForm();
+        for (int i = 0; i < WIDGETS; i++) {
+            CheckBoxText view = (CheckBoxText) form.getChildAt(i);
+            view.setChecked(i % 3 == 0);
+            if (i % 7 == 0) {
+                view.setText("Changed " + i);
+            }
+        }
+        SparseArray<Parcelable> saved = new SparseArray<Parcelable>();
+        form.saveHierarchyState(saved);
+        assertEquals(WIDGETS, saved.size());
+
+        Parcel parcel = Parcel.obtain();
+        SparseArray<Parcelable> restored = new SparseArray<Parcelable>();
+        try {
+            parcel.writeInt(saved.size());
+            for (int i = 0; i < saved.size(); i++) {
+                parcel.writeInt(saved.keyAt(i));
+                parcel.writeParcelable(saved.valueAt(i), 0);
+            }
+            parcel.setDataPosition(0);
+            for (int i = parcel.readInt(); i > 0; i--) {
+                final int key = parcel.readInt();
+                restored.put(key, parcel.readParcelable(CheckBoxText.class.getClassLoader()));
+            }
+        } finally {
+            parcel.recycle();
+        }
+
+        LinearLayout restoredForm = newForm();
+        restoredForm.restoreHierarchyState(restored);
+        for (int i = 0; i < WIDGETS; i++) {
+            CheckBoxText view = (CheckBoxText) restoredForm.getChildAt(i);
+            assertEquals("widget " + i, i % 3 == 0, view.isChecked());
+            assertEquals("widget " + i, i % 7 == 0 ? "Changed " + i : "", view.getText().toString());
+        }
+    }
+
+    public void testGroupStateRoundTripThousandWidgets() {
+        LinearLayout form = newForm();
+        for (int i = 0; i < WIDGETS; i++) {
+            ((CheckBoxText) form.getChildAt(i)).setChecked(i % 3 == 0);
+        }
+        CheckBoxTextGroupState state = CheckBoxTextGroupState.save(form, true);
+        assertFalse(form.getChildAt(0).isSaveEnabled());
+
+        Parcel parcel = Parcel.obtain();
+        final CheckBoxTextGroupState restored;
+        try {
+            state.writeToParcel(parcel, 0);
+            // the count, the array length and one long per 64 boxes
+            assertEquals(4 + 4 + ((WIDGETS + 63) / 64) * 8, parcel.dataSize());
+            parcel.setDataPosition(0);
+            restored = CheckBoxTextGroupState.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+
+        LinearLayout restoredForm = newForm();
+        CheckBoxTextGroupState.restore(restoredForm, restored);
+        assertEquals(WIDGETS, restored.getCount());
+        for (int i = 0; i < WIDGETS; i++) {
+            assertEquals("widget " + i, i % 3 == 0, ((CheckBoxText) restoredForm.getChildAt(i)).isChecked());
+        }
+    }
+
+    private LinearLayout newForm() {
+        LinearLayout form = new LinearLayout(getContext());
+        for (int i = 0; i < WIDGETS; i++) {
+            CheckBoxText view = new CheckBoxText(getContext());
+            view.setId(i + 1);
+            form.addView(view);
+        }
+        return form;
+    }
+
+    private static int sizeOf(Parcelable state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.res.XmlResourceParser;
+import android.test.AndroidTestCase;
+import android.util.AttributeSet;
+import android.util.Xml;
+import android.view.ContextThemeWrapper;
+
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * The padding and margin fallbacks of {@link CheckBoxTextStyle.Spacing} for every orientation, and
+ * where the style comes from: the view's style="", the theme's checkBoxTextStyle or
+ * Widget.CheckBoxText. Each case is checked with the cache on and off.
+ */
+public class CheckBoxTextStyleTest extends AndroidTestCase {
+
+    private static final int[] ORIENTATIONS = {
+            CheckBoxText.TEXT_RIGHT, CheckBoxText.TEXT_LEFT, CheckBoxText.TEXT_ABOVE, CheckBoxText.TEXT_BELOW
+    };
+
+    @Override
+    protected void tearDown() throws Exception {
+        CheckBoxTextStyle.setCacheEnabled(true);
+        super.tearDown();
+    }
+
+    public void testSideFallsBackToAllSides() {
+        for (boolean cached : new boolean[]{true, false}) {
+            CheckBoxTextStyle.setCacheEnabled(cached);
+            CheckBoxTextStyle style = obtain(com.ameriod.lib.checkboxtext.test.R.style.CheckBoxTextTest_SidesTheme, null);
+            for (int orientation : ORIENTATIONS) {
+                CheckBoxTextStyle.Spacing spacing = style.getSpacing(orientation);
+                assertSides(7, 3, 3, 3, spacing.checkBoxPaddingLeft, spacing.checkBoxPaddingTop,
+                        spacing.checkBoxPaddingRight, spacing.checkBoxPaddingBottom);
+                assertSides(5, 5, 5, 11, spacing.textPaddingLeft, spacing.textPaddingTop,
+                        spacing.textPaddingRight, spacing.textPaddingBottom);
+                assertSides(2, 13, 2, 2, spacing.checkBoxMarginLeft, spacing.checkBoxMarginTop,
+                        spacing.checkBoxMarginRight, spacing.checkBoxMarginBottom);
+                assertSides(4, 4, 17, 4, spacing.textMarginLeft, spacing.textMarginTop,
+                        spacing.textMarginRight, spacing.textMarginBottom);
+            }
+        }
+    }
+
+    public void testDefaultMarginOnlyOnTheOrientationsSide() {
+        for (boolean cached : new boolean[]{true, false}) {
+            CheckBoxTextStyle.setCacheEnabled(cached);
+            CheckBoxTextStyle style = obtain(android.R.style.Theme, null);
+            for (int orientation : ORIENTATIONS) {
+                CheckBoxTextStyle.Spacing spacing = style.getSpacing(orientation);
+                assertEquals(orientation == CheckBoxText.TEXT_BELOW ? style.defaultMarginBelow : 0,
+                        spacing.checkBoxMarginBottom);
+                assertEquals(orientation == CheckBoxText.TEXT_RIGHT ? style.defaultMarginRight
+                        : orientation == CheckBoxText.TEXT_LEFT ? style.defaultMarginLeft : 0,
+                        spacing.textMarginRight);
+                assertEquals(orientation == CheckBoxText.TEXT_ABOVE ? style.defaultMarginAbove : 0,
+                        spacing.textMarginBottom);
+                assertSides(0, 0, 0, 0, spacing.textMarginLeft, spacing.textMarginTop,
+                        spacing.checkBoxMarginLeft, spacing.checkBoxMarginTop);
+            }
+            // anything else is TEXT_RIGHT
+            assertSame(style.getSpacing(CheckBoxText.TEXT_RIGHT), style.getSpacing(-1));
+            assertSame(style.getSpacing(CheckBoxText.TEXT_RIGHT), style.getSpacing(4));
+        }
+    }
+
+    public void testDefaultStyleWithoutThemeAttribute() {
+        for (boolean cached : new boolean[]{true, false}) {
+            CheckBoxTextStyle.setCacheEnabled(cached);
+            CheckBoxTextStyle style = obtain(android.R.style.Theme, null);
+            assertEquals(CheckBoxText.TEXT_RIGHT, style.orientation);
+            assertEquals(android.R.style.TextAppearance_Small, style.textAppearanceResId);
+            assertEquals(0, style.textPadding);
+        }
+    }
+
+    public void testThemeAttributeStyle() {
+        for (boolean cached : new boolean[]{true, false}) {
+            CheckBoxTextStyle.setCacheEnabled(cached);
+            CheckBoxTextStyle style = obtain(com.ameriod.lib.checkboxtext.test.R.style.CheckBoxTextTest_Theme, null);
+            assertEquals(CheckBoxText.TEXT_BELOW, style.orientation);
+            // from its parent Widget.CheckBoxText
+            assertEquals(android.R.style.TextAppearance_Small, style.textAppearanceResId);
+            CheckBoxTextStyle.Spacing spacing = style.getSpacing(style.orientation);
+            assertSides(9, 9, 9, 9, spacing.textPaddingLeft, spacing.textPaddingTop,
+                    spacing.textPaddingRight, spacing.textPaddingBottom);
+        }
+    }
+
+    public void testStyleAttributeOverThemeAttribute() throws Exception {
+        for (boolean cached : new boolean[]{true, false}) {
+            CheckBoxTextStyle.setCacheEnabled(cached);
+            XmlResourceParser parser = getContext().getResources()
+                    .getLayout(com.ameriod.lib.checkboxtext.test.R.layout.check_box_text_style);
+            try {
+                while (parser.next() != XmlPullParser.START_TAG) {
+                    // skip to the CheckBoxText
+                }
+                AttributeSet attrs = Xml.asAttributeSet(parser);
+                CheckBoxTextStyle style = obtain(com.ameriod.lib.checkboxtext.test.R.style.CheckBoxTextTest_Theme, attrs);
+
+                // not in the style="", from the theme's style
+                final int orientation = style.getOrientation(attrs);
+                assertEquals(CheckBoxText.TEXT_BELOW, orientation);
+                // set by both, the style="" wins
+                CheckBoxTextStyle.Spacing spacing = style.getSpacing(orientation);
+                assertSides(5, 5, 5, 11, spacing.textPaddingLeft, spacing.textPaddingTop,
+                        spacing.textPaddingRight, spacing.textPaddingBottom);
+                assertSides(7, 3, 3, 3, spacing.checkBoxPaddingLeft, spacing.checkBoxPaddingTop,
+                        spacing.checkBoxPaddingRight, spacing.checkBoxPaddingBottom);
+                assertEquals("Label", style.getText(getContext(), attrs).toString());
+            } finally {
+                parser.close();
+            }
+        }
+    }
+
+    private CheckBoxTextStyle obtain(int theme, AttributeSet attrs) {
+        return CheckBoxTextStyle.obtain(new ContextThemeWrapper(getContext(), theme), attrs, R.attr.checkBoxTextStyle);
+    }
+
+    private static void assertSides(int left, int top, int right, int bottom,
+                                    int actualLeft, int actualTop, int actualRight, int actualBottom) {
+        assertEquals("left", left, actualLeft);
+        assertEquals("top", top, actualTop);
+        assertEquals("right", right, actualRight);
+        assertEquals("bottom", bottom, actualBottom);
+    }
+}
@@ -19,18 +19,35 @@ package com.ameriod.lib.checkboxtext;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
+import android.os.Parcelable;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.TypedValue;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.TouchDelegate;
 import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
 import android.widget.CheckBox;
 import android.widget.Checkable;
 import android.widget.CompoundButton;
-import android.widget.RelativeLayout;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 /**
  * CheckBoxText is a simple view that will allow the text of the CheckBox to be set to the
  * right, left, above or below the CheckBox (there really is not any use for the left or right
@@ -38,8 +55,9 @@ import android.widget.TextView;
  * <p/>
  * CheckBoxText view implements Checkable and uses the CompoundButton.OnCheckedChangeListener just
  * like the real CheckBox view. However, within the OnCheckChangeListener the compoundButton.getText()
- * will return an empty string. I have forwarded the actual text showing by the CheckBoxText into the
- * tag of the compoundButton (this is automatically done).
+ * will return an empty string. Use {@link #from(CompoundButton)} to get the CheckBoxText and its
+ * {@link #getLabel()} or {@link #getLabelResId()}, neither allocates. The text used to be forwarded
+ * into the tag of the compoundButton, {@link #setTagWithText(boolean)} turns that back on.
  * <p/>
  * Some of the CheckBox (setting of the background and isChecked)and TextView (setting the text and
  * the TextAppearance) xml attributes are forwarded when setting the view from xml, there are
@@ -78,47 +96,143 @@ import android.widget.TextView;
  * margins may need to be adjusted. Also using custom checkbox drawables could mess up the TextView
  * and CheckBox placement.
  * <p/>
+ * To change many things at once (e.g. from a server driven config) build a {@link CheckBoxTextSpec}
+ * and {@link #apply(CheckBoxTextSpec)} it, only what changed is touched with one layout request.
+ * <p/>
+ * The default style comes from the theme's checkBoxTextStyle attribute (Widget.CheckBoxText if it
+ * is not set), see {@link CheckBoxTextStyle}.
+ * <p/>
+ * CheckBoxText lays out the CheckBox and the TextView itself instead of using a RelativeLayout, each
+ * child is measured exactly once per measure pass. The CheckBox is measured first and the TextView
+ * gets whatever space is left over.
+ * <p/>
+ * The TextView is only created once there is text to show, so a CheckBoxText without a label
+ * (or whose label is set later) is just the CheckBox. The text styling set before then
+ * (TextAppearance, typeface, size, color and padding) is kept and applied when the TextView is
+ * created, the TextAppearance first and then the other setters.
+ * <p/>
+ * For long lists {@link #setMinimalRedraw(boolean)} confines the redraw of a check change to the
+ * check glyph and never requests a layout for it, {@link #setToggleLayerDuration(int)} also puts the
+ * view on a hardware layer while the check drawable animates.
+ * <p/>
+ * With {@link #setSingleTouchTarget(boolean)} the CheckBoxText is the only touch target: the
+ * children are not clickable, every touch goes straight to the CheckBoxText which sets the pressed
+ * state once (passed on to the children) and toggles. {@link #setMinTouchTargetSize(int)} grows the
+ * touch area of a small CheckBoxText through a TouchDelegate on its parent.
+ * <p/>
  */
-public class CheckBoxText extends RelativeLayout implements Checkable, View.OnClickListener {
+public class CheckBoxText extends ViewGroup implements Checkable, View.OnClickListener,
+        CompoundButton.OnCheckedChangeListener {
 
-    private CheckBox mCheckBox;
+    private InnerCheckBox mCheckBox;
     private TextView mTextView;
+    private CheckBoxTextStyle mStyle;
 
     private int mTextAppearanceResId;
     private int mTextOrientation;
     private String mText;
+    /**
+     * The string resource of the text, 0 if the text was not set from a resource
+     */
+    private int mLabelResId;
+    /**
+     * See {@link #setTagWithText(boolean)}
+     */
+    private boolean mTagWithText;
     private Drawable mCheckBoxBackground;
 
-    private int mCheckBoxPadding;
-    private int mCheckBoxPaddingLeft;
-    private int mCheckBoxPaddingRight;
-    private int mCheckBoxPaddingTop;
-    private int mCheckBoxPaddingBottom;
-
-    private int mTextPadding;
-    private int mTextPaddingLeft;
-    private int mTextPaddingRight;
-    private int mTextPaddingTop;
-    private int mTextPaddingBottom;
-
-    private int mCheckBoxMargin;
-    private int mCheckBoxMarginLeft;
-    private int mCheckBoxMarginRight;
-    private int mCheckBoxMarginTop;
-    private int mCheckBoxMarginBottom;
-
-    private int mTextMargin;
     private int mTextMarginLeft;
     private int mTextMarginRight;
     private int mTextMarginTop;
     private int mTextMarginBottom;
 
     private boolean mIsChecked;
+    /**
+     * See {@link #setIndeterminate(boolean)}
+     */
+    private boolean mIndeterminate;
+
+    /**
+     * Text styling set before the TextView is created, see {@link #ensureTextView()}
+     */
+    private Typeface mPendingTypeface;
+    private int mPendingTypefaceStyle = NO_TYPEFACE_STYLE;
+    private boolean mHasPendingTypeface;
+    private int mPendingTextSizeUnit;
+    private float mPendingTextSize;
+    private boolean mHasPendingTextSize;
+    private ColorStateList mPendingTextColors;
+    private int mPendingTextPaddingLeft;
+    private int mPendingTextPaddingTop;
+    private int mPendingTextPaddingRight;
+    private int mPendingTextPaddingBottom;
+
+    /**
+     * The id of the item bound with {@link #bind(CharSequence, boolean, long)}
+     */
+    private long mStableId = NO_STABLE_ID;
+    /**
+     * True while binding, the OnCheckedChangeListener is not called then
+     */
+    private boolean mBinding;
+    /**
+     * When the click being handled started, for {@link CheckBoxTextMetrics}
+     */
+    private long mClickStart;
+
+    /**
+     * See {@link #setMinimalRedraw(boolean)}
+     */
+    private boolean mMinimalRedraw;
+    /**
+     * True while the checked state changes in minimal redraw mode, layout requests are dropped then
+     */
+    private boolean mSuppressLayout;
+    private final ToggleLayer mToggleLayer = new ToggleLayer(this);
+
+    /**
+     * See {@link #setSingleTouchTarget(boolean)}
+     */
+    private boolean mSingleTouchTarget;
+    /**
+     * See {@link #setMinTouchTargetSize(int)}
+     */
+    private int mMinTouchTargetSize;
+    /**
+     * The touch area given to the parent's TouchDelegate, empty when there is none
+     */
+    private final Rect mTouchTargetRect = new Rect();
+
+    /**
+     * The last spec given to {@link #apply(CheckBoxTextSpec)}
+     */
+    private CheckBoxTextSpec mAppliedSpec;
+    /**
+     * True while a spec is applied, layout requests and invalidates are held back until it is done
+     */
+    private boolean mApplyingSpec;
+    private boolean mLayoutRequestedWhileApplying;
+    private boolean mInvalidatedWhileApplying;
+
+    /**
+     * See {@link #setPrecomputedLayout(CheckBoxTextLayoutEngine.RowLayout)}
+     */
+    private CheckBoxTextLayoutEngine.RowLayout mPrecomputedLayout;
+    /**
+     * True when the last onMeasure took the size from the precomputed layout, the children were not
+     * measured then
+     */
+    private boolean mMeasuredFromPrecomputed;
 
     /**
      * Listener to forward CompoundButton onCheckChangeListener stuff to the actual CheckBox
      */
     private CompoundButton.OnCheckedChangeListener mOnCheckedChangeListener;
+    /**
+     * The listeners added with {@link #addOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener)},
+     * null until there is one
+     */
+    private ArrayList<CompoundButton.OnCheckedChangeListener> mOnCheckedChangeListeners;
     /**
      * Orients the text to the right of the checkbox
      */
@@ -136,6 +250,25 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      */
     public static final int TEXT_BELOW = 3;
 
+    /**
+     * The stable id before anything is bound
+     */
+    public static final long NO_STABLE_ID = -1;
+
+    /**
+     * The drawable state of an indeterminate check, R.attr.state_indeterminate
+     */
+    static final int[] INDETERMINATE_STATE_SET = {R.attr.state_indeterminate};
+
+    /**
+     * Marks a pending setTypeface(Typeface) without a style
+     */
+    private static final int NO_TYPEFACE_STYLE = -1;
+    /**
+     * The text size of a TextView whose text appearance does not set one
+     */
+    private static final float DEFAULT_TEXT_SIZE_PX = 15;
+
     /**
      * For debugging
      */
@@ -156,9 +289,12 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param context
      */
     public CheckBoxText(Context context, int orientation) {
-        super(context);
+        super(context, null, R.attr.checkBoxTextStyle);
+        final long start = CheckBoxTextMetrics.start();
+        setStyle(CheckBoxTextStyle.obtain(context, null, R.attr.checkBoxTextStyle));
         mTextOrientation = orientation;
         build();
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
     }
 
     /**
@@ -168,66 +304,56 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param context
      */
     public CheckBoxText(Context context) {
-        super(context);
+        super(context, null, R.attr.checkBoxTextStyle);
+        final long start = CheckBoxTextMetrics.start();
+        setStyle(CheckBoxTextStyle.obtain(context, null, R.attr.checkBoxTextStyle));
         build();
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
     }
 
     public CheckBoxText(Context context, AttributeSet attrs) {
-        super(context, attrs);
-        setAttrs(context, attrs);
+        super(context, attrs, R.attr.checkBoxTextStyle);
+        final long start = CheckBoxTextMetrics.start();
+        setAttrs(context, attrs, R.attr.checkBoxTextStyle);
         build();
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
     }
 
     public CheckBoxText(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        setAttrs(context, attrs);
+        final long start = CheckBoxTextMetrics.start();
+        setAttrs(context, attrs, defStyle);
         build();
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
     }
 
-    private void setAttrs(Context context, AttributeSet attrs) {
-        TypedArray a = context.getTheme().obtainStyledAttributes(attrs, R.styleable.CheckBoxText, 0, 0);
-
-        try {
-            // The orientation of the text around the CheckBox
-            mTextOrientation = a.getInt(R.styleable.CheckBoxText_orientation, TEXT_RIGHT);
-
-            // TextView styling
-            mTextAppearanceResId = a.getResourceId(R.styleable.CheckBoxText_textAppearance, android.R.style.TextAppearance_Small);
-            // The actual text set in the TextView
-            mText = a.getString(R.styleable.CheckBoxText_text);
-
-            // CheckBox background
-            mCheckBoxBackground = a.getDrawable(R.styleable.CheckBoxText_checkboxBackground);
-            // boolean for the checking of the CheckBox
-            mIsChecked = a.getBoolean(R.styleable.CheckBoxText_isChecked, false);
-
-            // Internal padding
-            mCheckBoxPadding = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_padding, 0);
-            mCheckBoxPaddingLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingLeft, 0);
-            mCheckBoxPaddingRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingRight, 0);
-            mCheckBoxPaddingBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingTop, 0);
-            mCheckBoxPaddingBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingBottom, 0);
-            mTextPadding = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_padding, 0);
-            mTextPaddingLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingLeft, 0);
-            mTextPaddingRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingRight, 0);
-            mTextPaddingBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingTop, 0);
-            mTextPaddingBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingBottom, 0);
-
-            // Internal margins
-            mCheckBoxMargin = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_margin, 0);
-            mCheckBoxMarginLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginLeft, 0);
-            mCheckBoxMarginRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginRight, 0);
-            mCheckBoxMarginBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginTop, 0);
-            mCheckBoxMarginBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginBottom, 0);
-            mTextMargin = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_margin, 0);
-            mTextMarginLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginLeft, 0);
-            mTextMarginRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginRight, 0);
-            mTextMarginBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginTop, 0);
-            mTextMarginBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginBottom, 0);
-        } finally {
-            a.recycle();
-        }
+    /**
+     * Reads the xml attributes, the styled attributes are shared with every other CheckBoxText
+     * using the same style {@link CheckBoxTextStyle}
+     */
+    private void setAttrs(Context context, AttributeSet attrs, int defStyle) {
+        final long start = CheckBoxTextMetrics.start();
+        CheckBoxTextStyle style = CheckBoxTextStyle.obtain(context, attrs, defStyle);
+        setStyle(style);
+        // the orientation and TextAppearance set on the view itself
+        mTextOrientation = style.getOrientation(attrs);
+        mTextAppearanceResId = style.getTextAppearanceResId(attrs);
+        // The actual text set in the TextView
+        CharSequence text = style.getText(context, attrs);
+        mText = text != null ? text.toString() : null;
+        // boolean for the checking of the CheckBox
+        mIsChecked = style.isChecked(attrs);
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.SET_ATTRS, mTextOrientation, start);
+    }
 
+    private void setStyle(CheckBoxTextStyle style) {
+        mStyle = style;
+        // The orientation of the text around the CheckBox
+        mTextOrientation = style.orientation;
+        // TextView styling
+        mTextAppearanceResId = style.textAppearanceResId;
+        // CheckBox background
+        mCheckBoxBackground = style.newCheckBoxBackground(getResources());
     }
 
     /**
@@ -235,58 +361,35 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * view attributes on them. Sets the onClickListeners so any click on the view will be forwarded on to the CheckBox.
      */
     private void build() {
-        mCheckBox = new CheckBox(getContext());
-        mCheckBox.setId(1);
-        mTextView = new TextView(getContext());
-        mTextView.setId(2);
+        final long start = CheckBoxTextMetrics.start();
+        mCheckBox = new InnerCheckBox(this);
+        // the CheckBoxText saves its state, see onSaveInstanceState
+        mCheckBox.setSaveEnabled(false);
         // set the layout params programmatically due to setting the margins in the xml attributes
         this.addView(mCheckBox);
-        this.addView(mTextView);
 
-        RelativeLayout.LayoutParams paramsCheckBox = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-        RelativeLayout.LayoutParams paramsText = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        // the padding and margins resolved for the orientation, shared by every view with the style
+        final CheckBoxTextStyle.Spacing spacing = mStyle.getSpacing(mTextOrientation);
+        setPaddingCheckBox(spacing.checkBoxPaddingLeft, spacing.checkBoxPaddingTop,
+                spacing.checkBoxPaddingRight, spacing.checkBoxPaddingBottom);
+        setPaddingText(spacing.textPaddingLeft, spacing.textPaddingTop,
+                spacing.textPaddingRight, spacing.textPaddingBottom);
 
-        // need to check if the margins were set in xml or  if not then set to default
-        if (mTextOrientation == TEXT_BELOW) {
-            if (mCheckBoxMarginBottom == 0) {
-                mCheckBoxMarginBottom = getResources().getDimensionPixelSize(R.dimen.checkbox_text_margin_vertical_below);
-            }
-            paramsCheckBox.addRule(RelativeLayout.CENTER_HORIZONTAL);
-            paramsText.addRule(RelativeLayout.CENTER_HORIZONTAL);
-            paramsText.addRule(RelativeLayout.BELOW, mCheckBox.getId());
-        } else if (mTextOrientation == TEXT_LEFT) {
-            if (mTextMarginLeft == 0) {
-                mTextMarginRight = getResources().getDimensionPixelSize(R.dimen.checkbox_text_margin_horizontal_left);
-            }
-            paramsCheckBox.addRule(RelativeLayout.RIGHT_OF, mTextView.getId());
-            paramsCheckBox.addRule(RelativeLayout.CENTER_VERTICAL);
-            paramsText.addRule(RelativeLayout.CENTER_VERTICAL);
-            paramsText.addRule(RelativeLayout.ALIGN_PARENT_LEFT);
-        } else if (mTextOrientation == TEXT_ABOVE) {
-            if (mTextMarginBottom == 0) {
-                mTextMarginBottom = getResources().getDimensionPixelSize(R.dimen.checkbox_text_margin_vertical_above);
-            }
-            paramsCheckBox.addRule(RelativeLayout.CENTER_HORIZONTAL);
-            paramsText.addRule(RelativeLayout.CENTER_HORIZONTAL);
-            paramsCheckBox.addRule(RelativeLayout.BELOW, mTextView.getId());
-        } else {
-            // default to right orientation
-            if (mTextMarginRight == 0) {
-                mTextMarginRight = getResources().getDimensionPixelSize(R.dimen.checkbox_text_margin_horizontal_right);
-            }
-            paramsCheckBox.addRule(RelativeLayout.CENTER_VERTICAL);
-            paramsText.addRule(RelativeLayout.CENTER_VERTICAL);
-            paramsText.addRule(RelativeLayout.RIGHT_OF, mCheckBox.getId());
-        }
+        MarginLayoutParams paramsCheckBox = new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        paramsCheckBox.setMargins(spacing.checkBoxMarginLeft, spacing.checkBoxMarginTop,
+                spacing.checkBoxMarginRight, spacing.checkBoxMarginBottom);
+        mCheckBox.setLayoutParams(paramsCheckBox);
 
-        // set the margins
-        paramsText.setMargins(mTextMarginLeft, mTextMarginTop, mTextMarginRight, mTextMarginBottom);
-        paramsCheckBox.setMargins(mCheckBoxMarginLeft, mCheckBoxMarginTop, mCheckBoxMarginRight, mCheckBoxMarginBottom);
+        mTextMarginLeft = spacing.textMarginLeft;
+        mTextMarginTop = spacing.textMarginTop;
+        mTextMarginRight = spacing.textMarginRight;
+        mTextMarginBottom = spacing.textMarginBottom;
 
         // make everything clickable
         setOnClickListener(this);
         mCheckBox.setOnClickListener(this);
-        mTextView.setOnClickListener(this);
+        // forwards to the mOnCheckedChangeListener
+        mCheckBox.setOnCheckedChangeListener(this);
 
         // set the TextView's TextAppearance
         setTextAppearance(getContext(), mTextAppearanceResId);
@@ -301,81 +404,324 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
 
         setChecked(mIsChecked);
 
-        if (mCheckBoxMarginBottom == 0) {
-            mCheckBoxPaddingBottom = mCheckBoxPadding;
+        // set the checkbox text to blank
+        mCheckBox.setText("");
+        // stop error in viewing the layouts in xml
+        isInEditMode();
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.BUILD, mTextOrientation, start);
+    }
+
+    /**
+     * Creates the TextView the first time there is text to show and applies the styling set
+     * before then
+     *
+     * @return the TextView
+     */
+    private TextView ensureTextView() {
+        if (mTextView != null) {
+            return mTextView;
+        }
+        TextView textView = new TextView(getContext());
+        textView.setSaveEnabled(false);
+        if (!mSingleTouchTarget) {
+            textView.setOnClickListener(this);
         }
+        textView.setTextAppearance(getContext(), mTextAppearanceResId);
+        if (mHasPendingTypeface) {
+            if (mPendingTypefaceStyle == NO_TYPEFACE_STYLE) {
+                textView.setTypeface(mPendingTypeface);
+            } else {
+                textView.setTypeface(mPendingTypeface, mPendingTypefaceStyle);
+            }
+        }
+        if (mHasPendingTextSize) {
+            textView.setTextSize(mPendingTextSizeUnit, mPendingTextSize);
+        }
+        if (mPendingTextColors != null) {
+            textView.setTextColor(mPendingTextColors);
+        }
+        textView.setPadding(mPendingTextPaddingLeft, mPendingTextPaddingTop, mPendingTextPaddingRight, mPendingTextPaddingBottom);
+        mPendingTypeface = null;
+        mPendingTextColors = null;
+
+        MarginLayoutParams paramsText = new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        paramsText.setMargins(mTextMarginLeft, mTextMarginTop, mTextMarginRight, mTextMarginBottom);
+        addView(textView, paramsText);
+        mTextView = textView;
+        return textView;
+    }
 
-        if (mCheckBoxPaddingTop == 0) {
-            mCheckBoxPaddingTop = mCheckBoxPadding;
+    private boolean isHorizontal() {
+        return mTextOrientation != TEXT_ABOVE && mTextOrientation != TEXT_BELOW;
+    }
+
+    private static int getMeasuredWidthWithMargins(View child) {
+        if (child == null || child.getVisibility() == GONE) {
+            return 0;
         }
+        MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        return child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+    }
 
-        if (mCheckBoxPaddingRight == 0) {
-            mCheckBoxPaddingRight = mCheckBoxPadding;
+    private static int getMeasuredHeightWithMargins(View child) {
+        if (child == null || child.getVisibility() == GONE) {
+            return 0;
         }
+        MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        return child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+    }
 
-        if (mCheckBoxPaddingLeft == 0) {
-            mCheckBoxPaddingLeft = mCheckBoxPadding;
+    /**
+     * Measures the CheckBox and then the TextView in the space left over, each exactly once. With a
+     * precomputed layout that fits the size is taken from it and the children are not measured.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final long start = CheckBoxTextMetrics.start();
+        final CheckBoxTextLayoutEngine.RowLayout precomputed = mPrecomputedLayout;
+        mMeasuredFromPrecomputed = precomputed != null && fits(precomputed, widthMeasureSpec, heightMeasureSpec);
+        if (mMeasuredFromPrecomputed) {
+            setMeasuredDimension(precomputed.width, precomputed.height);
+        } else {
+            measureFromChildren(widthMeasureSpec, heightMeasureSpec);
         }
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.MEASURE, mTextOrientation, start);
+    }
 
-        setPaddingCheckBox(mCheckBoxPaddingBottom, mCheckBoxPaddingTop, mCheckBoxPaddingRight, mCheckBoxPaddingBottom);
+    /**
+     * @return true if the precomputed layout was made for this text, orientation and measure specs
+     */
+    private boolean fits(CheckBoxTextLayoutEngine.RowLayout layout, int widthMeasureSpec, int heightMeasureSpec) {
+        final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        return layout.orientation == mTextOrientation
+                && widthMode != MeasureSpec.UNSPECIFIED
+                && MeasureSpec.getSize(widthMeasureSpec) == layout.maxWidth
+                && layout.matchWidth == (widthMode == MeasureSpec.EXACTLY)
+                && resolveSize(layout.height, heightMeasureSpec) == layout.height
+                && mCheckBox.getVisibility() != GONE
+                && (mTextView == null || mTextView.getVisibility() != GONE)
+                && TextUtils.equals(layout.text, getText());
+    }
 
-        if (mTextPaddingBottom == 0) {
-            mTextPaddingBottom = mTextPadding;
+    /**
+     * The measuring of onMeasure without a precomputed layout
+     */
+    private void measureFromChildren(int widthMeasureSpec, int heightMeasureSpec) {
+        final boolean horizontal = isHorizontal();
+
+        int checkBoxWidth = 0;
+        int checkBoxHeight = 0;
+        if (mCheckBox.getVisibility() != GONE) {
+            measureChildWithMargins(mCheckBox, widthMeasureSpec, 0, heightMeasureSpec, 0);
+            checkBoxWidth = getMeasuredWidthWithMargins(mCheckBox);
+            checkBoxHeight = getMeasuredHeightWithMargins(mCheckBox);
         }
 
-        if (mTextPaddingTop == 0) {
-            mTextPaddingTop = mTextPadding;
+        int textWidth = 0;
+        int textHeight = 0;
+        if (mTextView != null && mTextView.getVisibility() != GONE) {
+            if (horizontal) {
+                measureChildWithMargins(mTextView, widthMeasureSpec, checkBoxWidth, heightMeasureSpec, 0);
+            } else {
+                measureChildWithMargins(mTextView, widthMeasureSpec, 0, heightMeasureSpec, checkBoxHeight);
+            }
+            textWidth = getMeasuredWidthWithMargins(mTextView);
+            textHeight = getMeasuredHeightWithMargins(mTextView);
         }
 
-        if (mTextPaddingRight == 0) {
-            mTextPaddingRight = mTextPadding;
+        int width;
+        int height;
+        if (horizontal) {
+            width = checkBoxWidth + textWidth;
+            height = Math.max(checkBoxHeight, textHeight);
+        } else {
+            width = Math.max(checkBoxWidth, textWidth);
+            height = checkBoxHeight + textHeight;
         }
+        width = Math.max(width + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth());
+        height = Math.max(height + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
 
-        if (mTextPaddingLeft == 0) {
-            mTextPaddingLeft = mTextPadding;
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    /**
+     * Places the children from their measured sizes, the same way the RelativeLayout rules did:
+     * centered vertically for left/right and centered horizontally for above/below.
+     */
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        final long start = CheckBoxTextMetrics.start();
+        if (mMeasuredFromPrecomputed) {
+            final CheckBoxTextLayoutEngine.RowLayout precomputed = mPrecomputedLayout;
+            if (precomputed != null && r - l == precomputed.width && b - t == precomputed.height) {
+                mCheckBox.layout(precomputed.checkBoxLeft, precomputed.checkBoxTop,
+                        precomputed.checkBoxRight, precomputed.checkBoxBottom);
+                if (mTextView != null) {
+                    mTextView.layout(precomputed.textLeft, precomputed.textTop,
+                            precomputed.textRight, precomputed.textBottom);
+                }
+                updateTouchDelegate(l, t, r, b);
+                CheckBoxTextMetrics.record(CheckBoxTextMetrics.LAYOUT, mTextOrientation, start);
+                return;
+            }
+            // given another size than measured, the children need their measured sizes after all
+            mMeasuredFromPrecomputed = false;
+            measureFromChildren(MeasureSpec.makeMeasureSpec(r - l, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(b - t, MeasureSpec.EXACTLY));
+        }
+        final int contentLeft = getPaddingLeft();
+        final int contentTop = getPaddingTop();
+        final int contentWidth = r - l - getPaddingLeft() - getPaddingRight();
+        final int contentHeight = b - t - getPaddingTop() - getPaddingBottom();
+
+        final int checkBoxWidth = getMeasuredWidthWithMargins(mCheckBox);
+        final int checkBoxHeight = getMeasuredHeightWithMargins(mCheckBox);
+        final int textWidth = getMeasuredWidthWithMargins(mTextView);
+        final int textHeight = getMeasuredHeightWithMargins(mTextView);
+
+        int checkBoxLeft;
+        int checkBoxTop;
+        int textLeft;
+        int textTop;
+        if (mTextOrientation == TEXT_LEFT) {
+            textLeft = contentLeft;
+            checkBoxLeft = contentLeft + textWidth;
+            textTop = contentTop + (contentHeight - textHeight) / 2;
+            checkBoxTop = contentTop + (contentHeight - checkBoxHeight) / 2;
+        } else if (mTextOrientation == TEXT_ABOVE) {
+            textTop = contentTop;
+            checkBoxTop = contentTop + textHeight;
+            textLeft = contentLeft + (contentWidth - textWidth) / 2;
+            checkBoxLeft = contentLeft + (contentWidth - checkBoxWidth) / 2;
+        } else if (mTextOrientation == TEXT_BELOW) {
+            checkBoxTop = contentTop;
+            textTop = contentTop + checkBoxHeight;
+            textLeft = contentLeft + (contentWidth - textWidth) / 2;
+            checkBoxLeft = contentLeft + (contentWidth - checkBoxWidth) / 2;
+        } else {
+            // default to right orientation
+            checkBoxLeft = contentLeft;
+            textLeft = contentLeft + checkBoxWidth;
+            textTop = contentTop + (contentHeight - textHeight) / 2;
+            checkBoxTop = contentTop + (contentHeight - checkBoxHeight) / 2;
         }
 
-        setPaddingText(mTextPaddingBottom, mTextPaddingTop, mTextPaddingRight, mTextMarginBottom);
+        layoutChild(mCheckBox, checkBoxLeft, checkBoxTop);
+        layoutChild(mTextView, textLeft, textTop);
+        updateTouchDelegate(l, t, r, b);
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.LAYOUT, mTextOrientation, start);
+    }
 
-        if (mCheckBoxMarginBottom == 0) {
-            mCheckBoxMarginBottom = mCheckBoxMargin;
+    /**
+     * Gives the parent a TouchDelegate for the bounds grown to the min touch target size, a new one
+     * only when those bounds change
+     */
+    private void updateTouchDelegate(int l, int t, int r, int b) {
+        final ViewParent parent = getParent();
+        if (mMinTouchTargetSize <= 0 || !(parent instanceof View)) {
+            return;
         }
-
-        if (mCheckBoxMarginTop == 0) {
-            mCheckBoxMarginTop = mCheckBoxMargin;
+        final int growX = Math.max(0, mMinTouchTargetSize - (r - l)) / 2;
+        final int growY = Math.max(0, mMinTouchTargetSize - (b - t)) / 2;
+        if (growX == 0 && growY == 0) {
+            clearTouchDelegate();
+            return;
         }
-
-        if (mCheckBoxMarginRight == 0) {
-            mCheckBoxMarginRight = mCheckBoxMargin;
+        final int left = l - growX;
+        final int top = t - growY;
+        final int right = r + growX;
+        final int bottom = b + growY;
+        if (mTouchTargetRect.left == left && mTouchTargetRect.top == top
+                && mTouchTargetRect.right == right && mTouchTargetRect.bottom == bottom) {
+            return;
         }
+        mTouchTargetRect.set(left, top, right, bottom);
+        ((View) parent).setTouchDelegate(new TouchDelegate(new Rect(mTouchTargetRect), this));
+    }
 
-        if (mCheckBoxMarginLeft == 0) {
-            mCheckBoxMarginLeft = mCheckBoxMargin;
+    private void clearTouchDelegate() {
+        if (mTouchTargetRect.isEmpty()) {
+            return;
+        }
+        mTouchTargetRect.setEmpty();
+        final ViewParent parent = getParent();
+        if (parent instanceof View) {
+            ((View) parent).setTouchDelegate(null);
         }
+    }
 
-        mCheckBox.setLayoutParams(paramsCheckBox);
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        final long start = CheckBoxTextMetrics.start();
+        super.dispatchDraw(canvas);
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.DRAW, mTextOrientation, start);
+    }
 
-        if (mTextMarginBottom == 0) {
-            mTextMarginBottom = mTextMargin;
+    private static void layoutChild(View child, int left, int top) {
+        if (child == null || child.getVisibility() == GONE) {
+            return;
         }
-        if (mTextMarginTop == 0) {
-            mTextMarginTop = mTextMargin;
-        }
-        if (mTextMarginRight == 0) {
-            mTextMarginRight = mTextMargin;
+        MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+        left += lp.leftMargin;
+        top += lp.topMargin;
+        child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof MarginLayoutParams;
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateDefaultLayoutParams() {
+        return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public ViewGroup.LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new MarginLayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new MarginLayoutParams(p);
+    }
+
+    /**
+     * Saves the checked state and the text if it changed from the xml text in one small parcelable
+     * instead of letting the CheckBox and TextView save their whole state
+     */
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        Parcelable superState = super.onSaveInstanceState();
+        CharSequence text = getText();
+        boolean textChanged = !TextUtils.equals(text, mText == null ? "" : mText);
+        return new CheckBoxTextSavedState(superState, isChecked(), textChanged ? text : null);
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof CheckBoxTextSavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
         }
-        if (mTextMarginLeft == 0) {
-            mTextMarginLeft = mTextPadding;
+        CheckBoxTextSavedState savedState = (CheckBoxTextSavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (savedState.text != null) {
+            setText(savedState.text);
         }
+        setChecked(savedState.checked);
+    }
 
-        mTextView.setLayoutParams(paramsText);
+    @Override
+    protected void dispatchSaveInstanceState(SparseArray<Parcelable> container) {
+        // the children are part of this view's state
+        dispatchFreezeSelfOnly(container);
+    }
 
-        // set the mCheckBox tag to the mTextView text
-        mCheckBox.setTag(getText().toString());
-        // set the checkbox text to blank
-        mCheckBox.setText("");
-        // stop error in viewing the layouts in xml
-        isInEditMode();
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        dispatchThawSelfOnly(container);
     }
 
     @Override
@@ -400,7 +746,7 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
 
     @Override
     /**
-     * Toggles the CheckBox
+     * Toggles the CheckBox, an indeterminate CheckBox becomes checked
      * {@link android.widget.CheckBox}
      */
     public void toggle() {
@@ -408,12 +754,114 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
         mCheckBox.toggle();
     }
 
+    /**
+     * Shows the CheckBox as partially checked (e.g. a parent with some children checked), the check
+     * drawable gets R.attr.state_indeterminate. Setting the checked state or toggling clears it, the
+     * OnCheckedChangeListener is not called.
+     * <p/>
+     * The platform check drawables have no indeterminate look, use a check drawable with a
+     * state_indeterminate item.
+     *
+     * @param indeterminate
+     */
+    public void setIndeterminate(boolean indeterminate) {
+        if (mIndeterminate == indeterminate) {
+            return;
+        }
+        mIndeterminate = indeterminate;
+        mCheckBox.refreshDrawableState();
+    }
+
+    public boolean isIndeterminate() {
+        return mIndeterminate;
+    }
+
+    /**
+     * Single touch target mode: the CheckBox and the TextView are not clickable or focusable, the
+     * CheckBoxText intercepts every touch and handles it as one view. The pressed state is set once
+     * on the CheckBoxText and passed on to the children and accessibility services see one checkable
+     * view. Off by default, then the CheckBox and the TextView each take their own clicks.
+     *
+     * @param singleTouchTarget
+     */
+    public void setSingleTouchTarget(boolean singleTouchTarget) {
+        if (mSingleTouchTarget == singleTouchTarget) {
+            return;
+        }
+        mSingleTouchTarget = singleTouchTarget;
+        setChildTouchable(mCheckBox, !singleTouchTarget);
+        mCheckBox.setFocusable(!singleTouchTarget);
+        if (mTextView != null) {
+            setChildTouchable(mTextView, !singleTouchTarget);
+        }
+    }
+
+    public boolean isSingleTouchTarget() {
+        return mSingleTouchTarget;
+    }
+
+    private void setChildTouchable(View child, boolean touchable) {
+        if (touchable) {
+            child.setOnClickListener(this);
+        } else {
+            child.setOnClickListener(null);
+            child.setClickable(false);
+        }
+    }
+
+    /**
+     * Grows the touch area of a CheckBoxText smaller than the size to that size, through a
+     * TouchDelegate set on the parent when laid out. A parent only has one TouchDelegate, so only use
+     * it for one child of a parent.
+     *
+     * @param size the min width and height of the touch area in pixels, 0 (the default) turns it off
+     */
+    public void setMinTouchTargetSize(int size) {
+        mMinTouchTargetSize = size;
+        if (size <= 0) {
+            clearTouchDelegate();
+        } else {
+            requestLayout();
+        }
+    }
+
+    public int getMinTouchTargetSize() {
+        return mMinTouchTargetSize;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        // in single touch target mode the children never see a touch
+        return mSingleTouchTarget || super.onInterceptTouchEvent(ev);
+    }
+
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(event);
+        if (mSingleTouchTarget) {
+            event.setClassName(CheckBox.class.getName());
+            event.setChecked(isChecked());
+        }
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        if (mSingleTouchTarget) {
+            info.setClassName(CheckBox.class.getName());
+            info.setCheckable(true);
+            info.setChecked(isChecked());
+        }
+    }
+
     @Override
     public void onClick(View v) {
-        // check for the CheckBox, it will handle itself
+        // check for the CheckBox, it will handle (and time) itself
         if (v != mCheckBox) {
             // forward the onClicks to the toggle
+            mClickStart = CheckBoxTextMetrics.start();
             this.toggle();
+            mClickStart = 0;
         }
     }
 
@@ -421,46 +869,466 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * Register a callback to be invoked when the checked state of this button
      * changes.
      * <p/>
-     * Forwards the CompoundButton.OnCheckedChangeListener to the checkbox.
+     * The listener is called with the inner CheckBox, {@link #from(CompoundButton)} gets the
+     * CheckBoxText from it.
      *
      * @param listener the callback to call on checked state change
      */
     public void setOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener listener) {
         mOnCheckedChangeListener = listener;
-        mCheckBox.setOnCheckedChangeListener(mOnCheckedChangeListener);
     }
 
     /**
-     * Sets the button text and the mCheckBox tag to that text
+     * Adds a callback called after the one set with
+     * {@link #setOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener)}, in the order
+     * they were added. This is how the adapters, groups, batchers and persisters listen, so several
+     * of them can share a view and the OnCheckedChangeListener is left for the app. Don't add or
+     * remove listeners from the callback.
+     *
+     * @param listener added once, adding it again does nothing
+     */
+    public void addOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener listener) {
+        if (mOnCheckedChangeListeners == null) {
+            mOnCheckedChangeListeners = new ArrayList<CompoundButton.OnCheckedChangeListener>(2);
+        }
+        if (!mOnCheckedChangeListeners.contains(listener)) {
+            mOnCheckedChangeListeners.add(listener);
+        }
+    }
+
+    /**
+     * @param listener added with {@link #addOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener)}
+     */
+    public void removeOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener listener) {
+        if (mOnCheckedChangeListeners != null) {
+            mOnCheckedChangeListeners.remove(listener);
+        }
+    }
+
+    @Override
+    public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+        // the listener may change the text or anything else
+        mSuppressLayout = false;
+        if (!mBinding) {
+            if (mOnCheckedChangeListener != null) {
+                mOnCheckedChangeListener.onCheckedChanged(buttonView, isChecked);
+            }
+            final ArrayList<CompoundButton.OnCheckedChangeListener> listeners = mOnCheckedChangeListeners;
+            if (listeners != null) {
+                for (int i = 0, count = listeners.size(); i < count; i++) {
+                    listeners.get(i).onCheckedChanged(buttonView, isChecked);
+                }
+            }
+        }
+        if (mClickStart != 0) {
+            CheckBoxTextMetrics.record(CheckBoxTextMetrics.CLICK, mTextOrientation, mClickStart);
+            mClickStart = 0;
+        }
+    }
+
+    /**
+     * Redraw-minimized mode: a check change only invalidates the bounds of the check glyph instead of
+     * the whole CheckBox and never requests a layout, neither of this view nor of its parent. Off by
+     * default.
+     *
+     * @param minimalRedraw
+     */
+    public void setMinimalRedraw(boolean minimalRedraw) {
+        mMinimalRedraw = minimalRedraw;
+        mCheckBox.mMinimalRedraw = minimalRedraw;
+    }
+
+    public boolean isMinimalRedraw() {
+        return mMinimalRedraw;
+    }
+
+    /**
+     * Puts the CheckBoxText on a hardware layer for the duration after each check change, so an
+     * animated check drawable only redraws the layer. Only has an effect from Honeycomb on when the
+     * window is hardware accelerated.
+     *
+     * @param duration how long the check animation runs in milliseconds, 0 (the default) turns it off
+     */
+    public void setToggleLayerDuration(int duration) {
+        mToggleLayer.setDuration(duration);
+    }
+
+    public int getToggleLayerDuration() {
+        return mToggleLayer.getDuration();
+    }
+
+    /**
+     * Called by the inner CheckBox before its checked state changes
+     */
+    private void beginCheckChange() {
+        mSuppressLayout = mMinimalRedraw;
+        mToggleLayer.start();
+    }
+
+    private void endCheckChange() {
+        mSuppressLayout = false;
+    }
+
+    @Override
+    public void requestLayout() {
+        if (mSuppressLayout) {
+            // only the checked state changed, the size did not
+            return;
+        }
+        if (mApplyingSpec) {
+            // requested once when the whole spec is applied
+            mLayoutRequestedWhileApplying = true;
+            return;
+        }
+        super.requestLayout();
+    }
+
+    @Override
+    public void invalidate() {
+        if (mApplyingSpec) {
+            // invalidated once when the whole spec is applied
+            mInvalidatedWhileApplying = true;
+            return;
+        }
+        super.invalidate();
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        if (mApplyingSpec) {
+            // the children are redrawn with the one invalidate of the whole view
+            mInvalidatedWhileApplying = true;
+            return null;
+        }
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+    /**
+     * Applies the fields set in the spec that changed since the previously applied spec, with at
+     * most one layout request and one invalidate for all of them. The diff is against the previous
+     * spec, not against what setters called in between did.
+     *
+     * @param spec
+     * @return true if a layout was requested
+     */
+    public boolean apply(CheckBoxTextSpec spec) {
+        final CheckBoxTextSpec previous = mAppliedSpec;
+        if (spec == previous) {
+            return false;
+        }
+        mAppliedSpec = spec;
+        boolean changed = false;
+        mApplyingSpec = true;
+        mLayoutRequestedWhileApplying = false;
+        mInvalidatedWhileApplying = false;
+        try {
+            if (spec.changed(CheckBoxTextSpec.TEXT, previous)) {
+                setText(spec.text);
+                changed = true;
+            }
+            if (spec.changed(CheckBoxTextSpec.TEXT_COLOR, previous)) {
+                if (spec.textColors != null) {
+                    setTextColor(spec.textColors);
+                } else {
+                    setTextColor(spec.textColor);
+                }
+                changed = true;
+            }
+            if (spec.changed(CheckBoxTextSpec.TYPEFACE, previous)) {
+                if (spec.typefaceStyle == CheckBoxTextSpec.NO_TYPEFACE_STYLE) {
+                    setTypeface(spec.typeface);
+                } else {
+                    setTypeface(spec.typeface, spec.typefaceStyle);
+                }
+                changed = true;
+            }
+            if (spec.changed(CheckBoxTextSpec.TEXT_SIZE, previous)) {
+                setTextSize(spec.textSizeUnit, spec.textSize);
+                changed = true;
+            }
+            if (spec.changed(CheckBoxTextSpec.CHECKBOX_DRAWABLE, previous)) {
+                if (spec.checkBoxDrawableResId != 0) {
+                    setCheckBoxDrawable(spec.checkBoxDrawableResId);
+                } else {
+                    setCheckBoxDrawable(spec.checkBoxDrawable);
+                }
+                changed = true;
+            }
+            if (spec.changed(CheckBoxTextSpec.TEXT_PADDING, previous)) {
+                setPaddingText(spec.textPaddingLeft, spec.textPaddingTop, spec.textPaddingRight, spec.textPaddingBottom);
+                changed = true;
+            }
+            if (spec.changed(CheckBoxTextSpec.CHECKBOX_PADDING, previous)) {
+                setPaddingCheckBox(spec.checkBoxPaddingLeft, spec.checkBoxPaddingTop,
+                        spec.checkBoxPaddingRight, spec.checkBoxPaddingBottom);
+                changed = true;
+            }
+            if (spec.changed(CheckBoxTextSpec.CHECKED, previous)) {
+                setChecked(spec.checked);
+                changed = true;
+            }
+        } finally {
+            mApplyingSpec = false;
+        }
+        final boolean layoutRequested = mLayoutRequestedWhileApplying;
+        final boolean invalidated = mInvalidatedWhileApplying;
+        mLayoutRequestedWhileApplying = false;
+        mInvalidatedWhileApplying = false;
+        if (layoutRequested) {
+            super.requestLayout();
+        }
+        if (changed || invalidated) {
+            invalidate();
+        }
+        return layoutRequested;
+    }
+
+    /**
+     * @return the last spec given to {@link #apply(CheckBoxTextSpec)}, null if none
+     */
+    public CheckBoxTextSpec getAppliedSpec() {
+        return mAppliedSpec;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        clearTouchDelegate();
+        super.onDetachedFromWindow();
+        mToggleLayer.cancel();
+    }
+
+    /**
+     * Rebinds a recycled CheckBoxText to an item. The text and checked state are only touched if
+     * they changed and the OnCheckedChangeListener is not called, so the listener of the previous
+     * item does not see the change. Nothing is allocated when the text is the same.
+     *
+     * @param text     the text, also set as the CheckBox tag if {@link #isTagWithText()}
+     * @param checked  the checked state
+     * @param stableId the id of the item, see {@link #getStableId()}
+     */
+    public void bind(CharSequence text, boolean checked, long stableId) {
+        mBinding = true;
+        try {
+            mStableId = stableId;
+            if (!TextUtils.equals(getText(), text) && (mTextView != null || !TextUtils.isEmpty(text))) {
+                ensureTextView().setText(text);
+                mLabelResId = 0;
+            }
+            if (mTagWithText && mCheckBox.getTag() != text) {
+                mCheckBox.setTag(text);
+            }
+            mCheckBox.setChecked(checked);
+        } finally {
+            mBinding = false;
+        }
+    }
+
+    /**
+     * @return the id passed to the last {@link #bind(CharSequence, boolean, long)} or
+     * {@link #setStableId(long)}, {@link #NO_STABLE_ID} if there is none
+     */
+    public long getStableId() {
+        return mStableId;
+    }
+
+    /**
+     * Sets the id of the item this CheckBoxText shows, used by the adapters, groups and batchers
+     * to identify it
+     *
+     * @param stableId
+     */
+    public void setStableId(long stableId) {
+        mStableId = stableId;
+    }
+
+    /**
+     * Sets the button text, and the mCheckBox tag to that text if {@link #isTagWithText()}
      * {@link android.widget.TextView}
      *
      * @param text
      */
     public void setText(String text) {
-        mTextView.setText(text);
-        mCheckBox.setTag(text);
+        setText((CharSequence) text);
+    }
+
+    /**
+     * Sets the button text keeping its spans, and the mCheckBox tag to the text as a String if
+     * {@link #isTagWithText()}
+     *
+     * @param text
+     */
+    public void setText(CharSequence text) {
+        if (mTextView != null || !TextUtils.isEmpty(text)) {
+            ensureTextView().setText(text);
+        }
+        mLabelResId = 0;
+        if (mTagWithText) {
+            mCheckBox.setTag(text != null ? text.toString() : null);
+        }
     }
 
     /**
-     * Sets the button text with a string resId and the mCheckBox tag to that text
+     * Sets the button text with a string resId, and the mCheckBox tag to that text if
+     * {@link #isTagWithText()}. Setting the same resId again does nothing.
      * {@link android.widget.TextView}
      *
      * @param resId
      */
     public void setText(int resId) {
-        mTextView.setText(resId);
-        String text = getContext().getString(resId);
-        mCheckBox.setTag(text);
+        if (resId == mLabelResId && mTextView != null) {
+            return;
+        }
+        ensureTextView().setText(resId);
+        mLabelResId = resId;
+        if (mTagWithText) {
+            mCheckBox.setTag(getContext().getString(resId));
+        }
+    }
+
+    /**
+     * The text without copying it, use it instead of the CheckBox tag
+     *
+     * @return the text shown, empty if none was set
+     */
+    public CharSequence getLabel() {
+        return getText();
+    }
+
+    /**
+     * @return the string resource passed to {@link #setText(int)}, 0 if the text was set another way
+     */
+    public int getLabelResId() {
+        return mLabelResId;
+    }
+
+    /**
+     * Also sets the text as the tag of the inner CheckBox, as CheckBoxText used to do, for
+     * OnCheckedChangeListeners still reading compoundButton.getTag(). Off by default, setting the
+     * tag builds a String from the text each time it changes.
+     *
+     * @param tagWithText
+     */
+    public void setTagWithText(boolean tagWithText) {
+        mTagWithText = tagWithText;
+        mCheckBox.setTag(tagWithText ? getText().toString() : null);
+    }
+
+    public boolean isTagWithText() {
+        return mTagWithText;
+    }
+
+    /**
+     * @param buttonView the CompoundButton passed to an OnCheckedChangeListener
+     * @return the CheckBoxText the button belongs to, null if it is not in one
+     */
+    public static CheckBoxText from(CompoundButton buttonView) {
+        final ViewParent parent = buttonView.getParent();
+        return parent instanceof CheckBoxText ? (CheckBoxText) parent : null;
+    }
+
+    /**
+     * Sets a size and child positions computed ahead of time by a {@link CheckBoxTextLayoutEngine}.
+     * onMeasure and onLayout use them instead of measuring the CheckBox and the TextView as long as
+     * the text, orientation and measure specs are the ones the layout was made for, and measure as
+     * usual otherwise. Set it after styling the view: a change of the text appearance, typeface,
+     * drawable, spacing, minimum size or background is not noticed, set null or a new layout then.
+     *
+     * @param layout from the geometry and text measurer of a view styled like this one, null to
+     *               always measure
+     */
+    public void setPrecomputedLayout(CheckBoxTextLayoutEngine.RowLayout layout) {
+        if (mPrecomputedLayout != layout) {
+            mPrecomputedLayout = layout;
+            requestLayout();
+        }
+    }
+
+    public CheckBoxTextLayoutEngine.RowLayout getPrecomputedLayout() {
+        return mPrecomputedLayout;
+    }
+
+    /**
+     * The check glyph box, margins, padding and minimum size of this CheckBoxText for a
+     * {@link CheckBoxTextLayoutEngine}, call it on the UI thread once the view is styled
+     *
+     * @return
+     */
+    public CheckBoxTextLayoutEngine.Geometry getLayoutGeometry() {
+        final int unspecified = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        mCheckBox.measure(unspecified, unspecified);
+        final MarginLayoutParams checkBoxParams = (MarginLayoutParams) mCheckBox.getLayoutParams();
+        CheckBoxTextLayoutEngine.Geometry.Builder builder = new CheckBoxTextLayoutEngine.Geometry.Builder(mTextOrientation)
+                .setCheckBoxSize(mCheckBox.getMeasuredWidth(), mCheckBox.getMeasuredHeight())
+                .setCheckBoxMargins(checkBoxParams.leftMargin, checkBoxParams.topMargin,
+                        checkBoxParams.rightMargin, checkBoxParams.bottomMargin)
+                .setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(), getPaddingBottom())
+                .setMinSize(getSuggestedMinimumWidth(), getSuggestedMinimumHeight());
+        if (mTextView != null) {
+            final MarginLayoutParams textParams = (MarginLayoutParams) mTextView.getLayoutParams();
+            builder.setTextMargins(textParams.leftMargin, textParams.topMargin, textParams.rightMargin, textParams.bottomMargin)
+                    .setTextPadding(mTextView.getPaddingLeft(), mTextView.getPaddingTop(),
+                            mTextView.getPaddingRight(), mTextView.getPaddingBottom());
+        } else {
+            // what the TextView will get once there is a label
+            builder.setTextMargins(mTextMarginLeft, mTextMarginTop, mTextMarginRight, mTextMarginBottom)
+                    .setTextPadding(mPendingTextPaddingLeft, mPendingTextPaddingTop,
+                            mPendingTextPaddingRight, mPendingTextPaddingBottom);
+        }
+        return builder.build();
+    }
+
+    /**
+     * A text measurer for a {@link CheckBoxTextLayoutEngine} that measures like this CheckBoxText's
+     * TextView (plain text, one style). The text paint is copied, call it on the UI thread once the
+     * view is styled.
+     *
+     * @return
+     */
+    public CheckBoxTextLayoutEngine.TextMeasurer getTextMeasurer() {
+        return new PaintTextMeasurer(mTextView != null ? mTextView.getPaint() : newTextPaint());
+    }
+
+    /**
+     * The paint the TextView will have once there is text: the text appearance with the pending
+     * typeface and text size on top, so label-less views don't make a TextView to measure with
+     */
+    private TextPaint newTextPaint() {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.density = getResources().getDisplayMetrics().density;
+        // TextView's size when the appearance has none
+        paint.setTextSize(DEFAULT_TEXT_SIZE_PX);
+        TypedArray a = getContext().obtainStyledAttributes(mTextAppearanceResId, FlatCheckBoxText.TEXT_APPEARANCE_ATTRS);
+        try {
+            final int textSize = a.getDimensionPixelSize(0, 0);
+            if (textSize != 0) {
+                paint.setTextSize(textSize);
+            }
+            FlatCheckBoxText.setTypeface(paint, FlatCheckBoxText.getTypeface(a.getInt(1, -1)), a.getInt(2, 0));
+        } finally {
+            a.recycle();
+        }
+        if (mHasPendingTypeface) {
+            if (mPendingTypefaceStyle == NO_TYPEFACE_STYLE) {
+                paint.setTypeface(mPendingTypeface);
+            } else {
+                FlatCheckBoxText.setTypeface(paint, mPendingTypeface, mPendingTypefaceStyle);
+            }
+        }
+        if (mHasPendingTextSize) {
+            paint.setTextSize(TypedValue.applyDimension(mPendingTextSizeUnit, mPendingTextSize,
+                    getResources().getDisplayMetrics()));
+        }
+        return paint;
     }
 
     /**
      * Gets the TextView.getText() method
      * {@link android.widget.TextView}
      *
-     * @return
+     * @return the text, empty if none was set
      */
     public CharSequence getText() {
-        return mTextView.getText();
+        return mTextView != null ? mTextView.getText() : "";
     }
 
     /**
@@ -469,7 +1337,13 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param tf {@link android.widget.TextView}
      */
     public void setTypeface(Typeface tf) {
-        mTextView.setTypeface(tf);
+        if (mTextView != null) {
+            mTextView.setTypeface(tf);
+        } else {
+            mPendingTypeface = tf;
+            mPendingTypefaceStyle = NO_TYPEFACE_STYLE;
+            mHasPendingTypeface = true;
+        }
     }
 
     /**
@@ -480,7 +1354,13 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param style
      */
     public void setTypeface(Typeface tf, int style) {
-        mTextView.setTypeface(tf, style);
+        if (mTextView != null) {
+            mTextView.setTypeface(tf, style);
+        } else {
+            mPendingTypeface = tf;
+            mPendingTypefaceStyle = style;
+            mHasPendingTypeface = true;
+        }
     }
 
     /**
@@ -489,17 +1369,23 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param size {@link android.widget.TextView}
      */
     public void setTextSize(float size) {
-        mTextView.setTextSize(size);
+        setTextSize(TypedValue.COMPLEX_UNIT_SP, size);
     }
 
     /**
-     * Forwards the TextView.getTextSize
+     * Forwards the TextView.getTextSize, without a TextView (no text yet) the size it will get
      * {@link android.widget.TextView}
      *
-     * @return
+     * @return the text size in pixels
      */
     public float getTextSize() {
-        return mTextView.getTextSize();
+        if (mTextView != null) {
+            return mTextView.getTextSize();
+        }
+        if (mHasPendingTextSize) {
+            return TypedValue.applyDimension(mPendingTextSizeUnit, mPendingTextSize, getResources().getDisplayMetrics());
+        }
+        return newTextPaint().getTextSize();
     }
 
     /**
@@ -509,7 +1395,11 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param color
      */
     public void setTextColor(int color) {
-        mTextView.setTextColor(color);
+        if (mTextView != null) {
+            mTextView.setTextColor(color);
+        } else {
+            mPendingTextColors = ColorStateList.valueOf(color);
+        }
     }
 
     /**
@@ -518,7 +1408,11 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param textColorStateList
      */
     public void setTextColor(ColorStateList textColorStateList) {
-        mTextView.setTextColor(textColorStateList);
+        if (mTextView != null) {
+            mTextView.setTextColor(textColorStateList);
+        } else {
+            mPendingTextColors = textColorStateList;
+        }
     }
 
     /**
@@ -528,8 +1422,13 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param size
      */
     public void setTextSize(int unit, float size) {
-        //mTextSize = size;
-        mTextView.setTextSize(unit, size);
+        if (mTextView != null) {
+            mTextView.setTextSize(unit, size);
+        } else {
+            mPendingTextSizeUnit = unit;
+            mPendingTextSize = size;
+            mHasPendingTextSize = true;
+        }
     }
 
     /**
@@ -540,17 +1439,21 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param resId
      */
     public void setTextAppearance(Context context, int resId) {
-        mTextView.setTextAppearance(context, resId);
+        mTextAppearanceResId = resId;
+        if (mTextView != null) {
+            mTextView.setTextAppearance(context, resId);
+        }
     }
 
     /**
-     * Sets the CheckBox buttonBackground with a resourceId
+     * Sets the CheckBox buttonBackground with a resourceId, the drawable's constant state is shared
+     * with every other CheckBoxText using it {@link CheckBoxTextDrawableCache}
      * {@link android.widget.CheckBox}
      *
      * @param resId
      */
     public void setCheckBoxDrawable(int resId) {
-        mCheckBox.setButtonDrawable(resId);
+        mCheckBox.setButtonDrawable(resId != 0 ? CheckBoxTextDrawableCache.get(getContext(), resId) : null);
     }
 
     /**
@@ -586,6 +1489,178 @@ public class CheckBoxText extends RelativeLayout implements Checkable, View.OnCl
      * @param bottom
      */
     public void setPaddingText(int left, int top, int right, int bottom) {
-        mTextView.setPadding(left, top, right, bottom);
+        if (mTextView != null) {
+            mTextView.setPadding(left, top, right, bottom);
+        } else {
+            mPendingTextPaddingLeft = left;
+            mPendingTextPaddingTop = top;
+            mPendingTextPaddingRight = right;
+            mPendingTextPaddingBottom = bottom;
+        }
+    }
+
+    /**
+     * Measures with a StaticLayout like a wrap_content TextView, each thread with its own copy of
+     * the paint
+     */
+    private static final class PaintTextMeasurer implements CheckBoxTextLayoutEngine.TextMeasurer {
+
+        private final TextPaint mPaint;
+        private final ThreadLocal<TextPaint> mThreadPaint = new ThreadLocal<TextPaint>() {
+            @Override
+            protected TextPaint initialValue() {
+                TextPaint paint = new TextPaint(mPaint);
+                paint.density = mPaint.density;
+                return paint;
+            }
+        };
+
+        PaintTextMeasurer(TextPaint paint) {
+            mPaint = new TextPaint(paint);
+            mPaint.density = paint.density;
+        }
+
+        @Override
+        public void measure(CharSequence text, int maxWidth, int[] outSize) {
+            final TextPaint paint = mThreadPaint.get();
+            final int desiredWidth = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+            final int width = Math.max(0, Math.min(desiredWidth, maxWidth));
+            StaticLayout layout = new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, true);
+            outSize[0] = width;
+            outSize[1] = layout.getHeight();
+        }
+    }
+
+    /**
+     * The inner CheckBox, tells the CheckBoxText when its checked state changes and in minimal
+     * redraw mode only invalidates its button drawable on a state change
+     */
+    private static final class InnerCheckBox extends CheckBox {
+
+        /**
+         * null while CheckBox's constructor runs
+         */
+        private final CheckBoxText mOwner;
+        private Drawable mButtonDrawable;
+        private boolean mMinimalRedraw;
+        private boolean mInStateChange;
+        /**
+         * The drawable states made since anything but a toggle last changed the state, by checked
+         * and indeterminate, so toggling back and forth reuses them instead of allocating an int[]
+         * each time
+         */
+        private final int[][] mToggleStates = new int[4][];
+        /**
+         * Set until the refresh of the drawable state done by the check change itself
+         */
+        private boolean mToggling;
+
+        InnerCheckBox(CheckBoxText owner) {
+            super(owner.getContext());
+            mOwner = owner;
+        }
+
+        @Override
+        public void setChecked(boolean checked) {
+            if (mOwner != null && mOwner.mIndeterminate) {
+                mOwner.mIndeterminate = false;
+                if (checked == isChecked()) {
+                    refreshDrawableState();
+                }
+            }
+            if (mOwner == null || checked == isChecked()) {
+                super.setChecked(checked);
+                return;
+            }
+            mOwner.beginCheckChange();
+            mToggling = true;
+            try {
+                super.setChecked(checked);
+            } finally {
+                mToggling = false;
+                mOwner.endCheckChange();
+            }
+        }
+
+        /**
+         * Taps on the glyph click the CheckBox itself and never reach CheckBoxText.onClick, they
+         * are timed here
+         */
+        @Override
+        public boolean performClick() {
+            if (mOwner == null) {
+                return super.performClick();
+            }
+            mOwner.mClickStart = CheckBoxTextMetrics.start();
+            try {
+                return super.performClick();
+            } finally {
+                mOwner.mClickStart = 0;
+            }
+        }
+
+        @Override
+        public void toggle() {
+            if (mOwner != null && mOwner.mIndeterminate) {
+                setChecked(true);
+            } else {
+                super.toggle();
+            }
+        }
+
+        @Override
+        public void refreshDrawableState() {
+            if (mToggling) {
+                // only the checked state changed, the listeners' changes clear the states
+                mToggling = false;
+            } else if (mToggleStates != null) {
+                Arrays.fill(mToggleStates, null);
+            }
+            super.refreshDrawableState();
+        }
+
+        @Override
+        protected int[] onCreateDrawableState(int extraSpace) {
+            final int key = mOwner == null || extraSpace != 0 ? -1
+                    : (isChecked() ? 1 : 0) | (mOwner.mIndeterminate ? 2 : 0);
+            if (key >= 0 && mToggleStates[key] != null) {
+                return mToggleStates[key];
+            }
+            final int[] drawableState = super.onCreateDrawableState(extraSpace + 1);
+            if (mOwner != null && mOwner.mIndeterminate) {
+                mergeDrawableStates(drawableState, INDETERMINATE_STATE_SET);
+            }
+            if (key >= 0) {
+                mToggleStates[key] = drawableState;
+            }
+            return drawableState;
+        }
+
+        @Override
+        public void setButtonDrawable(Drawable d) {
+            super.setButtonDrawable(d);
+            // CompoundButton.getButtonDrawable() is not there before Marshmallow
+            mButtonDrawable = d;
+        }
+
+        @Override
+        protected void drawableStateChanged() {
+            mInStateChange = mMinimalRedraw;
+            try {
+                super.drawableStateChanged();
+            } finally {
+                mInStateChange = false;
+            }
+        }
+
+        @Override
+        public void invalidate() {
+            // CompoundButton invalidates everything when the button drawable changes state
+            if (mInStateChange && mButtonDrawable != null && !mButtonDrawable.getBounds().isEmpty()) {
+                invalidate(mButtonDrawable.getBounds());
+            } else {
+                super.invalidate();
+            }
+        }
     }
-}
\ No newline at end of file
+}
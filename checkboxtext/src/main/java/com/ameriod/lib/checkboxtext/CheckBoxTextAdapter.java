@@ -0,0 +1,131 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.CompoundButton;
+
+/**
+ * A ListView/GridView adapter of CheckBoxText rows. The checked state lives in a
+ * {@link CheckedIdSet} keyed by {@link #getItemId(int)}, so the ids have to be stable. Recycled rows
+ * are rebound with {@link CheckBoxText#bind(CharSequence, boolean, long)}, which does not call the
+ * listener and does not allocate for an unchanged label.
+ * <p/>
+ * Implement {@link #getText(int)}, {@link #getCount()}, {@link #getItem(int)} and
+ * {@link #getItemId(int)}. The OnCheckedChangeListener set on the adapter is called for clicks on any
+ * row, the CompoundButton's parent is the CheckBoxText.
+ * <p/>
+ * The adapter listens with {@link CheckBoxText#addOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener)},
+ * so a row can also be registered with a {@link CheckBoxTextBatcher} or bound to a
+ * {@link CheckBoxTextPersister}. The stable id of a row is its item id, whatever else uses the row
+ * has to identify it by the same id.
+ */
+public abstract class CheckBoxTextAdapter extends BaseAdapter implements CompoundButton.OnCheckedChangeListener {
+
+    private final Context mContext;
+    private final int mOrientation;
+    private final CheckedIdSet mCheckedIds;
+
+    private CompoundButton.OnCheckedChangeListener mOnCheckedChangeListener;
+
+    /**
+     * @param context
+     * @param orientation the orientation of the rows, TEXT_RIGHT, TEXT_LEFT, TEXT_ABOVE or TEXT_BELOW
+     */
+    public CheckBoxTextAdapter(Context context, int orientation) {
+        this(context, orientation, new CheckedIdSet());
+    }
+
+    /**
+     * @param context
+     * @param orientation the orientation of the rows
+     * @param checkedIds  the checked ids, shared with whatever else keeps them
+     */
+    protected CheckBoxTextAdapter(Context context, int orientation, CheckedIdSet checkedIds) {
+        mContext = context;
+        mOrientation = orientation;
+        mCheckedIds = checkedIds;
+    }
+
+    /**
+     * @param position
+     * @return the text of the row
+     */
+    public abstract CharSequence getText(int position);
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    /**
+     * @return the checked ids, changes to it show up on the next notifyDataSetChanged
+     */
+    public CheckedIdSet getCheckedIds() {
+        return mCheckedIds;
+    }
+
+    public boolean isItemChecked(int position) {
+        return mCheckedIds.contains(getItemId(position));
+    }
+
+    public void setItemChecked(int position, boolean checked) {
+        mCheckedIds.set(getItemId(position), checked);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @param listener called when a row is checked or unchecked by the user
+     */
+    public void setOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener listener) {
+        mOnCheckedChangeListener = listener;
+    }
+
+    /**
+     * Makes a new row, override to style the rows. The adapter adds its listener to it.
+     *
+     * @param parent
+     * @return
+     */
+    protected CheckBoxText newView(ViewGroup parent) {
+        return new CheckBoxText(mContext, mOrientation);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        CheckBoxText view = (CheckBoxText) convertView;
+        if (view == null) {
+            view = newView(parent);
+            view.addOnCheckedChangeListener(this);
+        }
+        final long id = getItemId(position);
+        view.bind(getText(position), mCheckedIds.contains(id), id);
+        return view;
+    }
+
+    @Override
+    public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+        CheckBoxText view = (CheckBoxText) buttonView.getParent();
+        mCheckedIds.set(view.getStableId(), isChecked);
+        if (mOnCheckedChangeListener != null) {
+            mOnCheckedChangeListener.onCheckedChanged(buttonView, isChecked);
+        }
+    }
+}
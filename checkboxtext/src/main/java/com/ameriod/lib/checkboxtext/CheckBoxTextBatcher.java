@@ -0,0 +1,280 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.CompoundButton;
+
+import java.util.Arrays;
+
+/**
+ * CheckBoxTextBatcher collects the check changes of many CheckBoxTexts and hands them to one
+ * {@link OnBatchCheckedChangeListener} call instead of one OnCheckedChangeListener call per change.
+ * <p/>
+ * Add it to the CheckBoxTexts with {@link #register(CheckBoxText, long)}. Changes are delivered once
+ * per frame, from a Choreographer frame callback before the frame is drawn (so every setChecked done
+ * in the same frame, e.g. restoring 300 boxes, ends up in one call), or before API 16 on the next
+ * pass of the UI thread's message queue. Between {@link #beginBatch()} and {@link #endBatch()} they
+ * are delivered once at endBatch. A box changed more than once in a batch is reported once with its
+ * last state.
+ * <p/>
+ * The batcher listens with {@link CheckBoxText#addOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener)},
+ * so a registered view can also be attached to a {@link CheckBoxTextGroup} or bound to a
+ * {@link CheckBoxTextPersister}. They all use the view's stable id, register it with the id the
+ * others give it (the index for a group or a persister).
+ * <p/>
+ * Use it from the UI thread.
+ */
+public class CheckBoxTextBatcher implements CompoundButton.OnCheckedChangeListener {
+
+    /**
+     * Interface definition for a callback to be invoked with the changes of a batch
+     */
+    public interface OnBatchCheckedChangeListener {
+        /**
+         * @param ids     the stable ids of the CheckBoxTexts that changed
+         * @param checked the new checked state of each id
+         */
+        void onBatchCheckedChanged(long[] ids, boolean[] checked);
+    }
+
+    private final OnBatchCheckedChangeListener mListener;
+    /**
+     * Made on the first change, on the UI thread
+     */
+    private FrameScheduler mScheduler;
+
+    private long[] mIds = new long[16];
+    private boolean[] mChecked = new boolean[16];
+    private int mCount;
+
+    /**
+     * Where each pending id is in mIds: an open addressing table of the ids and their index + 1,
+     * 0 is an empty slot. At most half full.
+     */
+    private long[] mSlotIds = new long[32];
+    private int[] mSlotIndexes = new int[32];
+
+    private int mBatchDepth;
+    private boolean mFlushPosted;
+
+    public CheckBoxTextBatcher(OnBatchCheckedChangeListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Adds the batcher to the CheckBoxText's listeners
+     *
+     * @param view
+     * @param id   the id reported for the view, also set as its stable id
+     */
+    public void register(CheckBoxText view, long id) {
+        view.setStableId(id);
+        view.addOnCheckedChangeListener(this);
+    }
+
+    /**
+     * Stops batching the view's changes
+     *
+     * @param view
+     */
+    public void unregister(CheckBoxText view) {
+        view.removeOnCheckedChangeListener(this);
+    }
+
+    /**
+     * Holds every change until the matching {@link #endBatch()}, batches can be nested
+     */
+    public void beginBatch() {
+        mBatchDepth++;
+    }
+
+    /**
+     * Delivers the changes since the outer {@link #beginBatch()} in one call
+     */
+    public void endBatch() {
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("endBatch() without beginBatch()");
+        }
+        if (--mBatchDepth == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Delivers anything pending right away
+     */
+    public void flush() {
+        if (mFlushPosted) {
+            mScheduler.cancel();
+            mFlushPosted = false;
+        }
+        if (mCount == 0) {
+            return;
+        }
+        long[] ids = new long[mCount];
+        boolean[] checked = new boolean[mCount];
+        System.arraycopy(mIds, 0, ids, 0, mCount);
+        System.arraycopy(mChecked, 0, checked, 0, mCount);
+        mCount = 0;
+        Arrays.fill(mSlotIndexes, 0);
+        mListener.onBatchCheckedChanged(ids, checked);
+    }
+
+    @Override
+    public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+        View parent = (View) buttonView.getParent();
+        add(parent instanceof CheckBoxText ? ((CheckBoxText) parent).getStableId() : buttonView.getId(), isChecked);
+    }
+
+    private void onFrame() {
+        mFlushPosted = false;
+        if (mBatchDepth == 0) {
+            flush();
+        }
+    }
+
+    private void add(long id, boolean checked) {
+        final int mask = mSlotIds.length - 1;
+        int slot = hash(id) & mask;
+        while (mSlotIndexes[slot] != 0) {
+            if (mSlotIds[slot] == id) {
+                // already changed in this batch, keep the last state
+                mChecked[mSlotIndexes[slot] - 1] = checked;
+                scheduleFlush();
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (mCount == mIds.length) {
+            long[] ids = new long[mCount * 2];
+            boolean[] states = new boolean[mCount * 2];
+            System.arraycopy(mIds, 0, ids, 0, mCount);
+            System.arraycopy(mChecked, 0, states, 0, mCount);
+            mIds = ids;
+            mChecked = states;
+        }
+        mIds[mCount] = id;
+        mChecked[mCount] = checked;
+        mCount++;
+        if (mCount * 2 > mSlotIds.length) {
+            growSlots();
+        } else {
+            mSlotIds[slot] = id;
+            mSlotIndexes[slot] = mCount;
+        }
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (mBatchDepth == 0 && !mFlushPosted) {
+            mFlushPosted = true;
+            if (mScheduler == null) {
+                mScheduler = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                        ? new ChoreographerScheduler(this) : new FrameScheduler(this);
+            }
+            mScheduler.schedule();
+        }
+    }
+
+    /**
+     * Doubles the slot table and puts every pending id back in
+     */
+    private void growSlots() {
+        final int capacity = mSlotIds.length * 2;
+        final int mask = capacity - 1;
+        mSlotIds = new long[capacity];
+        mSlotIndexes = new int[capacity];
+        for (int i = 0; i < mCount; i++) {
+            int slot = hash(mIds[i]) & mask;
+            while (mSlotIndexes[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            mSlotIds[slot] = mIds[i];
+            mSlotIndexes[slot] = i + 1;
+        }
+    }
+
+    private static int hash(long id) {
+        // spreads sequential ids over the table
+        final long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Calls onFrame on the next pass of the UI thread's message queue
+     */
+    private static class FrameScheduler implements Runnable {
+
+        final CheckBoxTextBatcher mBatcher;
+        private Handler mHandler;
+
+        FrameScheduler(CheckBoxTextBatcher batcher) {
+            mBatcher = batcher;
+        }
+
+        void schedule() {
+            if (mHandler == null) {
+                mHandler = new Handler(Looper.getMainLooper());
+            }
+            mHandler.post(this);
+        }
+
+        void cancel() {
+            if (mHandler != null) {
+                mHandler.removeCallbacks(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            mBatcher.onFrame();
+        }
+    }
+
+    /**
+     * Calls onFrame from the next frame's callbacks, only loaded on API 16 and up
+     */
+    private static final class ChoreographerScheduler extends FrameScheduler implements Choreographer.FrameCallback {
+
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        ChoreographerScheduler(CheckBoxTextBatcher batcher) {
+            super(batcher);
+        }
+
+        @Override
+        void schedule() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        void cancel() {
+            mChoreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mBatcher.onFrame();
+        }
+    }
+}
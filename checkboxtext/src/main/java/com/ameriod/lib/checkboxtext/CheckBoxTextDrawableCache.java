@@ -0,0 +1,128 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+import java.util.WeakHashMap;
+
+/**
+ * Shares the check drawables of CheckBoxText and FlatCheckBoxText between views. The constant state
+ * of each drawable resource is kept per theme, every view gets its own Drawable made from it, so a
+ * selector's bitmaps are decoded once no matter how many rows show it.
+ * <p/>
+ * The drawables handed out share their constant state, call mutate() on one before changing it
+ * (alpha, color filter...) so the change does not show up in every other view.
+ * <p/>
+ * Drawables without a constant state are not cached. Each theme's drawables are kept with the
+ * configuration they were loaded in and dropped when that theme is used with another one, so
+ * contexts with different configurations don't clear each other's drawables. The cache can be
+ * cleared with {@link #clearCache()}.
+ */
+public final class CheckBoxTextDrawableCache {
+
+    private static final Object sLock = new Object();
+    private static final WeakHashMap<Resources.Theme, ThemeDrawables> sCache =
+            new WeakHashMap<Resources.Theme, ThemeDrawables>();
+
+    private CheckBoxTextDrawableCache() {
+    }
+
+    /**
+     * @param context the theme of the context is part of the key
+     * @param resId   the drawable resource
+     * @return a new Drawable sharing the cached constant state
+     */
+    public static Drawable get(Context context, int resId) {
+        final Resources res = context.getResources();
+        final Resources.Theme theme = context.getTheme();
+        final Configuration configuration = res.getConfiguration();
+        Drawable.ConstantState state;
+        synchronized (sLock) {
+            ThemeDrawables drawables = sCache.get(theme);
+            state = drawables != null ? drawables.get(resId, configuration) : null;
+        }
+        if (state != null) {
+            return state.newDrawable(res);
+        }
+
+        // load outside of the lock, at worst two threads decode the same drawable
+        Drawable drawable = res.getDrawable(resId);
+        state = drawable.getConstantState();
+        if (state != null) {
+            synchronized (sLock) {
+                ThemeDrawables drawables = sCache.get(theme);
+                if (drawables == null) {
+                    drawables = new ThemeDrawables();
+                    sCache.put(theme, drawables);
+                }
+                drawables.put(resId, state, configuration);
+            }
+        }
+        return drawable;
+    }
+
+    /**
+     * Drops every cached drawable, e.g. from onTrimMemory
+     */
+    public static void clearCache() {
+        synchronized (sLock) {
+            sCache.clear();
+        }
+    }
+
+    /**
+     * The constant states cached for one theme and the configuration they were loaded in. Use it
+     * with sLock held.
+     */
+    private static final class ThemeDrawables {
+
+        private final SparseArray<Drawable.ConstantState> mStates = new SparseArray<Drawable.ConstantState>();
+        /**
+         * The configuration the drawables were loaded in, copied
+         */
+        private Configuration mConfiguration;
+
+        /**
+         * @return the constant state, null if it is not cached or the configuration changed since
+         */
+        Drawable.ConstantState get(int resId, Configuration configuration) {
+            if (mConfiguration == null || mConfiguration.diff(configuration) != 0) {
+                clear();
+                return null;
+            }
+            return mStates.get(resId);
+        }
+
+        void put(int resId, Drawable.ConstantState state, Configuration configuration) {
+            if (mConfiguration == null || mConfiguration.diff(configuration) != 0) {
+                clear();
+                mConfiguration = new Configuration(configuration);
+            }
+            mStates.put(resId, state);
+        }
+
+        private void clear() {
+            mStates.clear();
+            mConfiguration = null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * A LayoutInflater factory that creates CheckBoxText, FlatCheckBoxText and CheckBoxTextListView by
+ * calling their constructors, instead of LayoutInflater looking the constructor up by reflection for
+ * each new class name. Every other tag goes to the factory it wraps, or to LayoutInflater when it
+ * wraps none.
+ * <p/>
+ * Install it before the first layout is inflated, e.g. in onCreate before setContentView:
+ * <pre>
+ * CheckBoxTextFactory.install(getLayoutInflater());
+ * </pre>
+ * Installing also resolves the theme's default CheckBoxText style so the views inflated after it
+ * take their attributes from the style cache, see {@link CheckBoxTextStyle}.
+ * <p/>
+ * A LayoutInflater takes one factory. If something else sets one, set the factory returned by
+ * {@link #create(android.view.LayoutInflater.Factory)} wrapping it instead.
+ */
+public class CheckBoxTextFactory implements LayoutInflater.Factory {
+
+    private static final String CHECK_BOX_TEXT = CheckBoxText.class.getName();
+    private static final String FLAT_CHECK_BOX_TEXT = FlatCheckBoxText.class.getName();
+    private static final String CHECK_BOX_TEXT_LIST_VIEW = CheckBoxTextListView.class.getName();
+
+    private final LayoutInflater.Factory mDelegate;
+
+    CheckBoxTextFactory(LayoutInflater.Factory delegate) {
+        mDelegate = delegate;
+    }
+
+    /**
+     * Sets the factory on the inflater, a Factory2 from Honeycomb on
+     *
+     * @param inflater
+     * @throws IllegalStateException if the inflater has a factory already
+     */
+    public static void install(LayoutInflater inflater) {
+        if (inflater.getFactory() != null) {
+            throw new IllegalStateException("The LayoutInflater has a factory already, wrap it with CheckBoxTextFactory.create()");
+        }
+        preload(inflater.getContext());
+        final LayoutInflater.Factory factory = create(null);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            inflater.setFactory2((LayoutInflater.Factory2) factory);
+        } else {
+            inflater.setFactory(factory);
+        }
+    }
+
+    /**
+     * @param delegate creates every view that is not one of the library's, can be null
+     * @return a factory that is also a LayoutInflater.Factory2 from Honeycomb on
+     */
+    public static LayoutInflater.Factory create(LayoutInflater.Factory delegate) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            return new HoneycombFactory(delegate);
+        }
+        return new CheckBoxTextFactory(delegate);
+    }
+
+    /**
+     * Resolves the theme's default CheckBoxText style into the style cache
+     *
+     * @param context
+     */
+    public static void preload(Context context) {
+        CheckBoxTextStyle.obtain(context, null, R.attr.checkBoxTextStyle);
+    }
+
+    /**
+     * @param name    the xml tag
+     * @param context
+     * @param attrs
+     * @return the view if the tag is one of the library's views, null otherwise
+     */
+    public static View createView(String name, Context context, AttributeSet attrs) {
+        if (CHECK_BOX_TEXT.equals(name)) {
+            return new CheckBoxText(context, attrs);
+        }
+        if (FLAT_CHECK_BOX_TEXT.equals(name)) {
+            return new FlatCheckBoxText(context, attrs);
+        }
+        if (CHECK_BOX_TEXT_LIST_VIEW.equals(name)) {
+            return new CheckBoxTextListView(context, attrs);
+        }
+        return null;
+    }
+
+    /**
+     * @return the wrapped factory, null if there is none
+     */
+    public LayoutInflater.Factory getDelegate() {
+        return mDelegate;
+    }
+
+    @Override
+    public View onCreateView(String name, Context context, AttributeSet attrs) {
+        final View view = createView(name, context, attrs);
+        if (view != null || mDelegate == null) {
+            return view;
+        }
+        return mDelegate.onCreateView(name, context, attrs);
+    }
+
+    /**
+     * Only loaded from Honeycomb on, LayoutInflater.Factory2 is not there before
+     */
+    private static final class HoneycombFactory extends CheckBoxTextFactory implements LayoutInflater.Factory2 {
+
+        HoneycombFactory(LayoutInflater.Factory delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+            final LayoutInflater.Factory delegate = getDelegate();
+            if (delegate instanceof LayoutInflater.Factory2) {
+                final View view = createView(name, context, attrs);
+                return view != null ? view : ((LayoutInflater.Factory2) delegate).onCreateView(parent, name, context, attrs);
+            }
+            return onCreateView(name, context, attrs);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.widget.CompoundButton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * CheckBoxTextGroup is the checked state of a large multi-select list kept in a bitset, one bit per
+ * option, instead of one CheckBoxText per option.
+ * <p/>
+ * Only the CheckBoxTexts that are on screen are attached with {@link #attach(CheckBoxText, int)},
+ * they are kept in sync with the group and clicking them updates the group. invert is O(1) (the
+ * bits are read through an inverted flag), select all and clear all are O(1) too: they set the flag
+ * and start a new generation, a word last written in an older generation reads as 0. Range toggles
+ * flip whole 64 bit words at a time and the checked count is kept as the bits change.
+ * <p/>
+ * Each operation, single or bulk, calls the {@link OnSelectionChangedListener} once with the range of
+ * indexes that changed. The attached CheckBoxTexts' own OnCheckedChangeListeners are not called for
+ * bulk changes.
+ * <p/>
+ * Not thread safe, use it from the UI thread.
+ */
+public class CheckBoxTextGroup implements CompoundButton.OnCheckedChangeListener {
+
+    /**
+     * Interface definition for a callback to be invoked once per change of the group
+     */
+    public interface OnSelectionChangedListener {
+        /**
+         * Called once for every change, with the range of options that may have changed
+         *
+         * @param group
+         * @param fromIndex the first index that changed, inclusive
+         * @param toIndex   the last index that changed, exclusive
+         */
+        void onSelectionChanged(CheckBoxTextGroup group, int fromIndex, int toIndex);
+    }
+
+    private final long[] mWords;
+    /**
+     * The generation each word was last written in, a word of an older generation is 0
+     */
+    private final int[] mWordGenerations;
+    private int mGeneration;
+    /**
+     * The number of set bits
+     */
+    private int mBitCount;
+    private final int mSize;
+    /**
+     * When true a clear bit means checked
+     */
+    private boolean mInverted;
+
+    private final ArrayList<CheckBoxText> mAttached = new ArrayList<CheckBoxText>();
+    private OnSelectionChangedListener mOnSelectionChangedListener;
+
+    /**
+     * @param size the number of options, all unchecked
+     */
+    public CheckBoxTextGroup(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size < 0: " + size);
+        }
+        mSize = size;
+        mWords = new long[(size + 63) >> 6];
+        mWordGenerations = new int[mWords.length];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        mOnSelectionChangedListener = listener;
+    }
+
+    public boolean isChecked(int index) {
+        checkIndex(index);
+        return ((word(index >> 6) & (1L << index)) != 0) != mInverted;
+    }
+
+    public void setChecked(int index, boolean checked) {
+        checkIndex(index);
+        if (isChecked(index) == checked) {
+            return;
+        }
+        flip(index);
+        onChanged(index, index + 1);
+    }
+
+    public void toggle(int index) {
+        checkIndex(index);
+        flip(index);
+        onChanged(index, index + 1);
+    }
+
+    /**
+     * @return the number of checked options
+     */
+    public int getCheckedCount() {
+        return mInverted ? mSize - mBitCount : mBitCount;
+    }
+
+    /**
+     * @param fromIndex where to start looking, inclusive
+     * @return the index of the next checked option or -1
+     */
+    public int nextChecked(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+        // the bits past the size are never set, they read as checked when inverted
+        final long flip = mInverted ? -1L : 0L;
+        int w = fromIndex >> 6;
+        if (w >= mWords.length) {
+            return -1;
+        }
+        long bits = (word(w) ^ flip) & (-1L << fromIndex);
+        while (true) {
+            if (bits != 0) {
+                final int index = (w << 6) + Long.numberOfTrailingZeros(bits);
+                return index < mSize ? index : -1;
+            }
+            if (++w == mWords.length) {
+                return -1;
+            }
+            bits = word(w) ^ flip;
+        }
+    }
+
+    public void selectAll() {
+        clearBits();
+        mInverted = true;
+        onChanged(0, mSize);
+    }
+
+    public void clearAll() {
+        clearBits();
+        mInverted = false;
+        onChanged(0, mSize);
+    }
+
+    public void invert() {
+        mInverted = !mInverted;
+        onChanged(0, mSize);
+    }
+
+    /**
+     * Toggles every option in the range
+     *
+     * @param fromIndex inclusive
+     * @param toIndex   exclusive
+     */
+    public void toggleRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return;
+        }
+        final int first = fromIndex >> 6;
+        final int last = (toIndex - 1) >> 6;
+        for (int w = first; w <= last; w++) {
+            final long before = word(w);
+            setWord(w, before ^ rangeMask(w, first, last, fromIndex, toIndex));
+        }
+        onChanged(fromIndex, toIndex);
+    }
+
+    /**
+     * Checks or unchecks every option in the range
+     *
+     * @param fromIndex inclusive
+     * @param toIndex   exclusive
+     * @param checked
+     */
+    public void setRangeChecked(int fromIndex, int toIndex, boolean checked) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return;
+        }
+        final boolean set = checked != mInverted;
+        final int first = fromIndex >> 6;
+        final int last = (toIndex - 1) >> 6;
+        for (int w = first; w <= last; w++) {
+            final long mask = rangeMask(w, first, last, fromIndex, toIndex);
+            final long before = word(w);
+            setWord(w, set ? before | mask : before & ~mask);
+        }
+        onChanged(fromIndex, toIndex);
+    }
+
+    /**
+     * Attaches an on screen CheckBoxText to an option. Its checked state is set from the group and
+     * clicks on it update the group. Set the text before or after attaching.
+     * <p/>
+     * The group listens with {@link CheckBoxText#addOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener)},
+     * the view's OnCheckedChangeListener and other helpers (e.g. a {@link CheckBoxTextBatcher}) keep
+     * working, but the view's stable id is the index: whatever else uses the view has to identify
+     * it by the same index.
+     *
+     * @param view
+     * @param index the option the view shows, also set as the view's stable id
+     */
+    public void attach(CheckBoxText view, int index) {
+        checkIndex(index);
+        if (!mAttached.contains(view)) {
+            mAttached.add(view);
+        }
+        view.addOnCheckedChangeListener(this);
+        view.bind(view.getText(), isChecked(index), index);
+    }
+
+    /**
+     * Detaches a view when it goes off screen or is recycled for something else
+     *
+     * @param view
+     */
+    public void detach(CheckBoxText view) {
+        if (mAttached.remove(view)) {
+            view.removeOnCheckedChangeListener(this);
+        }
+    }
+
+    @Override
+    public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+        // a click on an attached view
+        CheckBoxText view = (CheckBoxText) buttonView.getParent();
+        int index = (int) view.getStableId();
+        if (index >= 0 && index < mSize && isChecked(index) != isChecked) {
+            flip(index);
+            notifyListener(index, index + 1);
+        }
+    }
+
+    private long word(int w) {
+        return mWordGenerations[w] == mGeneration ? mWords[w] : 0;
+    }
+
+    private void setWord(int w, long bits) {
+        mBitCount += Long.bitCount(bits) - Long.bitCount(word(w));
+        mWords[w] = bits;
+        mWordGenerations[w] = mGeneration;
+    }
+
+    private void flip(int index) {
+        final int w = index >> 6;
+        setWord(w, word(w) ^ (1L << index));
+    }
+
+    /**
+     * Every word reads as 0 from now on
+     */
+    private void clearBits() {
+        mBitCount = 0;
+        if (++mGeneration == 0) {
+            // wrapped around, an old word could look current again
+            Arrays.fill(mWords, 0);
+            Arrays.fill(mWordGenerations, 0);
+        }
+    }
+
+    /**
+     * @return the bits of word w in fromIndex to toIndex, the words first to last
+     */
+    private static long rangeMask(int w, int first, int last, int fromIndex, int toIndex) {
+        long mask = -1L;
+        if (w == first) {
+            mask &= -1L << fromIndex;
+        }
+        if (w == last) {
+            mask &= -1L >>> -toIndex;
+        }
+        return mask;
+    }
+
+    private void onChanged(int fromIndex, int toIndex) {
+        // only the attached views are touched, not every option
+        for (int i = 0, size = mAttached.size(); i < size; i++) {
+            CheckBoxText view = mAttached.get(i);
+            int index = (int) view.getStableId();
+            if (index >= fromIndex && index < toIndex) {
+                view.bind(view.getText(), isChecked(index), index);
+            }
+        }
+        notifyListener(fromIndex, toIndex);
+    }
+
+    private void notifyListener(int fromIndex, int toIndex) {
+        if (mOnSelectionChangedListener != null && fromIndex < toIndex) {
+            mOnSelectionChangedListener.onSelectionChanged(this, fromIndex, toIndex);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + " size: " + mSize);
+        }
+    }
+
+    private void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + " toIndex: " + toIndex + " size: " + mSize);
+        }
+    }
+}
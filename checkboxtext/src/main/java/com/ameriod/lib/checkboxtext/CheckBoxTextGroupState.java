@@ -0,0 +1,169 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Checkable;
+
+/**
+ * The checked states of every CheckBoxText and FlatCheckBoxText in a container packed into one
+ * bitset, 64 boxes per long, in the order they are found walking the view hierarchy depth first.
+ * <p/>
+ * Use it for large forms instead of letting every box save itself:
+ * <pre>
+ * protected void onSaveInstanceState(Bundle outState) {
+ *     // before super, which saves the views: the boxes no longer save themselves then
+ *     outState.putParcelable("boxes", CheckBoxTextGroupState.save(form, true));
+ *     super.onSaveInstanceState(outState);
+ * }
+ *
+ * protected void onRestoreInstanceState(Bundle savedInstanceState) {
+ *     super.onRestoreInstanceState(savedInstanceState);
+ *     CheckBoxTextGroupState.restore(form, savedInstanceState.&lt;CheckBoxTextGroupState&gt;getParcelable("boxes"));
+ * }
+ * </pre>
+ * The container has to have the same boxes in the same order when it is restored.
+ */
+public final class CheckBoxTextGroupState implements Parcelable {
+
+    private final int mCount;
+    private final long[] mWords;
+
+    private CheckBoxTextGroupState(int count, long[] words) {
+        mCount = count;
+        mWords = words;
+    }
+
+    /**
+     * Packs the checked states of the boxes in the container
+     *
+     * @param container
+     * @param disableViewState true to also turn off the boxes' own state saving so only this is saved
+     * @return
+     */
+    public static CheckBoxTextGroupState save(ViewGroup container, boolean disableViewState) {
+        final int count = countBoxes(container);
+        final long[] words = new long[(count + 63) >>> 6];
+        collect(container, words, 0, disableViewState);
+        return new CheckBoxTextGroupState(count, words);
+    }
+
+    /**
+     * Sets the checked states of the boxes in the container, boxes past the saved count are left as
+     * they are
+     *
+     * @param container
+     * @param state     can be null, nothing is restored then
+     */
+    public static void restore(ViewGroup container, CheckBoxTextGroupState state) {
+        if (state != null) {
+            apply(container, state, 0);
+        }
+    }
+
+    /**
+     * @return the number of boxes saved
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @param index
+     * @return the saved checked state of the box at the index
+     */
+    public boolean isChecked(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("index: " + index + " count: " + mCount);
+        }
+        return (mWords[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static boolean isBox(View view) {
+        return view instanceof CheckBoxText || view instanceof FlatCheckBoxText;
+    }
+
+    private static int countBoxes(ViewGroup container) {
+        int count = 0;
+        for (int i = 0, size = container.getChildCount(); i < size; i++) {
+            View child = container.getChildAt(i);
+            if (isBox(child)) {
+                count++;
+            } else if (child instanceof ViewGroup) {
+                count += countBoxes((ViewGroup) child);
+            }
+        }
+        return count;
+    }
+
+    private static int collect(ViewGroup container, long[] words, int index, boolean disableViewState) {
+        for (int i = 0, size = container.getChildCount(); i < size; i++) {
+            View child = container.getChildAt(i);
+            if (isBox(child)) {
+                if (((Checkable) child).isChecked()) {
+                    words[index >>> 6] |= 1L << index;
+                }
+                if (disableViewState) {
+                    child.setSaveEnabled(false);
+                }
+                index++;
+            } else if (child instanceof ViewGroup) {
+                index = collect((ViewGroup) child, words, index, disableViewState);
+            }
+        }
+        return index;
+    }
+
+    private static int apply(ViewGroup container, CheckBoxTextGroupState state, int index) {
+        for (int i = 0, size = container.getChildCount(); i < size && index < state.mCount; i++) {
+            View child = container.getChildAt(i);
+            if (isBox(child)) {
+                ((Checkable) child).setChecked(state.isChecked(index));
+                index++;
+            } else if (child instanceof ViewGroup) {
+                index = apply((ViewGroup) child, state, index);
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel out, int flags) {
+        out.writeInt(mCount);
+        out.writeLongArray(mWords);
+    }
+
+    public static final Parcelable.Creator<CheckBoxTextGroupState> CREATOR = new Parcelable.Creator<CheckBoxTextGroupState>() {
+        @Override
+        public CheckBoxTextGroupState createFromParcel(Parcel in) {
+            return new CheckBoxTextGroupState(in.readInt(), in.createLongArray());
+        }
+
+        @Override
+        public CheckBoxTextGroupState[] newArray(int size) {
+            return new CheckBoxTextGroupState[size];
+        }
+    };
+}
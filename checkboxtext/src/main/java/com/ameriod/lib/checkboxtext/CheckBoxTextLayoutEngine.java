@@ -0,0 +1,428 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the size of CheckBoxText rows and the positions of their CheckBox and text ahead of time,
+ * off the UI thread, the same way {@link CheckBoxText}'s onMeasure and onLayout do. Give each result
+ * to {@link CheckBoxText#setPrecomputedLayout(RowLayout)} and the view uses it instead of measuring
+ * its children.
+ * <p/>
+ * The engine is plain Java: the fixed part of a row (the check glyph box, margins and padding for an
+ * orientation) is a {@link Geometry} and the text is measured by a {@link TextMeasurer}, so it runs
+ * on any thread and on a plain JVM. On a device get both from a styled CheckBoxText on the UI thread:
+ * <pre>
+ * CheckBoxTextLayoutEngine engine = new CheckBoxTextLayoutEngine(view.getTextMeasurer());
+ * Geometry geometry = view.getLayoutGeometry();
+ * </pre>
+ * then call {@link #layoutAll(Model, int, boolean, java.util.concurrent.ExecutorService)} from a
+ * background thread.
+ */
+public final class CheckBoxTextLayoutEngine {
+
+    /**
+     * Measures the text of a row, called from the threads of the executor so it has to be thread
+     * safe
+     */
+    public interface TextMeasurer {
+        /**
+         * @param text     not empty
+         * @param maxWidth the widest the text can be, it wraps to more lines after that
+         * @param outSize  set to the width and the height of the text, without its padding
+         */
+        void measure(CharSequence text, int maxWidth, int[] outSize);
+    }
+
+    /**
+     * The rows to lay out
+     */
+    public interface Model {
+        int getCount();
+
+        /**
+         * @param row
+         * @return the label, null or empty for a row without one
+         */
+        CharSequence getText(int row);
+
+        /**
+         * @param row
+         * @return the geometry of the row's style and orientation, usually shared by many rows
+         */
+        Geometry getGeometry(int row);
+    }
+
+    private final TextMeasurer mMeasurer;
+
+    /**
+     * @param measurer measures the text of every row
+     */
+    public CheckBoxTextLayoutEngine(TextMeasurer measurer) {
+        mMeasurer = measurer;
+    }
+
+    /**
+     * Lays out one row. Can be called from any thread.
+     *
+     * @param text       the label, null or empty for none
+     * @param geometry
+     * @param maxWidth   the width the row is given
+     * @param matchWidth true if the row is as wide as maxWidth (match_parent), false if it wraps its
+     *                   content up to maxWidth
+     * @return
+     */
+    public RowLayout layout(CharSequence text, Geometry geometry, int maxWidth, boolean matchWidth) {
+        return layout(text, geometry, maxWidth, matchWidth, new int[2]);
+    }
+
+    private RowLayout layout(CharSequence text, Geometry g, int maxWidth, boolean matchWidth, int[] size) {
+        // like CheckBoxText.isHorizontal(), an unknown orientation is laid out as TEXT_RIGHT
+        final boolean horizontal = g.orientation != CheckBoxText.TEXT_ABOVE && g.orientation != CheckBoxText.TEXT_BELOW;
+        final int checkBoxWidth = g.checkBoxMarginLeft + g.checkBoxWidth + g.checkBoxMarginRight;
+        final int checkBoxHeight = g.checkBoxMarginTop + g.checkBoxHeight + g.checkBoxMarginBottom;
+
+        final boolean hasText = text != null && text.length() > 0;
+        int textViewWidth = 0;
+        int textViewHeight = 0;
+        int textWidth = 0;
+        int textHeight = 0;
+        if (hasText) {
+            int maxTextWidth = maxWidth - g.paddingLeft - g.paddingRight
+                    - g.textMarginLeft - g.textPaddingLeft - g.textPaddingRight - g.textMarginRight;
+            if (horizontal) {
+                maxTextWidth -= checkBoxWidth;
+            }
+            maxTextWidth = Math.max(0, maxTextWidth);
+            mMeasurer.measure(text, maxTextWidth, size);
+            textViewWidth = Math.min(size[0], maxTextWidth) + g.textPaddingLeft + g.textPaddingRight;
+            textViewHeight = size[1] + g.textPaddingTop + g.textPaddingBottom;
+            textWidth = g.textMarginLeft + textViewWidth + g.textMarginRight;
+            textHeight = g.textMarginTop + textViewHeight + g.textMarginBottom;
+        }
+
+        int width;
+        int height;
+        if (horizontal) {
+            width = checkBoxWidth + textWidth;
+            height = Math.max(checkBoxHeight, textHeight);
+        } else {
+            width = Math.max(checkBoxWidth, textWidth);
+            height = checkBoxHeight + textHeight;
+        }
+        width = Math.max(width + g.paddingLeft + g.paddingRight, g.minWidth);
+        height = Math.max(height + g.paddingTop + g.paddingBottom, g.minHeight);
+        width = matchWidth ? maxWidth : Math.min(width, maxWidth);
+
+        // the same placement as CheckBoxText.onLayout
+        final int contentLeft = g.paddingLeft;
+        final int contentTop = g.paddingTop;
+        final int contentWidth = width - g.paddingLeft - g.paddingRight;
+        final int contentHeight = height - g.paddingTop - g.paddingBottom;
+        int checkBoxLeft;
+        int checkBoxTop;
+        int textLeft;
+        int textTop;
+        if (g.orientation == CheckBoxText.TEXT_LEFT) {
+            textLeft = contentLeft;
+            checkBoxLeft = contentLeft + textWidth;
+            textTop = contentTop + (contentHeight - textHeight) / 2;
+            checkBoxTop = contentTop + (contentHeight - checkBoxHeight) / 2;
+        } else if (g.orientation == CheckBoxText.TEXT_ABOVE) {
+            textTop = contentTop;
+            checkBoxTop = contentTop + textHeight;
+            textLeft = contentLeft + (contentWidth - textWidth) / 2;
+            checkBoxLeft = contentLeft + (contentWidth - checkBoxWidth) / 2;
+        } else if (g.orientation == CheckBoxText.TEXT_BELOW) {
+            checkBoxTop = contentTop;
+            textTop = contentTop + checkBoxHeight;
+            textLeft = contentLeft + (contentWidth - textWidth) / 2;
+            checkBoxLeft = contentLeft + (contentWidth - checkBoxWidth) / 2;
+        } else {
+            checkBoxLeft = contentLeft;
+            textLeft = contentLeft + checkBoxWidth;
+            textTop = contentTop + (contentHeight - textHeight) / 2;
+            checkBoxTop = contentTop + (contentHeight - checkBoxHeight) / 2;
+        }
+        checkBoxLeft += g.checkBoxMarginLeft;
+        checkBoxTop += g.checkBoxMarginTop;
+        textLeft += g.textMarginLeft;
+        textTop += g.textMarginTop;
+
+        return new RowLayout(hasText ? text : "", g.orientation, maxWidth, matchWidth, width, height,
+                checkBoxLeft, checkBoxTop, checkBoxLeft + g.checkBoxWidth, checkBoxTop + g.checkBoxHeight,
+                textLeft, textTop, textLeft + textViewWidth, textTop + textViewHeight);
+    }
+
+    /**
+     * Lays out every row in parallel, split into one chunk per executor task. Blocks until all of
+     * them are done so call it from a background thread, not from a task of the same executor.
+     *
+     * @param model
+     * @param maxWidth   the width every row is given
+     * @param matchWidth true if the rows are as wide as maxWidth, false if they wrap their content
+     * @param executor   runs the chunks
+     * @param chunks     how many tasks to split the work in, e.g. the number of cores
+     * @return the layouts in row order
+     * @throws InterruptedException
+     */
+    public RowLayout[] layoutAll(final Model model, final int maxWidth, final boolean matchWidth,
+                                 ExecutorService executor, int chunks) throws InterruptedException {
+        final int count = model.getCount();
+        final RowLayout[] layouts = new RowLayout[count];
+        if (count == 0) {
+            return layouts;
+        }
+        chunks = Math.max(1, Math.min(chunks, count));
+        final int chunkSize = (count + chunks - 1) / chunks;
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(chunks);
+        for (int start = 0; start < count; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(count, start + chunkSize);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    final int[] size = new int[2];
+                    for (int row = from; row < to; row++) {
+                        layouts[row] = layout(model.getText(row), model.getGeometry(row), maxWidth, matchWidth, size);
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return layouts;
+    }
+
+    /**
+     * Lays out every row in parallel with one chunk per available processor.
+     *
+     * @see #layoutAll(Model, int, boolean, java.util.concurrent.ExecutorService, int)
+     */
+    public RowLayout[] layoutAll(Model model, int maxWidth, boolean matchWidth, ExecutorService executor)
+            throws InterruptedException {
+        return layoutAll(model, maxWidth, matchWidth, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The fixed part of a row for one style and orientation: the size of the CheckBox (with its own
+     * padding), the margins of the CheckBox and the text, the padding of the text and of the row, and
+     * the row's minimum size.
+     */
+    public static final class Geometry {
+
+        public final int orientation;
+        public final int checkBoxWidth;
+        public final int checkBoxHeight;
+
+        public final int checkBoxMarginLeft;
+        public final int checkBoxMarginTop;
+        public final int checkBoxMarginRight;
+        public final int checkBoxMarginBottom;
+
+        public final int textMarginLeft;
+        public final int textMarginTop;
+        public final int textMarginRight;
+        public final int textMarginBottom;
+
+        public final int textPaddingLeft;
+        public final int textPaddingTop;
+        public final int textPaddingRight;
+        public final int textPaddingBottom;
+
+        public final int paddingLeft;
+        public final int paddingTop;
+        public final int paddingRight;
+        public final int paddingBottom;
+
+        /**
+         * The suggested minimum size of the row: its minWidth/minHeight or its background's size
+         */
+        public final int minWidth;
+        public final int minHeight;
+
+        private Geometry(Builder builder) {
+            orientation = builder.mOrientation;
+            checkBoxWidth = builder.mCheckBoxWidth;
+            checkBoxHeight = builder.mCheckBoxHeight;
+            checkBoxMarginLeft = builder.mCheckBoxMargins[0];
+            checkBoxMarginTop = builder.mCheckBoxMargins[1];
+            checkBoxMarginRight = builder.mCheckBoxMargins[2];
+            checkBoxMarginBottom = builder.mCheckBoxMargins[3];
+            textMarginLeft = builder.mTextMargins[0];
+            textMarginTop = builder.mTextMargins[1];
+            textMarginRight = builder.mTextMargins[2];
+            textMarginBottom = builder.mTextMargins[3];
+            textPaddingLeft = builder.mTextPadding[0];
+            textPaddingTop = builder.mTextPadding[1];
+            textPaddingRight = builder.mTextPadding[2];
+            textPaddingBottom = builder.mTextPadding[3];
+            paddingLeft = builder.mPadding[0];
+            paddingTop = builder.mPadding[1];
+            paddingRight = builder.mPadding[2];
+            paddingBottom = builder.mPadding[3];
+            minWidth = builder.mMinWidth;
+            minHeight = builder.mMinHeight;
+        }
+
+        public static final class Builder {
+
+            private final int mOrientation;
+            private int mCheckBoxWidth;
+            private int mCheckBoxHeight;
+            private final int[] mCheckBoxMargins = new int[4];
+            private final int[] mTextMargins = new int[4];
+            private final int[] mTextPadding = new int[4];
+            private final int[] mPadding = new int[4];
+            private int mMinWidth;
+            private int mMinHeight;
+
+            /**
+             * @param orientation one of the CheckBoxText TEXT_ orientations
+             */
+            public Builder(int orientation) {
+                mOrientation = orientation;
+            }
+
+            /**
+             * @param width  the measured width of the CheckBox
+             * @param height the measured height of the CheckBox
+             * @return
+             */
+            public Builder setCheckBoxSize(int width, int height) {
+                mCheckBoxWidth = width;
+                mCheckBoxHeight = height;
+                return this;
+            }
+
+            public Builder setCheckBoxMargins(int left, int top, int right, int bottom) {
+                set(mCheckBoxMargins, left, top, right, bottom);
+                return this;
+            }
+
+            public Builder setTextMargins(int left, int top, int right, int bottom) {
+                set(mTextMargins, left, top, right, bottom);
+                return this;
+            }
+
+            public Builder setTextPadding(int left, int top, int right, int bottom) {
+                set(mTextPadding, left, top, right, bottom);
+                return this;
+            }
+
+            /**
+             * The padding of the CheckBoxText itself
+             */
+            public Builder setPadding(int left, int top, int right, int bottom) {
+                set(mPadding, left, top, right, bottom);
+                return this;
+            }
+
+            /**
+             * @param width  the row's suggested minimum width
+             * @param height the row's suggested minimum height
+             * @return
+             */
+            public Builder setMinSize(int width, int height) {
+                mMinWidth = width;
+                mMinHeight = height;
+                return this;
+            }
+
+            public Geometry build() {
+                return new Geometry(this);
+            }
+
+            private static void set(int[] sides, int left, int top, int right, int bottom) {
+                sides[0] = left;
+                sides[1] = top;
+                sides[2] = right;
+                sides[3] = bottom;
+            }
+        }
+    }
+
+    /**
+     * The precomputed size of one row and the bounds of its CheckBox and text, relative to the row
+     */
+    public static final class RowLayout {
+
+        /**
+         * The label, empty for a row without one
+         */
+        public final CharSequence text;
+        public final int orientation;
+        public final int maxWidth;
+        public final boolean matchWidth;
+
+        public final int width;
+        public final int height;
+
+        public final int checkBoxLeft;
+        public final int checkBoxTop;
+        public final int checkBoxRight;
+        public final int checkBoxBottom;
+
+        /**
+         * The bounds of the text with its padding, empty for a row without a label
+         */
+        public final int textLeft;
+        public final int textTop;
+        public final int textRight;
+        public final int textBottom;
+
+        private RowLayout(CharSequence text, int orientation, int maxWidth, boolean matchWidth, int width, int height,
+                          int checkBoxLeft, int checkBoxTop, int checkBoxRight, int checkBoxBottom,
+                          int textLeft, int textTop, int textRight, int textBottom) {
+            this.text = text;
+            this.orientation = orientation;
+            this.maxWidth = maxWidth;
+            this.matchWidth = matchWidth;
+            this.width = width;
+            this.height = height;
+            this.checkBoxLeft = checkBoxLeft;
+            this.checkBoxTop = checkBoxTop;
+            this.checkBoxRight = checkBoxRight;
+            this.checkBoxBottom = checkBoxBottom;
+            this.textLeft = textLeft;
+            this.textTop = textTop;
+            this.textRight = textRight;
+            this.textBottom = textBottom;
+        }
+    }
+}
@@ -0,0 +1,983 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.widget.CheckBox;
+import android.widget.Scroller;
+
+/**
+ * CheckBoxTextListView is a scrolling list of checkable labels for very large option sets (country
+ * pickers, permission matrices...). It is one View no matter how many items there are: every visible
+ * item is drawn straight from a {@link DataSource}, touches are mapped to item indices and the items
+ * are exposed to accessibility services as virtual views (from Jelly Bean on). A tap toggles the
+ * item and then goes through {@link #performClick()}, so an OnClickListener still runs. With a
+ * D-pad or a keyboard up and down move the selected item, which is highlighted with the theme's
+ * listSelector while the view has focus, and center, enter or space toggle it.
+ * <p/>
+ * It reads the same xml attributes as {@link CheckBoxText} (orientation, textAppearance,
+ * checkboxBackground and all the padding and margin attributes) and places the check glyph and the
+ * label of each item with the same spacing. Every item has the same height and a single line of
+ * text: the label gets all the width left over so the check glyphs line up, and a longer label is
+ * cut off with an ellipsis, it never wraps.
+ */
+public class CheckBoxTextListView extends View {
+
+    /**
+     * The items shown by a CheckBoxTextListView
+     */
+    public interface DataSource {
+        int getCount();
+
+        CharSequence getLabel(int position);
+
+        boolean isChecked(int position);
+
+        /**
+         * Called when the user checks or unchecks an item
+         *
+         * @param position
+         * @param checked
+         */
+        void setChecked(int position, boolean checked);
+    }
+
+    /**
+     * Returned by {@link #getPositionAt(float)} when there is no item there
+     */
+    public static final int NO_POSITION = -1;
+
+    private static final int[] STATE_UNCHECKED = {android.R.attr.state_enabled};
+    private static final int[] STATE_CHECKED = {android.R.attr.state_enabled, android.R.attr.state_checked};
+    private static final int[] STATE_UNCHECKED_PRESSED = {android.R.attr.state_enabled, android.R.attr.state_pressed};
+    private static final int[] STATE_CHECKED_PRESSED = {android.R.attr.state_enabled, android.R.attr.state_checked,
+            android.R.attr.state_pressed};
+    private static final char ELLIPSIS = '\u2026';
+
+    private static final int[] STATE_SELECTED = {android.R.attr.state_enabled, android.R.attr.state_focused};
+    private static final int[] STATE_SELECTED_PRESSED = {android.R.attr.state_enabled, android.R.attr.state_focused,
+            android.R.attr.state_pressed};
+
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect mTmpRect = new Rect();
+    /**
+     * The label being drawn, with room for the ellipsis, so drawing does not allocate once it is as
+     * long as the longest label
+     */
+    private char[] mLabelChars = new char[32];
+    private float mEllipsisWidth;
+    private ColorStateList mTextColor;
+    private Drawable mButtonDrawable;
+    /**
+     * Drawn behind the selected item while the view has focus outside of touch mode
+     */
+    private Drawable mSelector;
+
+    private DataSource mDataSource;
+    private int mTextOrientation = CheckBoxText.TEXT_RIGHT;
+
+    private int mCheckBoxPaddingLeft;
+    private int mCheckBoxPaddingRight;
+    private int mCheckBoxPaddingTop;
+    private int mCheckBoxPaddingBottom;
+
+    private int mTextPaddingLeft;
+    private int mTextPaddingRight;
+    private int mTextPaddingTop;
+    private int mTextPaddingBottom;
+
+    private int mCheckBoxMarginLeft;
+    private int mCheckBoxMarginRight;
+    private int mCheckBoxMarginTop;
+    private int mCheckBoxMarginBottom;
+
+    private int mTextMarginLeft;
+    private int mTextMarginRight;
+    private int mTextMarginTop;
+    private int mTextMarginBottom;
+
+    /**
+     * Item geometry, the same for every item, see {@link #computeItemGeometry()}
+     */
+    private int mItemHeight;
+    private int mGlyphWidth;
+    private int mGlyphHeight;
+    private int mTextLineHeight;
+    private int mTextAscent;
+
+    private final Scroller mScroller;
+    private final int mTouchSlop;
+    private final int mMinimumVelocity;
+    private final int mMaximumVelocity;
+    private VelocityTracker mVelocityTracker;
+    private float mDownY;
+    private float mLastY;
+    private boolean mDragging;
+    private int mPressedPosition = NO_POSITION;
+    /**
+     * The item {@link #performClick()} toggles, set just before it is called
+     */
+    private int mClickedPosition = NO_POSITION;
+    /**
+     * The item the D-pad or keyboard moves and toggles
+     */
+    private int mSelectedPosition = NO_POSITION;
+
+    private AccessibilityNodeProvider mAccessibilityNodeProvider;
+    private int mHoveredPosition = NO_POSITION;
+    private int mAccessibilityFocusedPosition = NO_POSITION;
+
+    public CheckBoxTextListView(Context context) {
+        this(context, null);
+    }
+
+    public CheckBoxTextListView(Context context, AttributeSet attrs) {
+        this(context, attrs, R.attr.checkBoxTextStyle);
+    }
+
+    public CheckBoxTextListView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        mScroller = new Scroller(context);
+        final ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
+        init(attrs, defStyle);
+    }
+
+    private void init(AttributeSet attrs, int defStyle) {
+        mTextPaint.density = getResources().getDisplayMetrics().density;
+        setClickable(true);
+        setFocusable(true);
+        setVerticalScrollBarEnabled(true);
+        setWillNotDraw(false);
+
+        final CheckBoxTextStyle style = CheckBoxTextStyle.obtain(getContext(), attrs, defStyle);
+        mTextOrientation = style.getOrientation(attrs);
+
+        // resolved once per style, the same spacing as CheckBoxText
+        final CheckBoxTextStyle.Spacing spacing = style.getSpacing(mTextOrientation);
+        mCheckBoxPaddingLeft = spacing.checkBoxPaddingLeft;
+        mCheckBoxPaddingRight = spacing.checkBoxPaddingRight;
+        mCheckBoxPaddingTop = spacing.checkBoxPaddingTop;
+        mCheckBoxPaddingBottom = spacing.checkBoxPaddingBottom;
+
+        mTextPaddingLeft = spacing.textPaddingLeft;
+        mTextPaddingRight = spacing.textPaddingRight;
+        mTextPaddingTop = spacing.textPaddingTop;
+        mTextPaddingBottom = spacing.textPaddingBottom;
+
+        mCheckBoxMarginLeft = spacing.checkBoxMarginLeft;
+        mCheckBoxMarginRight = spacing.checkBoxMarginRight;
+        mCheckBoxMarginTop = spacing.checkBoxMarginTop;
+        mCheckBoxMarginBottom = spacing.checkBoxMarginBottom;
+
+        mTextMarginLeft = spacing.textMarginLeft;
+        mTextMarginRight = spacing.textMarginRight;
+        mTextMarginTop = spacing.textMarginTop;
+        mTextMarginBottom = spacing.textMarginBottom;
+
+        setTextAppearance(getContext(), style.getTextAppearanceResId(attrs));
+
+        Drawable checkBoxDrawable = style.newCheckBoxBackground(getResources());
+        if (checkBoxDrawable == null) {
+            // the default CheckBox button of the current theme
+            TypedArray a = getContext().getTheme().obtainStyledAttributes(new int[]{android.R.attr.listChoiceIndicatorMultiple});
+            try {
+                final int resId = a.getResourceId(0, 0);
+                checkBoxDrawable = resId != 0 ? CheckBoxTextDrawableCache.get(getContext(), resId) : a.getDrawable(0);
+            } finally {
+                a.recycle();
+            }
+        }
+        setCheckBoxDrawable(checkBoxDrawable);
+
+        TypedArray a = getContext().getTheme().obtainStyledAttributes(new int[]{android.R.attr.listSelector});
+        try {
+            mSelector = a.getDrawable(0);
+        } finally {
+            a.recycle();
+        }
+        if (mSelector != null) {
+            // the state is set while drawing, as for the check glyph
+            mSelector.setCallback(null);
+        }
+    }
+
+    /**
+     * @param dataSource the items, can be null
+     */
+    public void setDataSource(DataSource dataSource) {
+        mDataSource = dataSource;
+        mPressedPosition = NO_POSITION;
+        mSelectedPosition = NO_POSITION;
+        mHoveredPosition = NO_POSITION;
+        mAccessibilityFocusedPosition = NO_POSITION;
+        notifyDataSetChanged();
+    }
+
+    public DataSource getDataSource() {
+        return mDataSource;
+    }
+
+    /**
+     * Call when the items or their checked states changed outside of the view
+     */
+    public void notifyDataSetChanged() {
+        if (mSelectedPosition >= getCount()) {
+            mSelectedPosition = getCount() - 1;
+        }
+        requestLayout();
+        scrollTo(getScrollX(), getScrollY());
+        invalidate();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+        }
+    }
+
+    /**
+     * Call when the checked state of one item changed outside of the view, only that item is redrawn
+     *
+     * @param position
+     */
+    public void notifyItemChanged(int position) {
+        invalidateItem(position);
+    }
+
+    public int getCount() {
+        return mDataSource != null ? mDataSource.getCount() : 0;
+    }
+
+    /**
+     * Checks or unchecks an item as if the user clicked it
+     *
+     * @param position
+     */
+    public void toggleItem(int position) {
+        if (position < 0 || position >= getCount()) {
+            throw new IndexOutOfBoundsException("position: " + position + " count: " + getCount());
+        }
+        mDataSource.setChecked(position, !mDataSource.isChecked(position));
+        invalidateItem(position);
+        sendAccessibilityEventForItem(position, AccessibilityEvent.TYPE_VIEW_CLICKED);
+    }
+
+    /**
+     * @param y in the view's coordinates, as in a MotionEvent
+     * @return the position of the item at y or {@link #NO_POSITION}
+     */
+    public int getPositionAt(float y) {
+        if (mItemHeight <= 0) {
+            return NO_POSITION;
+        }
+        final int contentY = (int) y + getScrollY() - getPaddingTop();
+        if (contentY < 0) {
+            return NO_POSITION;
+        }
+        final int position = contentY / mItemHeight;
+        return position < getCount() ? position : NO_POSITION;
+    }
+
+    /**
+     * @return the item the D-pad or keyboard moves and toggles, {@link #NO_POSITION} before the view
+     * first got focus
+     */
+    public int getSelectedPosition() {
+        return mSelectedPosition;
+    }
+
+    /**
+     * @return the height of every item in pixels
+     */
+    public int getItemHeight() {
+        return mItemHeight;
+    }
+
+    /**
+     * Scrolls so the item is at the top, or as close as the list allows
+     *
+     * @param position
+     */
+    public void setSelection(int position) {
+        mScroller.forceFinished(true);
+        scrollTo(0, position * mItemHeight);
+    }
+
+    public void setTextAppearance(Context context, int resId) {
+        TypedArray a = context.obtainStyledAttributes(resId, FlatCheckBoxText.TEXT_APPEARANCE_ATTRS);
+        try {
+            int textSize = a.getDimensionPixelSize(0, 0);
+            if (textSize != 0) {
+                mTextPaint.setTextSize(textSize);
+            }
+            FlatCheckBoxText.setTypeface(mTextPaint, FlatCheckBoxText.getTypeface(a.getInt(1, -1)), a.getInt(2, 0));
+            ColorStateList color = a.getColorStateList(3);
+            if (color != null) {
+                mTextColor = color;
+            }
+        } finally {
+            a.recycle();
+        }
+        onGeometryChanged();
+    }
+
+    public void setTextColor(ColorStateList textColorStateList) {
+        mTextColor = textColorStateList;
+        invalidate();
+    }
+
+    /**
+     * Sets the check glyph with a resourceId, see {@link CheckBoxTextDrawableCache}
+     *
+     * @param resId
+     */
+    public void setCheckBoxDrawable(int resId) {
+        setCheckBoxDrawable(resId != 0 ? CheckBoxTextDrawableCache.get(getContext(), resId) : null);
+    }
+
+    /**
+     * Sets the drawable used as the check glyph of every item, it should be stateful on
+     * state_checked just like a CheckBox button drawable. The one drawable is drawn for every item.
+     *
+     * @param checkBoxDrawable
+     */
+    public void setCheckBoxDrawable(Drawable checkBoxDrawable) {
+        if (mButtonDrawable == checkBoxDrawable) {
+            return;
+        }
+        if (mButtonDrawable != null) {
+            mButtonDrawable.setCallback(null);
+            unscheduleDrawable(mButtonDrawable);
+        }
+        mButtonDrawable = checkBoxDrawable;
+        if (checkBoxDrawable != null) {
+            // the state is set for each item while drawing, don't let it invalidate the view
+            checkBoxDrawable.setCallback(null);
+        }
+        onGeometryChanged();
+    }
+
+    private void onGeometryChanged() {
+        computeItemGeometry();
+        requestLayout();
+        invalidate();
+    }
+
+    private boolean isHorizontal() {
+        return mTextOrientation != CheckBoxText.TEXT_ABOVE && mTextOrientation != CheckBoxText.TEXT_BELOW;
+    }
+
+    private void computeItemGeometry() {
+        mGlyphWidth = (mButtonDrawable != null ? Math.max(0, mButtonDrawable.getIntrinsicWidth()) : 0)
+                + mCheckBoxPaddingLeft + mCheckBoxPaddingRight + mCheckBoxMarginLeft + mCheckBoxMarginRight;
+        mGlyphHeight = (mButtonDrawable != null ? Math.max(0, mButtonDrawable.getIntrinsicHeight()) : 0)
+                + mCheckBoxPaddingTop + mCheckBoxPaddingBottom + mCheckBoxMarginTop + mCheckBoxMarginBottom;
+        Paint.FontMetricsInt fontMetrics = mTextPaint.getFontMetricsInt();
+        mTextLineHeight = fontMetrics.descent - fontMetrics.ascent;
+        mTextAscent = fontMetrics.ascent;
+        mEllipsisWidth = mTextPaint.measureText(String.valueOf(ELLIPSIS));
+        final int textHeight = mTextLineHeight + mTextPaddingTop + mTextPaddingBottom + mTextMarginTop + mTextMarginBottom;
+        mItemHeight = isHorizontal() ? Math.max(mGlyphHeight, textHeight) : mGlyphHeight + textHeight;
+    }
+
+    private int getContentHeight() {
+        return getCount() * mItemHeight;
+    }
+
+    private int getMaxScrollY() {
+        return Math.max(0, getContentHeight() + getPaddingTop() + getPaddingBottom() - getHeight());
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = mGlyphWidth + getPaddingLeft() + getPaddingRight();
+        final int height = getContentHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(resolveSize(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec),
+                resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        scrollTo(getScrollX(), getScrollY());
+    }
+
+    @Override
+    public void scrollTo(int x, int y) {
+        super.scrollTo(0, Math.max(0, Math.min(y, getMaxScrollY())));
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        mHoveredPosition = NO_POSITION;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        final int count = getCount();
+        if (count == 0 || mItemHeight <= 0) {
+            return;
+        }
+        final int scrollY = getScrollY();
+        final int paddingTop = getPaddingTop();
+        final int first = Math.max(0, (scrollY - paddingTop) / mItemHeight);
+        final int last = Math.min(count - 1, (scrollY + getHeight() - paddingTop) / mItemHeight);
+
+        if (mTextColor != null) {
+            mTextPaint.setColor(mTextColor.getColorForState(getDrawableState(), mTextColor.getDefaultColor()));
+        }
+        if (mSelector != null && isFocused() && !isInTouchMode()
+                && mSelectedPosition >= first && mSelectedPosition <= last) {
+            getItemBounds(mSelectedPosition, mTmpRect);
+            mSelector.setState(mSelectedPosition == mPressedPosition ? STATE_SELECTED_PRESSED : STATE_SELECTED);
+            mSelector.setBounds(mTmpRect);
+            mSelector.draw(canvas);
+        }
+        for (int position = first; position <= last; position++) {
+            drawItem(canvas, position, paddingTop + position * mItemHeight);
+        }
+    }
+
+    /**
+     * Draws one item, placed the same way CheckBoxText places its CheckBox and TextView
+     */
+    private void drawItem(Canvas canvas, int position, int top) {
+        final CharSequence label = mDataSource.getLabel(position);
+        final boolean checked = mDataSource.isChecked(position);
+        final int contentLeft = getPaddingLeft();
+        final int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        final int textSpacingWidth = mTextPaddingLeft + mTextPaddingRight + mTextMarginLeft + mTextMarginRight;
+        final int textHeight = mTextLineHeight + mTextPaddingTop + mTextPaddingBottom + mTextMarginTop + mTextMarginBottom;
+
+        int glyphLeft;
+        int glyphTop;
+        int textLeft;
+        int textTop;
+        int textWidth;
+        if (isHorizontal()) {
+            textWidth = Math.max(0, contentWidth - mGlyphWidth);
+            if (mTextOrientation == CheckBoxText.TEXT_LEFT) {
+                textLeft = contentLeft;
+                glyphLeft = contentLeft + textWidth;
+            } else {
+                glyphLeft = contentLeft;
+                textLeft = contentLeft + mGlyphWidth;
+            }
+            textTop = top + (mItemHeight - textHeight) / 2;
+            glyphTop = top + (mItemHeight - mGlyphHeight) / 2;
+        } else {
+            textWidth = Math.min(contentWidth,
+                    (int) Math.ceil(mTextPaint.measureText(label, 0, label.length())) + textSpacingWidth);
+            textLeft = contentLeft + (contentWidth - textWidth) / 2;
+            glyphLeft = contentLeft + (contentWidth - mGlyphWidth) / 2;
+            if (mTextOrientation == CheckBoxText.TEXT_ABOVE) {
+                textTop = top;
+                glyphTop = top + textHeight;
+            } else {
+                glyphTop = top;
+                textTop = top + mGlyphHeight;
+            }
+        }
+
+        if (mButtonDrawable != null) {
+            final boolean pressed = position == mPressedPosition;
+            mButtonDrawable.setState(checked
+                    ? (pressed ? STATE_CHECKED_PRESSED : STATE_CHECKED)
+                    : (pressed ? STATE_UNCHECKED_PRESSED : STATE_UNCHECKED));
+            glyphLeft += mCheckBoxMarginLeft + mCheckBoxPaddingLeft;
+            glyphTop += mCheckBoxMarginTop + mCheckBoxPaddingTop;
+            mButtonDrawable.setBounds(glyphLeft, glyphTop,
+                    glyphLeft + Math.max(0, mButtonDrawable.getIntrinsicWidth()),
+                    glyphTop + Math.max(0, mButtonDrawable.getIntrinsicHeight()));
+            mButtonDrawable.draw(canvas);
+        }
+
+        final int textRight = textLeft + textWidth - mTextMarginRight - mTextPaddingRight;
+        textLeft += mTextMarginLeft + mTextPaddingLeft;
+        textTop += mTextMarginTop + mTextPaddingTop;
+        if (textRight > textLeft) {
+            final int count = ellipsize(label, textRight - textLeft);
+            canvas.save();
+            // the ellipsis alone can be wider than a very narrow item
+            canvas.clipRect(textLeft, textTop, textRight, textTop + mTextLineHeight);
+            canvas.drawText(mLabelChars, 0, count, textLeft, textTop - mTextAscent, mTextPaint);
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Copies the label to mLabelChars, cut off with an ellipsis when it is wider than width
+     *
+     * @param label
+     * @param width
+     * @return the number of chars to draw from mLabelChars
+     */
+    private int ellipsize(CharSequence label, int width) {
+        final int length = label.length();
+        if (mLabelChars.length < length + 1) {
+            mLabelChars = new char[length + 1];
+        }
+        TextUtils.getChars(label, 0, length, mLabelChars, 0);
+        if (mTextPaint.measureText(mLabelChars, 0, length) <= width) {
+            return length;
+        }
+        int count = mTextPaint.breakText(mLabelChars, 0, length, Math.max(0, width - mEllipsisWidth), null);
+        if (count > 0 && Character.isHighSurrogate(mLabelChars[count - 1])) {
+            // don't split a surrogate pair
+            count--;
+        }
+        mLabelChars[count] = ELLIPSIS;
+        return count + 1;
+    }
+
+    /**
+     * @param position
+     * @param outRect  set to the bounds of the item in the view's content coordinates
+     */
+    private void getItemBounds(int position, Rect outRect) {
+        final int top = getPaddingTop() + position * mItemHeight;
+        outRect.set(getPaddingLeft(), top, getWidth() - getPaddingRight(), top + mItemHeight);
+    }
+
+    private void invalidateItem(int position) {
+        if (position == NO_POSITION) {
+            return;
+        }
+        getItemBounds(position, mTmpRect);
+        invalidate(mTmpRect);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled()) {
+            return isClickable();
+        }
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+
+        switch (event.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                mScroller.forceFinished(true);
+                mDownY = event.getY();
+                mLastY = mDownY;
+                mDragging = false;
+                mPressedPosition = getPositionAt(mDownY);
+                invalidateItem(mPressedPosition);
+                return true;
+            case MotionEvent.ACTION_MOVE: {
+                final float y = event.getY();
+                if (!mDragging && Math.abs(y - mDownY) > mTouchSlop) {
+                    mDragging = true;
+                    invalidateItem(mPressedPosition);
+                    mPressedPosition = NO_POSITION;
+                    final ViewParent parent = getParent();
+                    if (parent != null) {
+                        parent.requestDisallowInterceptTouchEvent(true);
+                    }
+                }
+                if (mDragging) {
+                    scrollTo(0, getScrollY() + (int) (mLastY - y));
+                    awakenScrollBars();
+                }
+                mLastY = y;
+                return true;
+            }
+            case MotionEvent.ACTION_UP:
+                if (mDragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+                    final int velocity = (int) mVelocityTracker.getYVelocity();
+                    if (Math.abs(velocity) > mMinimumVelocity) {
+                        mScroller.fling(0, getScrollY(), 0, -velocity, 0, 0, 0, getMaxScrollY());
+                        invalidate();
+                    }
+                } else if (mPressedPosition != NO_POSITION) {
+                    mClickedPosition = mPressedPosition;
+                    mPressedPosition = NO_POSITION;
+                    if (!performClick()) {
+                        // View only plays it for an OnClickListener
+                        playSoundEffect(SoundEffectConstants.CLICK);
+                    }
+                }
+                endTouch();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                endTouch();
+                return true;
+        }
+        return true;
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (gainFocus && mSelectedPosition == NO_POSITION && getCount() > 0) {
+            // the first visible item
+            final int first = mItemHeight > 0 ? Math.max(0, (getScrollY() - getPaddingTop()) / mItemHeight) : 0;
+            setSelectedPosition(Math.min(getCount() - 1, first));
+        }
+        if (!gainFocus) {
+            invalidateItem(mPressedPosition);
+            mPressedPosition = NO_POSITION;
+        }
+        invalidateItem(mSelectedPosition);
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        if (!isEnabled() || getCount() == 0) {
+            return super.onKeyDown(keyCode, event);
+        }
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_UP:
+                if (mSelectedPosition <= 0) {
+                    // let the focus move out of the list
+                    return super.onKeyDown(keyCode, event);
+                }
+                setSelectedPosition(mSelectedPosition - 1);
+                return true;
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+                if (mSelectedPosition >= getCount() - 1) {
+                    return super.onKeyDown(keyCode, event);
+                }
+                setSelectedPosition(mSelectedPosition + 1);
+                return true;
+            case KeyEvent.KEYCODE_DPAD_CENTER:
+            case KeyEvent.KEYCODE_ENTER:
+            case KeyEvent.KEYCODE_SPACE:
+                if (mSelectedPosition == NO_POSITION) {
+                    return super.onKeyDown(keyCode, event);
+                }
+                if (event.getRepeatCount() == 0) {
+                    mPressedPosition = mSelectedPosition;
+                    invalidateItem(mPressedPosition);
+                }
+                return true;
+        }
+        return super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    public boolean onKeyUp(int keyCode, KeyEvent event) {
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_CENTER:
+            case KeyEvent.KEYCODE_ENTER:
+            case KeyEvent.KEYCODE_SPACE:
+                if (mPressedPosition == NO_POSITION || mPressedPosition != mSelectedPosition) {
+                    break;
+                }
+                invalidateItem(mPressedPosition);
+                mClickedPosition = mPressedPosition;
+                mPressedPosition = NO_POSITION;
+                if (!performClick()) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                }
+                return true;
+        }
+        return super.onKeyUp(keyCode, event);
+    }
+
+    /**
+     * Selects the item and scrolls just enough to show all of it
+     */
+    private void setSelectedPosition(int position) {
+        invalidateItem(mSelectedPosition);
+        mSelectedPosition = position;
+        invalidateItem(position);
+        final int itemTop = getPaddingTop() + position * mItemHeight;
+        final int visibleTop = getScrollY() + getPaddingTop();
+        final int visibleBottom = getScrollY() + getHeight() - getPaddingBottom();
+        if (itemTop < visibleTop) {
+            scrollTo(0, getScrollY() - (visibleTop - itemTop));
+        } else if (itemTop + mItemHeight > visibleBottom) {
+            scrollTo(0, getScrollY() + itemTop + mItemHeight - visibleBottom);
+        }
+        awakenScrollBars();
+    }
+
+    /**
+     * Toggles the item that was tapped before the OnClickListener is called, as a CheckBox toggles
+     * before its listener
+     */
+    @Override
+    public boolean performClick() {
+        final int position = mClickedPosition;
+        mClickedPosition = NO_POSITION;
+        if (position != NO_POSITION && position < getCount()) {
+            toggleItem(position);
+        }
+        return super.performClick();
+    }
+
+    private void endTouch() {
+        invalidateItem(mPressedPosition);
+        mPressedPosition = NO_POSITION;
+        mDragging = false;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            scrollTo(0, mScroller.getCurrY());
+            awakenScrollBars();
+            invalidate();
+        }
+    }
+
+    @Override
+    protected int computeVerticalScrollRange() {
+        return Math.max(getContentHeight(), getHeight() - getPaddingTop() - getPaddingBottom());
+    }
+
+    @Override
+    protected int computeVerticalScrollOffset() {
+        return getScrollY();
+    }
+
+    @Override
+    protected int computeVerticalScrollExtent() {
+        return getHeight() - getPaddingTop() - getPaddingBottom();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mScroller.forceFinished(true);
+        endTouch();
+    }
+
+    /**
+     * Moves the accessibility hover between the items when touch exploration is on
+     */
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN || !isTouchExplorationEnabled()) {
+            return super.dispatchHoverEvent(event);
+        }
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_HOVER_ENTER:
+            case MotionEvent.ACTION_HOVER_MOVE:
+                setHoveredPosition(getPositionAt(event.getY()));
+                return true;
+            case MotionEvent.ACTION_HOVER_EXIT:
+                setHoveredPosition(NO_POSITION);
+                return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    private boolean isTouchExplorationEnabled() {
+        AccessibilityManager manager = (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+        return manager.isEnabled() && manager.isTouchExplorationEnabled();
+    }
+
+    private void setHoveredPosition(int position) {
+        if (mHoveredPosition == position) {
+            return;
+        }
+        final int previous = mHoveredPosition;
+        mHoveredPosition = position;
+        // enter the new item before leaving the old one, as ExploreByTouchHelper does
+        sendAccessibilityEventForItem(position, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        sendAccessibilityEventForItem(previous, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+    }
+
+    private void sendAccessibilityEventForItem(int position, int eventType) {
+        if (position == NO_POSITION || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        final ViewParent parent = getParent();
+        AccessibilityManager manager = (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+        if (parent == null || !manager.isEnabled()) {
+            return;
+        }
+        AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.setPackageName(getContext().getPackageName());
+        event.setClassName(CheckBox.class.getName());
+        event.setEnabled(isEnabled());
+        event.setChecked(mDataSource.isChecked(position));
+        event.getText().add(mDataSource.getLabel(position));
+        event.setSource(this, position);
+        parent.requestSendAccessibilityEvent(this, event);
+    }
+
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(event);
+        event.setClassName(CheckBoxTextListView.class.getName());
+        event.setItemCount(getCount());
+        event.setScrollable(getMaxScrollY() > 0);
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        info.setClassName(CheckBoxTextListView.class.getName());
+        info.setScrollable(getMaxScrollY() > 0);
+        if (getScrollY() > 0) {
+            info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD);
+        }
+        if (getScrollY() < getMaxScrollY()) {
+            info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+        }
+    }
+
+    @Override
+    public boolean performAccessibilityAction(int action, Bundle arguments) {
+        if (super.performAccessibilityAction(action, arguments)) {
+            return true;
+        }
+        final int page = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (action == AccessibilityNodeInfo.ACTION_SCROLL_FORWARD && getScrollY() < getMaxScrollY()) {
+            scrollTo(0, getScrollY() + page);
+            return true;
+        } else if (action == AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD && getScrollY() > 0) {
+            scrollTo(0, getScrollY() - page);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Exposes the visible items as virtual views, only called from Jelly Bean on
+     */
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        if (mAccessibilityNodeProvider == null) {
+            mAccessibilityNodeProvider = new ItemNodeProvider();
+        }
+        return mAccessibilityNodeProvider;
+    }
+
+    /**
+     * The items as virtual views, the virtual view id is the position. Only loaded from Jelly Bean on.
+     */
+    private final class ItemNodeProvider extends AccessibilityNodeProvider {
+
+        private final int[] mLocation = new int[2];
+
+        @Override
+        public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+            if (virtualViewId == View.NO_ID) {
+                AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(CheckBoxTextListView.this);
+                onInitializeAccessibilityNodeInfo(info);
+                final int count = getCount();
+                if (count > 0 && mItemHeight > 0) {
+                    final int first = Math.max(0, (getScrollY() - getPaddingTop()) / mItemHeight);
+                    final int last = Math.min(count - 1, (getScrollY() + getHeight() - getPaddingTop()) / mItemHeight);
+                    for (int position = first; position <= last; position++) {
+                        info.addChild(CheckBoxTextListView.this, position);
+                    }
+                }
+                return info;
+            }
+            if (virtualViewId < 0 || virtualViewId >= getCount()) {
+                return null;
+            }
+
+            AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain();
+            info.setSource(CheckBoxTextListView.this, virtualViewId);
+            info.setParent(CheckBoxTextListView.this);
+            info.setPackageName(getContext().getPackageName());
+            info.setClassName(CheckBox.class.getName());
+            info.setText(mDataSource.getLabel(virtualViewId));
+            info.setCheckable(true);
+            info.setChecked(mDataSource.isChecked(virtualViewId));
+            info.setEnabled(isEnabled());
+            info.setClickable(true);
+            info.addAction(AccessibilityNodeInfo.ACTION_CLICK);
+            if (mAccessibilityFocusedPosition == virtualViewId) {
+                info.setAccessibilityFocused(true);
+                info.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+            } else {
+                info.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+            }
+
+            final Rect bounds = new Rect();
+            getItemBounds(virtualViewId, bounds);
+            bounds.offset(-getScrollX(), -getScrollY());
+            info.setBoundsInParent(bounds);
+            final boolean visible = bounds.intersect(0, 0, getWidth(), getHeight());
+            info.setVisibleToUser(visible && isShown());
+            getLocationOnScreen(mLocation);
+            bounds.offset(mLocation[0], mLocation[1]);
+            info.setBoundsInScreen(bounds);
+            return info;
+        }
+
+        @Override
+        public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+            if (virtualViewId == View.NO_ID) {
+                return performAccessibilityAction(action, arguments);
+            }
+            if (virtualViewId < 0 || virtualViewId >= getCount()) {
+                return false;
+            }
+            switch (action) {
+                case AccessibilityNodeInfo.ACTION_CLICK:
+                    toggleItem(virtualViewId);
+                    return true;
+                case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                    if (mAccessibilityFocusedPosition == virtualViewId) {
+                        return false;
+                    }
+                    sendAccessibilityEventForItem(mAccessibilityFocusedPosition,
+                            AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                    mAccessibilityFocusedPosition = virtualViewId;
+                    sendAccessibilityEventForItem(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                    return true;
+                case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                    if (mAccessibilityFocusedPosition != virtualViewId) {
+                        return false;
+                    }
+                    mAccessibilityFocusedPosition = NO_POSITION;
+                    sendAccessibilityEventForItem(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optional timings of the CheckBoxText and FlatCheckBoxText hot paths: the constructor (and its
+ * setAttrs and build steps), onMeasure, onLayout, drawing and the time from a click to the
+ * OnCheckedChangeListener returning. Each is counted per orientation across every instance.
+ * <p/>
+ * It is off by default. When off the views only read a static boolean, nothing is timed or
+ * allocated. When on the counters are lock free atomics and each phase also keeps a log2 histogram
+ * of the durations in microseconds (bucket n holds durations in [2^(n-1), 2^n) us).
+ * <p/>
+ * <pre>
+ * CheckBoxTextMetrics.setEnabled(true);
+ * ...
+ * Log.d(TAG, CheckBoxTextMetrics.snapshot().toString());
+ * </pre>
+ */
+public final class CheckBoxTextMetrics {
+
+    public static final int CONSTRUCTOR = 0;
+    public static final int SET_ATTRS = 1;
+    public static final int BUILD = 2;
+    public static final int MEASURE = 3;
+    public static final int LAYOUT = 4;
+    public static final int DRAW = 5;
+    public static final int CLICK = 6;
+
+    public static final int PHASE_COUNT = 7;
+    public static final int ORIENTATION_COUNT = 4;
+    public static final int BUCKET_COUNT = 20;
+
+    private static final String[] PHASE_NAMES = {
+            "constructor", "setAttrs", "build", "measure", "layout", "draw", "click"
+    };
+    private static final String[] ORIENTATION_NAMES = {"right", "left", "above", "below"};
+
+    private static volatile boolean sEnabled;
+
+    private static final AtomicLongArray sCounts = new AtomicLongArray(PHASE_COUNT * ORIENTATION_COUNT);
+    private static final AtomicLongArray sNanos = new AtomicLongArray(PHASE_COUNT * ORIENTATION_COUNT);
+    private static final AtomicLongArray sHistogram = new AtomicLongArray(PHASE_COUNT * ORIENTATION_COUNT * BUCKET_COUNT);
+
+    private CheckBoxTextMetrics() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @return the start time to pass to {@link #record(int, int, long)}, 0 when disabled
+     */
+    public static long start() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start, does nothing if start is 0
+     *
+     * @param phase       one of the phase constants
+     * @param orientation the orientation of the view
+     * @param start       the value returned by {@link #start()}
+     */
+    public static void record(int phase, int orientation, long start) {
+        if (start == 0) {
+            return;
+        }
+        final long nanos = System.nanoTime() - start;
+        if (orientation < 0 || orientation >= ORIENTATION_COUNT) {
+            orientation = CheckBoxText.TEXT_RIGHT;
+        }
+        final int index = phase * ORIENTATION_COUNT + orientation;
+        sCounts.incrementAndGet(index);
+        sNanos.addAndGet(index, nanos);
+        sHistogram.incrementAndGet(index * BUCKET_COUNT + bucket(nanos));
+    }
+
+    /**
+     * Clears every counter
+     */
+    public static void reset() {
+        for (int i = 0; i < sCounts.length(); i++) {
+            sCounts.set(i, 0);
+            sNanos.set(i, 0);
+        }
+        for (int i = 0; i < sHistogram.length(); i++) {
+            sHistogram.set(i, 0);
+        }
+    }
+
+    /**
+     * @return a copy of the counters, the counters keep running
+     */
+    public static Snapshot snapshot() {
+        long[] counts = new long[sCounts.length()];
+        long[] nanos = new long[sNanos.length()];
+        long[] histogram = new long[sHistogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = sCounts.get(i);
+            nanos[i] = sNanos.get(i);
+        }
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = sHistogram.get(i);
+        }
+        return new Snapshot(counts, nanos, histogram);
+    }
+
+    private static int bucket(long nanos) {
+        final long micros = nanos / 1000;
+        final int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * The counters at one point in time
+     */
+    public static final class Snapshot {
+
+        private final long[] mCounts;
+        private final long[] mNanos;
+        private final long[] mHistogram;
+
+        private Snapshot(long[] counts, long[] nanos, long[] histogram) {
+            mCounts = counts;
+            mNanos = nanos;
+            mHistogram = histogram;
+        }
+
+        public long getCount(int phase, int orientation) {
+            return mCounts[phase * ORIENTATION_COUNT + orientation];
+        }
+
+        public long getTotalNanos(int phase, int orientation) {
+            return mNanos[phase * ORIENTATION_COUNT + orientation];
+        }
+
+        /**
+         * @return the average in nanoseconds or 0 if nothing was recorded
+         */
+        public long getAverageNanos(int phase, int orientation) {
+            long count = getCount(phase, orientation);
+            return count == 0 ? 0 : getTotalNanos(phase, orientation) / count;
+        }
+
+        /**
+         * @param phase
+         * @param orientation
+         * @param bucket      0 to BUCKET_COUNT - 1
+         * @return the number of durations in the bucket
+         */
+        public long getHistogramCount(int phase, int orientation, int bucket) {
+            return mHistogram[(phase * ORIENTATION_COUNT + orientation) * BUCKET_COUNT + bucket];
+        }
+
+        /**
+         * @return one line per phase and orientation that has been recorded: count, total and
+         * average time and the non empty histogram buckets
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("CheckBoxTextMetrics");
+            for (int phase = 0; phase < PHASE_COUNT; phase++) {
+                for (int orientation = 0; orientation < ORIENTATION_COUNT; orientation++) {
+                    long count = getCount(phase, orientation);
+                    if (count == 0) {
+                        continue;
+                    }
+                    builder.append('\n').append(PHASE_NAMES[phase]).append('/').append(ORIENTATION_NAMES[orientation])
+                            .append(" count=").append(count)
+                            .append(" totalUs=").append(getTotalNanos(phase, orientation) / 1000)
+                            .append(" avgUs=").append(getAverageNanos(phase, orientation) / 1000)
+                            .append(" histogramUs={");
+                    boolean first = true;
+                    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                        long bucketCount = getHistogramCount(phase, orientation, bucket);
+                        if (bucketCount == 0) {
+                            continue;
+                        }
+                        if (!first) {
+                            builder.append(", ");
+                        }
+                        first = false;
+                        builder.append("<").append(1L << bucket).append(':').append(bucketCount);
+                    }
+                    builder.append('}');
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+
+/**
+ * A {@link CheckBoxTextAdapter} showing the filtered options of a {@link CheckBoxTextOptionSet}.
+ * The rows are the latest results and their checked state is the option set's, so checked options
+ * stay checked while the filter changes.
+ * <pre>
+ * CheckBoxTextOptionAdapter adapter = new CheckBoxTextOptionAdapter(context, CheckBoxText.TEXT_RIGHT, options);
+ * options.setOnResultsListener(adapter);
+ * listView.setAdapter(adapter);
+ * </pre>
+ */
+public class CheckBoxTextOptionAdapter extends CheckBoxTextAdapter implements CheckBoxTextOptionSet.OnResultsListener {
+
+    private CheckBoxTextOptionSet.Results mResults;
+
+    /**
+     * Starts out showing every option
+     *
+     * @param context
+     * @param orientation the orientation of the rows
+     * @param optionSet
+     */
+    public CheckBoxTextOptionAdapter(Context context, int orientation, CheckBoxTextOptionSet optionSet) {
+        super(context, orientation, optionSet.getCheckedIds());
+        mResults = optionSet.filterNow("");
+    }
+
+    @Override
+    public void onResults(CheckBoxTextOptionSet.Results results) {
+        mResults = results;
+        notifyDataSetChanged();
+    }
+
+    public CheckBoxTextOptionSet.Results getResults() {
+        return mResults;
+    }
+
+    @Override
+    public CharSequence getText(int position) {
+        return mResults.getLabel(position);
+    }
+
+    @Override
+    public int getCount() {
+        return mResults.getCount();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return mResults.getLabel(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mResults.getId(position);
+    }
+}
@@ -0,0 +1,397 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A large set of options (id + label) that can be filtered as the user types, for pickers of
+ * CheckBoxText, FlatCheckBoxText or a CheckBoxTextListView.
+ * <p/>
+ * The labels are indexed once by their lower case trigrams, kept as one sorted long[] of
+ * (trigram hash, option) pairs so nothing is boxed. A query of three or more characters only looks
+ * at the options sharing its rarest trigram. A query that contains the previous query (the user
+ * typed another character) only looks at the previous results, so each keystroke narrows instead of
+ * rescanning. Matching is a case insensitive substring match.
+ * <p/>
+ * {@link #filter(CharSequence)} runs on a background executor, a newer query cancels the one still
+ * running and only the results of the latest query are delivered, on the main thread. The checked
+ * state is kept by option id in a {@link CheckedIdSet} so it does not change with the filter.
+ * <p/>
+ * <pre>
+ * options.setOnResultsListener(adapter);
+ * searchField.addTextChangedListener(new TextWatcher() {
+ *     public void afterTextChanged(Editable s) {
+ *         options.filter(s);
+ *     }
+ *     ...
+ * });
+ * </pre>
+ */
+public class CheckBoxTextOptionSet {
+
+    /**
+     * Called on the main thread with the results of the latest query
+     */
+    public interface OnResultsListener {
+        void onResults(Results results);
+    }
+
+    private static final String TAG = "CheckBoxTextOptionSet";
+
+    /**
+     * The length of the indexed n-grams
+     */
+    private static final int GRAM = 3;
+    /**
+     * How many options are matched between checks for cancellation
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+    /**
+     * The generation passed by {@link #filterNow(CharSequence)}
+     */
+    private static final int NOT_CANCELLABLE = -1;
+
+    private final long[] mIds;
+    private final CharSequence[] mLabels;
+    private final String[] mLowerLabels;
+    /**
+     * (trigram hash << 32 | option index), sorted
+     */
+    private final long[] mIndex;
+    private final int[] mAll;
+
+    private final CheckedIdSet mCheckedIds = new CheckedIdSet();
+    private final ExecutorService mExecutor;
+    private final boolean mOwnsExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private OnResultsListener mOnResultsListener;
+    private Future<?> mPending;
+    private volatile int mGeneration;
+    /**
+     * The last completed results, the base for narrowing the next query
+     */
+    private volatile Results mLastResults;
+
+    /**
+     * Filters on its own background thread, call {@link #shutdown()} when done
+     *
+     * @param ids    the stable ids of the options, used for the checked state
+     * @param labels the labels, same length as ids
+     */
+    public CheckBoxTextOptionSet(long[] ids, CharSequence[] labels) {
+        this(ids, labels, Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        }), true);
+    }
+
+    /**
+     * @param ids      the stable ids of the options, used for the checked state
+     * @param labels   the labels, same length as ids
+     * @param executor runs the filtering, it is not shut down by {@link #shutdown()}
+     */
+    public CheckBoxTextOptionSet(long[] ids, CharSequence[] labels, ExecutorService executor) {
+        this(ids, labels, executor, false);
+    }
+
+    private CheckBoxTextOptionSet(long[] ids, CharSequence[] labels, ExecutorService executor, boolean ownsExecutor) {
+        if (ids.length != labels.length) {
+            throw new IllegalArgumentException("ids: " + ids.length + " labels: " + labels.length);
+        }
+        mIds = ids;
+        mLabels = labels;
+        mExecutor = executor;
+        mOwnsExecutor = ownsExecutor;
+
+        final int count = labels.length;
+        mLowerLabels = new String[count];
+        mAll = new int[count];
+        int grams = 0;
+        for (int i = 0; i < count; i++) {
+            mLowerLabels[i] = labels[i].toString().toLowerCase();
+            mAll[i] = i;
+            grams += Math.max(0, mLowerLabels[i].length() - GRAM + 1);
+        }
+        long[] index = new long[grams];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            final String label = mLowerLabels[i];
+            for (int start = 0; start + GRAM <= label.length(); start++) {
+                index[size++] = ((long) gramHash(label, start) << 32) | i;
+            }
+        }
+        Arrays.sort(index, 0, size);
+        // drop the repeats of a trigram within one label
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || index[unique - 1] != index[i]) {
+                index[unique++] = index[i];
+            }
+        }
+        if (unique < index.length) {
+            long[] trimmed = new long[unique];
+            System.arraycopy(index, 0, trimmed, 0, unique);
+            index = trimmed;
+        }
+        mIndex = index;
+        mLastResults = new Results(this, "", mAll, count);
+    }
+
+    private static int gramHash(String s, int start) {
+        // 30 bits so (hash + 1) << 32 stays positive
+        return ((s.charAt(start) * 31 + s.charAt(start + 1)) * 31 + s.charAt(start + 2)) & 0x3fffffff;
+    }
+
+    public int size() {
+        return mIds.length;
+    }
+
+    public long getId(int option) {
+        return mIds[option];
+    }
+
+    public CharSequence getLabel(int option) {
+        return mLabels[option];
+    }
+
+    /**
+     * @return the checked option ids, the same set whatever the filter
+     */
+    public CheckedIdSet getCheckedIds() {
+        return mCheckedIds;
+    }
+
+    public boolean isChecked(long id) {
+        return mCheckedIds.contains(id);
+    }
+
+    public void setChecked(long id, boolean checked) {
+        mCheckedIds.set(id, checked);
+    }
+
+    public void setOnResultsListener(OnResultsListener listener) {
+        mOnResultsListener = listener;
+    }
+
+    /**
+     * Filters the options on the background executor, the listener is called on the main thread
+     * unless a newer query comes in first. Call it from the main thread.
+     *
+     * @param query matched case insensitively anywhere in the labels, empty for every option
+     */
+    public void filter(CharSequence query) {
+        if (mPending != null) {
+            mPending.cancel(true);
+        }
+        final int generation = ++mGeneration;
+        final String lowerQuery = query != null ? query.toString().toLowerCase() : "";
+        mPending = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final Results results;
+                try {
+                    results = match(lowerQuery, generation);
+                } catch (CancellationException e) {
+                    return;
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            mPending = null;
+                            if (mOnResultsListener != null) {
+                                mOnResultsListener.onResults(results);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Filters on the calling thread
+     *
+     * @param query matched case insensitively anywhere in the labels, empty for every option
+     * @return
+     */
+    public Results filterNow(CharSequence query) {
+        return match(query != null ? query.toString().toLowerCase() : "", NOT_CANCELLABLE);
+    }
+
+    /**
+     * Stops the background thread if the option set made it
+     */
+    public void shutdown() {
+        if (mPending != null) {
+            mPending.cancel(true);
+            mPending = null;
+        }
+        if (mOwnsExecutor) {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @throws CancellationException if a newer query came in while matching
+     */
+    private Results match(String query, int generation) {
+        if (query.length() == 0) {
+            return new Results(this, query, mAll, mAll.length);
+        }
+
+        final int[] candidates;
+        final int candidateCount;
+        final Results last = mLastResults;
+        if (query.contains(last.mQuery)) {
+            // narrow the previous results
+            candidates = last.mOptions;
+            candidateCount = last.mCount;
+        } else if (query.length() >= GRAM) {
+            candidates = lookupRarestGram(query);
+            candidateCount = candidates.length;
+        } else {
+            candidates = mAll;
+            candidateCount = mAll.length;
+        }
+
+        int[] matches = new int[Math.min(candidateCount, 64)];
+        int count = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            if ((i & (CANCEL_CHECK_INTERVAL - 1)) == 0 && generation != NOT_CANCELLABLE && generation != mGeneration) {
+                throw new CancellationException(query);
+            }
+            final int option = candidates[i];
+            if (mLowerLabels[option].contains(query)) {
+                if (count == matches.length) {
+                    int[] grown = new int[count * 2];
+                    System.arraycopy(matches, 0, grown, 0, count);
+                    matches = grown;
+                }
+                matches[count++] = option;
+            }
+        }
+        Results results = new Results(this, query, matches, count);
+        if (generation == NOT_CANCELLABLE || generation == mGeneration) {
+            mLastResults = results;
+        }
+        return results;
+    }
+
+    /**
+     * @return the options having the query's rarest trigram, in option order
+     */
+    private int[] lookupRarestGram(String query) {
+        int bestFrom = 0;
+        int bestTo = mIndex.length;
+        for (int start = 0; start + GRAM <= query.length(); start++) {
+            final long gram = gramHash(query, start);
+            final int from = lowerBound(gram << 32);
+            final int to = lowerBound((gram + 1) << 32);
+            if (to - from < bestTo - bestFrom) {
+                bestFrom = from;
+                bestTo = to;
+            }
+        }
+        int[] options = new int[bestTo - bestFrom];
+        for (int i = bestFrom; i < bestTo; i++) {
+            options[i - bestFrom] = (int) mIndex[i];
+        }
+        return options;
+    }
+
+    private int lowerBound(long key) {
+        // the entries are unique, a hit is the first entry of its trigram
+        final int index = Arrays.binarySearch(mIndex, key);
+        return index >= 0 ? index : ~index;
+    }
+
+    /**
+     * The options matching one query, in the order they were given. Also a
+     * {@link CheckBoxTextListView.DataSource} so it can be shown as is.
+     */
+    public static final class Results implements CheckBoxTextListView.DataSource {
+
+        private final CheckBoxTextOptionSet mOptionSet;
+        private final String mQuery;
+        private final int[] mOptions;
+        private final int mCount;
+
+        private Results(CheckBoxTextOptionSet optionSet, String query, int[] options, int count) {
+            mOptionSet = optionSet;
+            mQuery = query;
+            mOptions = options;
+            mCount = count;
+        }
+
+        /**
+         * @return the lower case query
+         */
+        public String getQuery() {
+            return mQuery;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * @param position
+         * @return the index of the option in the option set
+         */
+        public int getOption(int position) {
+            if (position < 0 || position >= mCount) {
+                throw new IndexOutOfBoundsException("position: " + position + " count: " + mCount);
+            }
+            return mOptions[position];
+        }
+
+        public long getId(int position) {
+            return mOptionSet.mIds[getOption(position)];
+        }
+
+        @Override
+        public CharSequence getLabel(int position) {
+            return mOptionSet.mLabels[getOption(position)];
+        }
+
+        @Override
+        public boolean isChecked(int position) {
+            return mOptionSet.isChecked(getId(position));
+        }
+
+        @Override
+        public void setChecked(int position, boolean checked) {
+            mOptionSet.setChecked(getId(position), checked);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.widget.CompoundButton;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CheckBoxTextPersister saves the checked states of a group of CheckBoxTexts under one key of a
+ * {@link CheckBoxTextStorage}, instead of one synchronous SharedPreferences write per toggle.
+ * <p/>
+ * Each box has an index in the group, the states are kept as one bitset. A change only sets a bit
+ * on the calling thread, the bitset is written on a background thread once the changes have stopped
+ * for the delay (or at the latest after the max delay when they don't), so a burst of toggles ends
+ * up in one write. The saved states are read on the background thread, the first time one is
+ * needed or ahead of time with {@link #preload()}. {@link #bind(CheckBoxText, int)} never waits for
+ * them: until they are read a bound view shows unchecked and it is bound again with its saved state
+ * once they are, changes made in between are kept.
+ * <p/>
+ * The persister listens with {@link CheckBoxText#addOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener)},
+ * so a bound view can also be registered with a {@link CheckBoxTextBatcher}, attached to a
+ * {@link CheckBoxTextGroup} or be a row of a {@link CheckBoxTextAdapter}. They all use the view's
+ * stable id, bind sets it to the index, give the others the same id.
+ * <pre>
+ * persister = new CheckBoxTextPersister(new FileCheckBoxTextStorage(dir), "notifications");
+ * for (int i = 0; i < views.length; i++) {
+ *     persister.bind(views[i], i);
+ * }
+ * ...
+ * // in onDestroy
+ * persister.close();
+ * </pre>
+ */
+public class CheckBoxTextPersister implements CompoundButton.OnCheckedChangeListener {
+
+    private static final String TAG = "CheckBoxTextPersister";
+
+    public static final long DEFAULT_DELAY_MS = 500;
+    public static final long DEFAULT_MAX_DELAY_MS = 2000;
+
+    private final CheckBoxTextStorage mStorage;
+    private final String mKey;
+    private final ScheduledExecutorService mExecutor;
+    private final boolean mOwnsExecutor;
+
+    private final Object mLock = new Object();
+    /**
+     * Held while reading the storage, without mLock so the UI thread is never blocked by it
+     */
+    private final Object mLoadLock = new Object();
+    /**
+     * Held while writing so the snapshots reach the storage in order
+     */
+    private final Object mWriteLock = new Object();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The checked states, null until they are read
+     */
+    private long[] mWords;
+    private boolean mLoadScheduled;
+    /**
+     * The changes made before the states were read, applied on top of them
+     */
+    private final SparseBooleanArray mUnloadedChanges = new SparseBooleanArray();
+    /**
+     * The views bound before the states were read, bound again on the UI thread once they are
+     */
+    private final ArrayList<CheckBoxText> mUnloadedViews = new ArrayList<CheckBoxText>();
+    private boolean mDirty;
+    private long mDirtySince;
+    private long mLastChange;
+    private ScheduledFuture<?> mPendingWrite;
+    private long mDelayMs = DEFAULT_DELAY_MS;
+    private long mMaxDelayMs = DEFAULT_MAX_DELAY_MS;
+    private boolean mClosed;
+
+    private CompoundButton.OnCheckedChangeListener mOnCheckedChangeListener;
+
+    private final Runnable mWrite = new Runnable() {
+        @Override
+        public void run() {
+            writePending(false);
+        }
+    };
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            writePending(true);
+        }
+    };
+
+    private final Runnable mLoad = new Runnable() {
+        @Override
+        public void run() {
+            load();
+        }
+    };
+
+    private final Runnable mRebind = new Runnable() {
+        @Override
+        public void run() {
+            rebind();
+        }
+    };
+
+    /**
+     * Writes on its own background thread, call {@link #close()} when done
+     *
+     * @param storage
+     * @param key     the key of the group in the storage
+     */
+    public CheckBoxTextPersister(CheckBoxTextStorage storage, String key) {
+        this(storage, key, Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        }), true);
+    }
+
+    /**
+     * @param storage
+     * @param key      the key of the group in the storage
+     * @param executor reads and writes the storage, it is not shut down by {@link #close()}
+     */
+    public CheckBoxTextPersister(CheckBoxTextStorage storage, String key, ScheduledExecutorService executor) {
+        this(storage, key, executor, false);
+    }
+
+    private CheckBoxTextPersister(CheckBoxTextStorage storage, String key, ScheduledExecutorService executor,
+                                  boolean ownsExecutor) {
+        mStorage = storage;
+        mKey = key;
+        mExecutor = executor;
+        mOwnsExecutor = ownsExecutor;
+    }
+
+    /**
+     * @param delayMs    how long the changes have to stop before they are written
+     * @param maxDelayMs the longest a change waits to be written while the changes go on
+     */
+    public void setDelay(long delayMs, long maxDelayMs) {
+        synchronized (mLock) {
+            mDelayMs = delayMs;
+            mMaxDelayMs = Math.max(delayMs, maxDelayMs);
+        }
+    }
+
+    /**
+     * Sets the view's checked state from the saved states and saves its changes, the persister is
+     * added to its OnCheckedChangeListeners and its stable id is set to the index. Does not wait for
+     * the saved states: until they are read the view is unchecked (or shows a change made since) and
+     * it is bound again once they are. The view's listeners are not called for either.
+     *
+     * @param view
+     * @param index the index of the box in the group
+     */
+    public void bind(CheckBoxText view, int index) {
+        view.removeOnCheckedChangeListener(this);
+        final boolean checked;
+        final boolean loaded;
+        synchronized (mLock) {
+            loaded = mWords != null;
+            if (loaded) {
+                checked = getBit(index);
+            } else {
+                checked = mUnloadedChanges.get(index);
+                if (!mUnloadedViews.contains(view)) {
+                    mUnloadedViews.add(view);
+                }
+            }
+        }
+        if (!loaded) {
+            preload();
+        }
+        view.bind(view.getLabel(), checked, index);
+        view.addOnCheckedChangeListener(this);
+    }
+
+    /**
+     * Stops saving the view's changes
+     *
+     * @param view
+     */
+    public void unbind(CheckBoxText view) {
+        view.removeOnCheckedChangeListener(this);
+        synchronized (mLock) {
+            mUnloadedViews.remove(view);
+        }
+    }
+
+    /**
+     * The listener of the bound views, called after the change is saved
+     *
+     * @param listener
+     */
+    public void setOnCheckedChangeListener(CompoundButton.OnCheckedChangeListener listener) {
+        mOnCheckedChangeListener = listener;
+    }
+
+    @Override
+    public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+        final View parent = (View) buttonView.getParent();
+        if (parent instanceof CheckBoxText) {
+            final long index = ((CheckBoxText) parent).getStableId();
+            if (index >= 0) {
+                setChecked((int) index, isChecked);
+            }
+        }
+        if (mOnCheckedChangeListener != null) {
+            mOnCheckedChangeListener.onCheckedChanged(buttonView, isChecked);
+        }
+    }
+
+    /**
+     * @param index
+     * @return the saved or changed state of the box. The first time it waits for the saved states to
+     * be read, check {@link #isLoaded()} before calling it from the UI thread.
+     */
+    public boolean isChecked(int index) {
+        load();
+        synchronized (mLock) {
+            return getBit(index);
+        }
+    }
+
+    /**
+     * @return true once the saved states are read
+     */
+    public boolean isLoaded() {
+        synchronized (mLock) {
+            return mWords != null;
+        }
+    }
+
+    /**
+     * Changes the state of a box, it is written after the delay. Does not wait for the saved states,
+     * a change made before they are read is applied on top of them.
+     *
+     * @param index
+     * @param checked
+     */
+    public void setChecked(int index, boolean checked) {
+        synchronized (mLock) {
+            if (mWords == null) {
+                mUnloadedChanges.put(index, checked);
+            } else {
+                setBit(index, checked);
+                return;
+            }
+        }
+        preload();
+    }
+
+    /**
+     * Reads the saved states on the background thread now instead of when first needed
+     */
+    public void preload() {
+        synchronized (mLock) {
+            if (mWords != null || mLoadScheduled || mClosed) {
+                return;
+            }
+            mLoadScheduled = true;
+            // under mLock, so close() cannot shut the executor down in between
+            mExecutor.execute(mLoad);
+        }
+    }
+
+    /**
+     * Writes the changes on the background thread now instead of after the delay, does nothing
+     * once the persister is closed (close() already wrote them)
+     */
+    public void flush() {
+        synchronized (mLock) {
+            if (mClosed) {
+                return;
+            }
+            mExecutor.execute(mFlush);
+        }
+    }
+
+    /**
+     * Writes the changes and stops the background thread if the persister made it, the bound
+     * views are no longer saved after this
+     */
+    public void close() {
+        synchronized (mLock) {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            if (mPendingWrite != null) {
+                mPendingWrite.cancel(false);
+                mPendingWrite = null;
+            }
+            mExecutor.execute(mFlush);
+        }
+        if (mOwnsExecutor) {
+            mExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Reads the saved states if they are not yet, on the calling thread. The storage is read
+     * without mLock so bind and setChecked don't wait for it.
+     */
+    private void load() {
+        synchronized (mLoadLock) {
+            synchronized (mLock) {
+                if (mWords != null) {
+                    return;
+                }
+            }
+            long[] words = null;
+            try {
+                words = mStorage.read(mKey);
+            } catch (IOException e) {
+                Log.w(TAG, "Can't read " + mKey, e);
+            }
+            final boolean rebind;
+            synchronized (mLock) {
+                mWords = words != null ? words : new long[1];
+                for (int i = 0, count = mUnloadedChanges.size(); i < count; i++) {
+                    setBit(mUnloadedChanges.keyAt(i), mUnloadedChanges.valueAt(i));
+                }
+                mUnloadedChanges.clear();
+                rebind = !mUnloadedViews.isEmpty();
+            }
+            if (rebind) {
+                mMainHandler.post(mRebind);
+            }
+        }
+    }
+
+    /**
+     * Binds the views bound before the states were read again, on the UI thread
+     */
+    private void rebind() {
+        final CheckBoxText[] views;
+        synchronized (mLock) {
+            views = mUnloadedViews.toArray(new CheckBoxText[mUnloadedViews.size()]);
+            mUnloadedViews.clear();
+        }
+        for (CheckBoxText view : views) {
+            // its index may have changed by a later bind
+            final long index = view.getStableId();
+            if (index >= 0) {
+                final boolean checked;
+                synchronized (mLock) {
+                    checked = getBit((int) index);
+                }
+                view.bind(view.getLabel(), checked, index);
+            }
+        }
+    }
+
+    /**
+     * Call with mLock held and the states read
+     */
+    private boolean getBit(int index) {
+        final int word = index >> 6;
+        return word < mWords.length && (mWords[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Call with mLock held and the states read, schedules the write if the bit changed
+     */
+    private void setBit(int index, boolean checked) {
+        final int word = index >> 6;
+        if (word >= mWords.length) {
+            if (!checked) {
+                return;
+            }
+            long[] grown = new long[Math.max(word + 1, mWords.length * 2)];
+            System.arraycopy(mWords, 0, grown, 0, mWords.length);
+            mWords = grown;
+        }
+        final long before = mWords[word];
+        final long after = checked ? before | (1L << index) : before & ~(1L << index);
+        if (before == after) {
+            return;
+        }
+        mWords[word] = after;
+
+        final long now = SystemClock.uptimeMillis();
+        mLastChange = now;
+        if (!mDirty) {
+            mDirty = true;
+            mDirtySince = now;
+        }
+        // one pending write at a time, it pushes itself back while the changes go on
+        if (mPendingWrite == null && !mClosed) {
+            mPendingWrite = mExecutor.schedule(mWrite, mDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void writePending(boolean now) {
+        synchronized (mWriteLock) {
+            final long[] snapshot;
+            synchronized (mLock) {
+                if (now && mPendingWrite != null) {
+                    mPendingWrite.cancel(false);
+                }
+                mPendingWrite = null;
+                if (!mDirty) {
+                    return;
+                }
+                if (!now && !mClosed) {
+                    final long uptime = SystemClock.uptimeMillis();
+                    final long due = Math.min(mLastChange + mDelayMs, mDirtySince + mMaxDelayMs);
+                    if (due > uptime) {
+                        // changed again since this was scheduled
+                        mPendingWrite = mExecutor.schedule(mWrite, due - uptime, TimeUnit.MILLISECONDS);
+                        return;
+                    }
+                }
+                snapshot = mWords.clone();
+                mDirty = false;
+            }
+            try {
+                mStorage.write(mKey, snapshot);
+            } catch (IOException e) {
+                // tried again with the next change
+                Log.w(TAG, "Can't write " + mKey, e);
+                synchronized (mLock) {
+                    if (!mDirty) {
+                        mDirty = true;
+                        mDirtySince = SystemClock.uptimeMillis();
+                    }
+                }
+            }
+        }
+    }
+}
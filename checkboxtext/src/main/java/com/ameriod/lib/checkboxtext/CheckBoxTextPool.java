@@ -0,0 +1,222 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CheckBoxTextPool builds CheckBoxTexts ahead of time on a background thread so a screen with a lot
+ * of them does not have to run every constructor on the UI thread.
+ * <p/>
+ * Call {@link #prefetch(int, int, int)} early (e.g. in onCreate before the data is loaded) with the
+ * orientation, TextAppearance and how many are needed, then {@link #obtain(int, int)} on the UI
+ * thread when building the screen. A miss builds the CheckBoxText right away so obtain always
+ * returns a view.
+ * <p/>
+ * The pooled views are never attached to a window while they are built, so nothing is posted to
+ * the UI thread from the background. The only UI thread work left is done in obtain when the view
+ * is handed out (syncing the drawable states) before it is added to a parent.
+ * <p/>
+ * The pool has to be made with the Activity context so the views get the right theme.
+ */
+public class CheckBoxTextPool {
+
+    private static final String TAG = "CheckBoxTextPool";
+
+    private final Context mContext;
+    private final Executor mExecutor;
+    private final boolean mOwnsExecutor;
+
+    private final ConcurrentHashMap<Long, Queue<Entry>> mPool = new ConcurrentHashMap<Long, Queue<Entry>>();
+
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+    private final AtomicLong mNanosSaved = new AtomicLong();
+
+    private volatile boolean mShutdown;
+
+    /**
+     * A pooled view and how long it took to build
+     */
+    private static final class Entry {
+        final CheckBoxText view;
+        final long buildNanos;
+
+        Entry(CheckBoxText view, long buildNanos) {
+            this.view = view;
+            this.buildNanos = buildNanos;
+        }
+    }
+
+    /**
+     * Builds the views on a single low priority thread owned by the pool
+     *
+     * @param context the Activity context
+     */
+    public CheckBoxTextPool(Context context) {
+        this(context, Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        }), true);
+    }
+
+    /**
+     * @param context  the Activity context
+     * @param executor runs the construction, never the UI thread
+     */
+    public CheckBoxTextPool(Context context, Executor executor) {
+        this(context, executor, false);
+    }
+
+    private CheckBoxTextPool(Context context, Executor executor, boolean ownsExecutor) {
+        mContext = context;
+        mExecutor = executor;
+        mOwnsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Builds count CheckBoxTexts in the background
+     *
+     * @param orientation         TEXT_RIGHT, TEXT_LEFT, TEXT_ABOVE or TEXT_BELOW
+     * @param textAppearanceResId the TextAppearance to apply, 0 to keep the default
+     * @param count
+     */
+    public void prefetch(final int orientation, final int textAppearanceResId, int count) {
+        final Queue<Entry> queue = getQueue(orientation, textAppearanceResId);
+        for (int i = 0; i < count; i++) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mShutdown) {
+                        return;
+                    }
+                    final long start = System.nanoTime();
+                    CheckBoxText view = build(orientation, textAppearanceResId);
+                    queue.offer(new Entry(view, System.nanoTime() - start));
+                }
+            });
+        }
+    }
+
+    /**
+     * Hands out a prefetched CheckBoxText or builds one if there is none ready. Must be called on
+     * the UI thread.
+     *
+     * @param orientation         TEXT_RIGHT, TEXT_LEFT, TEXT_ABOVE or TEXT_BELOW
+     * @param textAppearanceResId the TextAppearance to apply, 0 to keep the default
+     * @return
+     */
+    public CheckBoxText obtain(int orientation, int textAppearanceResId) {
+        Entry entry = getQueue(orientation, textAppearanceResId).poll();
+        if (entry == null) {
+            mMisses.incrementAndGet();
+            return build(orientation, textAppearanceResId);
+        }
+        mHits.incrementAndGet();
+        mNanosSaved.addAndGet(entry.buildNanos);
+        // the deferred attach step, the states were set from the background thread
+        entry.view.refreshDrawableState();
+        return entry.view;
+    }
+
+    /**
+     * @param orientation
+     * @param textAppearanceResId
+     * @return the number of views ready for that orientation and TextAppearance
+     */
+    public int getAvailable(int orientation, int textAppearanceResId) {
+        return getQueue(orientation, textAppearanceResId).size();
+    }
+
+    /**
+     * @return how many obtain calls got a prefetched view
+     */
+    public int getHits() {
+        return mHits.get();
+    }
+
+    /**
+     * @return how many obtain calls had to build the view on the UI thread
+     */
+    public int getMisses() {
+        return mMisses.get();
+    }
+
+    /**
+     * @return the construction time of every view handed out from the pool, in nanoseconds, the
+     * time that would have been spent on the UI thread
+     */
+    public long getConstructionNanosSaved() {
+        return mNanosSaved.get();
+    }
+
+    /**
+     * Logs the hits, misses and time saved
+     */
+    public void logMetrics() {
+        Log.d(TAG, "hits: " + getHits() + " misses: " + getMisses() + " saved: "
+                + (getConstructionNanosSaved() / 1000000f) + "ms");
+    }
+
+    /**
+     * Drops the pooled views and stops the background thread if the pool made it. Call from
+     * onDestroy so the pool does not hold on to the Activity.
+     */
+    public void shutdown() {
+        mShutdown = true;
+        mPool.clear();
+        if (mOwnsExecutor) {
+            ((ExecutorService) mExecutor).shutdownNow();
+        }
+    }
+
+    private CheckBoxText build(int orientation, int textAppearanceResId) {
+        CheckBoxText view = new CheckBoxText(mContext, orientation);
+        if (textAppearanceResId != 0) {
+            view.setTextAppearance(mContext, textAppearanceResId);
+        }
+        return view;
+    }
+
+    private Queue<Entry> getQueue(int orientation, int textAppearanceResId) {
+        final Long key = ((long) orientation << 32) | (textAppearanceResId & 0xffffffffL);
+        Queue<Entry> queue = mPool.get(key);
+        if (queue == null) {
+            queue = new ConcurrentLinkedQueue<Entry>();
+            Queue<Entry> existing = mPool.putIfAbsent(key, queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+        return queue;
+    }
+}
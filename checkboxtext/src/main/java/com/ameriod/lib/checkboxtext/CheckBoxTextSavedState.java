@@ -0,0 +1,73 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextUtils;
+import android.view.View;
+
+/**
+ * The saved state of a CheckBoxText or FlatCheckBoxText: one int of flags for the checked state and
+ * the text only when it was changed from the xml text. The inner CheckBox and TextView do not save
+ * anything.
+ */
+class CheckBoxTextSavedState extends View.BaseSavedState {
+
+    private static final int FLAG_CHECKED = 1;
+    private static final int FLAG_HAS_TEXT = 1 << 1;
+
+    final boolean checked;
+    /**
+     * null if the text did not change
+     */
+    final CharSequence text;
+
+    CheckBoxTextSavedState(Parcelable superState, boolean checked, CharSequence text) {
+        super(superState);
+        this.checked = checked;
+        this.text = text;
+    }
+
+    private CheckBoxTextSavedState(Parcel in) {
+        super(in);
+        final int flags = in.readInt();
+        checked = (flags & FLAG_CHECKED) != 0;
+        text = (flags & FLAG_HAS_TEXT) != 0 ? TextUtils.CHAR_SEQUENCE_CREATOR.createFromParcel(in) : null;
+    }
+
+    @Override
+    public void writeToParcel(Parcel out, int flags) {
+        super.writeToParcel(out, flags);
+        out.writeInt((checked ? FLAG_CHECKED : 0) | (text != null ? FLAG_HAS_TEXT : 0));
+        if (text != null) {
+            TextUtils.writeToParcel(text, out, flags);
+        }
+    }
+
+    public static final Parcelable.Creator<CheckBoxTextSavedState> CREATOR = new Parcelable.Creator<CheckBoxTextSavedState>() {
+        @Override
+        public CheckBoxTextSavedState createFromParcel(Parcel in) {
+            return new CheckBoxTextSavedState(in);
+        }
+
+        @Override
+        public CheckBoxTextSavedState[] newArray(int size) {
+            return new CheckBoxTextSavedState[size];
+        }
+    };
+}
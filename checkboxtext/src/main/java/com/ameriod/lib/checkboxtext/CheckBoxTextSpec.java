@@ -0,0 +1,362 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.res.ColorStateList;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
+import android.util.TypedValue;
+
+import java.util.List;
+
+/**
+ * An immutable description of what a {@link CheckBoxText} shows, applied with
+ * {@link CheckBoxText#apply(CheckBoxTextSpec)}. Only the fields set on the {@link Builder} are
+ * applied, the rest of the view is left alone.
+ * <p/>
+ * Applying a spec only touches the fields that differ from the spec the view had before and
+ * requests at most one layout and one invalidate, however many fields changed. Use
+ * {@link #applyAll(java.util.List, java.util.List)} to push new specs to many views, e.g. when a
+ * server driven config changes.
+ * <pre>
+ * CheckBoxTextSpec spec = new CheckBoxTextSpec.Builder()
+ *         .setText(label)
+ *         .setChecked(true)
+ *         .setTextColor(Color.RED)
+ *         .build();
+ * view.apply(spec);
+ * </pre>
+ */
+public final class CheckBoxTextSpec {
+
+    public static final int TEXT = 1;
+    public static final int CHECKED = 1 << 1;
+    public static final int TEXT_COLOR = 1 << 2;
+    public static final int TYPEFACE = 1 << 3;
+    public static final int TEXT_SIZE = 1 << 4;
+    public static final int CHECKBOX_DRAWABLE = 1 << 5;
+    public static final int TEXT_PADDING = 1 << 6;
+    public static final int CHECKBOX_PADDING = 1 << 7;
+
+    /**
+     * The typeface style of a spec whose typeface was set without one
+     */
+    public static final int NO_TYPEFACE_STYLE = -1;
+
+    /**
+     * The fields that are set
+     */
+    private final int mFields;
+
+    public final CharSequence text;
+    public final boolean checked;
+    /**
+     * The text colors, or null when an int {@link #textColor} is set
+     */
+    public final ColorStateList textColors;
+    public final int textColor;
+    public final Typeface typeface;
+    public final int typefaceStyle;
+    public final int textSizeUnit;
+    public final float textSize;
+    /**
+     * The check drawable resource, or 0 when a {@link #checkBoxDrawable} is set
+     */
+    public final int checkBoxDrawableResId;
+    public final Drawable checkBoxDrawable;
+
+    public final int textPaddingLeft;
+    public final int textPaddingTop;
+    public final int textPaddingRight;
+    public final int textPaddingBottom;
+
+    public final int checkBoxPaddingLeft;
+    public final int checkBoxPaddingTop;
+    public final int checkBoxPaddingRight;
+    public final int checkBoxPaddingBottom;
+
+    private CheckBoxTextSpec(Builder builder) {
+        mFields = builder.mFields;
+        text = builder.mText;
+        checked = builder.mChecked;
+        textColors = builder.mTextColors;
+        textColor = builder.mTextColor;
+        typeface = builder.mTypeface;
+        typefaceStyle = builder.mTypefaceStyle;
+        textSizeUnit = builder.mTextSizeUnit;
+        textSize = builder.mTextSize;
+        checkBoxDrawableResId = builder.mCheckBoxDrawableResId;
+        checkBoxDrawable = builder.mCheckBoxDrawable;
+        textPaddingLeft = builder.mTextPaddingLeft;
+        textPaddingTop = builder.mTextPaddingTop;
+        textPaddingRight = builder.mTextPaddingRight;
+        textPaddingBottom = builder.mTextPaddingBottom;
+        checkBoxPaddingLeft = builder.mCheckBoxPaddingLeft;
+        checkBoxPaddingTop = builder.mCheckBoxPaddingTop;
+        checkBoxPaddingRight = builder.mCheckBoxPaddingRight;
+        checkBoxPaddingBottom = builder.mCheckBoxPaddingBottom;
+    }
+
+    /**
+     * @param field one of the field constants, e.g. {@link #TEXT}
+     * @return true if the field is set
+     */
+    public boolean has(int field) {
+        return (mFields & field) != 0;
+    }
+
+    /**
+     * @return a Builder starting out with this spec's fields
+     */
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    /**
+     * @param field
+     * @param previous the spec applied before, can be null
+     * @return true if the field is set and was not set the same way in the previous spec
+     */
+    boolean changed(int field, CheckBoxTextSpec previous) {
+        if (!has(field)) {
+            return false;
+        }
+        if (previous == null || !previous.has(field)) {
+            return true;
+        }
+        switch (field) {
+            case TEXT:
+                return !TextUtils.equals(text, previous.text);
+            case CHECKED:
+                return checked != previous.checked;
+            case TEXT_COLOR:
+                return textColors != previous.textColors || textColor != previous.textColor;
+            case TYPEFACE:
+                return typeface != previous.typeface || typefaceStyle != previous.typefaceStyle;
+            case TEXT_SIZE:
+                return textSizeUnit != previous.textSizeUnit || textSize != previous.textSize;
+            case CHECKBOX_DRAWABLE:
+                return checkBoxDrawableResId != previous.checkBoxDrawableResId
+                        || checkBoxDrawable != previous.checkBoxDrawable;
+            case TEXT_PADDING:
+                return textPaddingLeft != previous.textPaddingLeft || textPaddingTop != previous.textPaddingTop
+                        || textPaddingRight != previous.textPaddingRight || textPaddingBottom != previous.textPaddingBottom;
+            case CHECKBOX_PADDING:
+                return checkBoxPaddingLeft != previous.checkBoxPaddingLeft || checkBoxPaddingTop != previous.checkBoxPaddingTop
+                        || checkBoxPaddingRight != previous.checkBoxPaddingRight || checkBoxPaddingBottom != previous.checkBoxPaddingBottom;
+            default:
+                throw new IllegalArgumentException("field: " + field);
+        }
+    }
+
+    /**
+     * Applies one spec to each view, each view requests at most one layout
+     *
+     * @param views
+     * @param spec
+     * @return how many views requested a layout
+     */
+    public static int applyAll(List<? extends CheckBoxText> views, CheckBoxTextSpec spec) {
+        int layouts = 0;
+        for (int i = 0, count = views.size(); i < count; i++) {
+            if (views.get(i).apply(spec)) {
+                layouts++;
+            }
+        }
+        return layouts;
+    }
+
+    /**
+     * Applies specs.get(i) to views.get(i), each view requests at most one layout
+     *
+     * @param views
+     * @param specs same size as views
+     * @return how many views requested a layout
+     */
+    public static int applyAll(List<? extends CheckBoxText> views, List<CheckBoxTextSpec> specs) {
+        if (views.size() != specs.size()) {
+            throw new IllegalArgumentException("views: " + views.size() + " specs: " + specs.size());
+        }
+        int layouts = 0;
+        for (int i = 0, count = views.size(); i < count; i++) {
+            if (views.get(i).apply(specs.get(i))) {
+                layouts++;
+            }
+        }
+        return layouts;
+    }
+
+    /**
+     * Builds a {@link CheckBoxTextSpec}, a Builder can be reused
+     */
+    public static final class Builder {
+
+        private int mFields;
+        private CharSequence mText;
+        private boolean mChecked;
+        private ColorStateList mTextColors;
+        private int mTextColor;
+        private Typeface mTypeface;
+        private int mTypefaceStyle = NO_TYPEFACE_STYLE;
+        private int mTextSizeUnit;
+        private float mTextSize;
+        private int mCheckBoxDrawableResId;
+        private Drawable mCheckBoxDrawable;
+        private int mTextPaddingLeft;
+        private int mTextPaddingTop;
+        private int mTextPaddingRight;
+        private int mTextPaddingBottom;
+        private int mCheckBoxPaddingLeft;
+        private int mCheckBoxPaddingTop;
+        private int mCheckBoxPaddingRight;
+        private int mCheckBoxPaddingBottom;
+
+        public Builder() {
+        }
+
+        private Builder(CheckBoxTextSpec spec) {
+            mFields = spec.mFields;
+            mText = spec.text;
+            mChecked = spec.checked;
+            mTextColors = spec.textColors;
+            mTextColor = spec.textColor;
+            mTypeface = spec.typeface;
+            mTypefaceStyle = spec.typefaceStyle;
+            mTextSizeUnit = spec.textSizeUnit;
+            mTextSize = spec.textSize;
+            mCheckBoxDrawableResId = spec.checkBoxDrawableResId;
+            mCheckBoxDrawable = spec.checkBoxDrawable;
+            mTextPaddingLeft = spec.textPaddingLeft;
+            mTextPaddingTop = spec.textPaddingTop;
+            mTextPaddingRight = spec.textPaddingRight;
+            mTextPaddingBottom = spec.textPaddingBottom;
+            mCheckBoxPaddingLeft = spec.checkBoxPaddingLeft;
+            mCheckBoxPaddingTop = spec.checkBoxPaddingTop;
+            mCheckBoxPaddingRight = spec.checkBoxPaddingRight;
+            mCheckBoxPaddingBottom = spec.checkBoxPaddingBottom;
+        }
+
+        /**
+         * @param text the text, also set as the CheckBox tag
+         * @return
+         */
+        public Builder setText(CharSequence text) {
+            mText = text;
+            mFields |= TEXT;
+            return this;
+        }
+
+        public Builder setChecked(boolean checked) {
+            mChecked = checked;
+            mFields |= CHECKED;
+            return this;
+        }
+
+        public Builder setTextColor(int color) {
+            mTextColor = color;
+            mTextColors = null;
+            mFields |= TEXT_COLOR;
+            return this;
+        }
+
+        public Builder setTextColor(ColorStateList colors) {
+            mTextColors = colors;
+            mTextColor = 0;
+            mFields |= TEXT_COLOR;
+            return this;
+        }
+
+        public Builder setTypeface(Typeface typeface) {
+            return setTypeface(typeface, NO_TYPEFACE_STYLE);
+        }
+
+        public Builder setTypeface(Typeface typeface, int style) {
+            mTypeface = typeface;
+            mTypefaceStyle = style;
+            mFields |= TYPEFACE;
+            return this;
+        }
+
+        /**
+         * @param size in scaled pixels
+         * @return
+         */
+        public Builder setTextSize(float size) {
+            return setTextSize(TypedValue.COMPLEX_UNIT_SP, size);
+        }
+
+        public Builder setTextSize(int unit, float size) {
+            mTextSizeUnit = unit;
+            mTextSize = size;
+            mFields |= TEXT_SIZE;
+            return this;
+        }
+
+        public Builder setCheckBoxDrawable(int resId) {
+            mCheckBoxDrawableResId = resId;
+            mCheckBoxDrawable = null;
+            mFields |= CHECKBOX_DRAWABLE;
+            return this;
+        }
+
+        /**
+         * @param drawable the drawable, it is compared by reference so reuse the same instance
+         *                 across specs
+         * @return
+         */
+        public Builder setCheckBoxDrawable(Drawable drawable) {
+            mCheckBoxDrawable = drawable;
+            mCheckBoxDrawableResId = 0;
+            mFields |= CHECKBOX_DRAWABLE;
+            return this;
+        }
+
+        public Builder setPaddingText(int left, int top, int right, int bottom) {
+            mTextPaddingLeft = left;
+            mTextPaddingTop = top;
+            mTextPaddingRight = right;
+            mTextPaddingBottom = bottom;
+            mFields |= TEXT_PADDING;
+            return this;
+        }
+
+        public Builder setPaddingCheckBox(int left, int top, int right, int bottom) {
+            mCheckBoxPaddingLeft = left;
+            mCheckBoxPaddingTop = top;
+            mCheckBoxPaddingRight = right;
+            mCheckBoxPaddingBottom = bottom;
+            mFields |= CHECKBOX_PADDING;
+            return this;
+        }
+
+        /**
+         * Unsets a field, the views keep what they have for it
+         *
+         * @param field one of the field constants, e.g. {@link #TEXT}
+         * @return
+         */
+        public Builder clear(int field) {
+            mFields &= ~field;
+            return this;
+        }
+
+        public CheckBoxTextSpec build() {
+            return new CheckBoxTextSpec(this);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * Where a {@link CheckBoxTextPersister} keeps the checked states, one bitset per key. Implement it
+ * to keep them anywhere else (a database, the network, ...).
+ * <p/>
+ * {@link FileCheckBoxTextStorage} keeps each key in a small binary file,
+ * {@link MemoryCheckBoxTextStorage} only keeps them in memory (e.g. in tests).
+ * <p/>
+ * The persister reads and writes from its background thread, one call at a time per key.
+ */
+public interface CheckBoxTextStorage {
+
+    /**
+     * @param key
+     * @return the bitset saved for the key (bit i of word i / 64 is box i), null if there is none
+     * @throws IOException
+     */
+    long[] read(String key) throws IOException;
+
+    /**
+     * Replaces the bitset saved for the key
+     *
+     * @param key
+     * @param words the bitset, owned by the storage afterwards
+     * @throws IOException
+     */
+    void write(String key, long[] words) throws IOException;
+}
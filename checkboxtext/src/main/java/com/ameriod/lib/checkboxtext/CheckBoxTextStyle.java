@@ -0,0 +1,577 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+/**
+ * The resolved CheckBoxText xml attributes. It is immutable so one instance is shared by every
+ * CheckBoxText inflated with the same theme and style, the TypedArray work is only done the first
+ * time a style is seen.
+ * <p/>
+ * A style is cached when the only CheckBoxText attributes set directly on the view in xml are text,
+ * isChecked, orientation and textAppearance, those are read straight from the AttributeSet for each
+ * view with {@link #getText(android.content.Context, android.util.AttributeSet)},
+ * {@link #isChecked(android.util.AttributeSet)}, {@link #getOrientation(android.util.AttributeSet)}
+ * and {@link #getTextAppearanceResId(android.util.AttributeSet)}. Anything else set on the view
+ * itself, or a style="" together with a defStyle, resolves a new style that is not cached.
+ * <p/>
+ * The default style is the style the theme's {@code checkBoxTextStyle} attribute points to (or the
+ * defStyle given to the view), Widget.CheckBoxText when the theme does not set it. A style="" on the
+ * view takes precedence over the default style, which takes precedence over the theme.
+ * <p/>
+ * The spacing of the CheckBox and the text is resolved once per style for all four orientations,
+ * see {@link #getSpacing(int)}.
+ * <p/>
+ * The cache keeps {@link #MAX_STYLES_PER_THEME} styles per theme, the styles of a theme are dropped
+ * when the configuration of its resources changes and all of them can be cleared with
+ * {@link #clearCache()}.
+ */
+public final class CheckBoxTextStyle {
+
+    /**
+     * The most styles cached for one theme, the least recently used is evicted after that
+     */
+    public static final int MAX_STYLES_PER_THEME = 16;
+
+    /**
+     * The package id of android.R resources, no CheckBoxText attribute has it
+     */
+    private static final int FRAMEWORK_PACKAGE_ID = 0x01;
+
+    private static final Object sLock = new Object();
+    private static final WeakHashMap<Resources.Theme, ThemeStyles> sCache =
+            new WeakHashMap<Resources.Theme, ThemeStyles>();
+    private static boolean sCacheEnabled = true;
+
+    private static int[] sSortedStyleable;
+    private static int sTextAttr;
+    private static int sIsCheckedAttr;
+    private static int sOrientationAttr;
+    private static int sTextAppearanceAttr;
+
+    public final int orientation;
+    public final int textAppearanceResId;
+    public final CharSequence text;
+    public final boolean isChecked;
+    /**
+     * The checkboxBackground, call {@link #newCheckBoxBackground(android.content.res.Resources)}
+     * to get a Drawable for a view
+     */
+    public final Drawable.ConstantState checkBoxBackground;
+    /**
+     * Only set when the checkboxBackground has no constant state, the style is not shared then
+     */
+    private final Drawable mCheckBoxBackground;
+
+    public final int checkBoxPadding;
+    public final int checkBoxPaddingLeft;
+    public final int checkBoxPaddingRight;
+    public final int checkBoxPaddingTop;
+    public final int checkBoxPaddingBottom;
+
+    public final int textPadding;
+    public final int textPaddingLeft;
+    public final int textPaddingRight;
+    public final int textPaddingTop;
+    public final int textPaddingBottom;
+
+    public final int checkBoxMargin;
+    public final int checkBoxMarginLeft;
+    public final int checkBoxMarginRight;
+    public final int checkBoxMarginTop;
+    public final int checkBoxMarginBottom;
+
+    public final int textMargin;
+    public final int textMarginLeft;
+    public final int textMarginRight;
+    public final int textMarginTop;
+    public final int textMarginBottom;
+
+    /**
+     * The default spacing between the CheckBox and the text for each orientation
+     * (R.dimen.checkbox_text_margin_*)
+     */
+    public final int defaultMarginBelow;
+    public final int defaultMarginAbove;
+    public final int defaultMarginLeft;
+    public final int defaultMarginRight;
+
+    /**
+     * The resolved spacing for each orientation
+     */
+    private final Spacing[] mSpacing = new Spacing[4];
+
+    /**
+     * true when the style is shared between views and the attributes a view may set itself have to
+     * be read from its AttributeSet
+     */
+    private final boolean mShared;
+
+    private CheckBoxTextStyle(Context context, TypedArray a, boolean shared) {
+        final Resources res = context.getResources();
+        orientation = a.getInt(R.styleable.CheckBoxText_orientation, CheckBoxText.TEXT_RIGHT);
+        textAppearanceResId = a.getResourceId(R.styleable.CheckBoxText_textAppearance, android.R.style.TextAppearance_Small);
+        text = a.getText(R.styleable.CheckBoxText_text);
+        isChecked = a.getBoolean(R.styleable.CheckBoxText_isChecked, false);
+
+        final int backgroundResId = a.getResourceId(R.styleable.CheckBoxText_checkboxBackground, 0);
+        Drawable background = backgroundResId != 0
+                ? CheckBoxTextDrawableCache.get(context, backgroundResId)
+                : a.getDrawable(R.styleable.CheckBoxText_checkboxBackground);
+        checkBoxBackground = background != null ? background.getConstantState() : null;
+        mCheckBoxBackground = checkBoxBackground == null ? background : null;
+        mShared = shared && mCheckBoxBackground == null;
+
+        checkBoxPadding = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_padding, 0);
+        checkBoxPaddingLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingLeft, 0);
+        checkBoxPaddingRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingRight, 0);
+        checkBoxPaddingTop = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingTop, 0);
+        checkBoxPaddingBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_paddingBottom, 0);
+        textPadding = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_padding, 0);
+        textPaddingLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingLeft, 0);
+        textPaddingRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingRight, 0);
+        textPaddingTop = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingTop, 0);
+        textPaddingBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_paddingBottom, 0);
+
+        checkBoxMargin = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_margin, 0);
+        checkBoxMarginLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginLeft, 0);
+        checkBoxMarginRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginRight, 0);
+        checkBoxMarginTop = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginTop, 0);
+        checkBoxMarginBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_checkbox_marginBottom, 0);
+        textMargin = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_margin, 0);
+        textMarginLeft = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginLeft, 0);
+        textMarginRight = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginRight, 0);
+        textMarginTop = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginTop, 0);
+        textMarginBottom = a.getDimensionPixelSize(R.styleable.CheckBoxText_text_marginBottom, 0);
+
+        defaultMarginBelow = res.getDimensionPixelSize(R.dimen.checkbox_text_margin_vertical_below);
+        defaultMarginAbove = res.getDimensionPixelSize(R.dimen.checkbox_text_margin_vertical_above);
+        defaultMarginLeft = res.getDimensionPixelSize(R.dimen.checkbox_text_margin_horizontal_left);
+        defaultMarginRight = res.getDimensionPixelSize(R.dimen.checkbox_text_margin_horizontal_right);
+
+        for (int o = 0; o < mSpacing.length; o++) {
+            mSpacing[o] = new Spacing(this, o);
+        }
+    }
+
+    /**
+     * @param orientation one of the CheckBoxText TEXT_ orientations, anything else is TEXT_RIGHT
+     * @return the padding and margins of the CheckBox and the text for the orientation
+     */
+    public Spacing getSpacing(int orientation) {
+        return orientation >= 0 && orientation < mSpacing.length ? mSpacing[orientation] : mSpacing[CheckBoxText.TEXT_RIGHT];
+    }
+
+    /**
+     * @param res
+     * @return a new checkboxBackground Drawable sharing the cached constant state, or null if the
+     * style does not set one
+     */
+    public Drawable newCheckBoxBackground(Resources res) {
+        return checkBoxBackground != null ? checkBoxBackground.newDrawable(res) : mCheckBoxBackground;
+    }
+
+    /**
+     * @param context
+     * @param attrs   the view's xml attributes, can be null
+     * @return the text for the view, set directly on the view or from the style
+     */
+    public CharSequence getText(Context context, AttributeSet attrs) {
+        if (!mShared || attrs == null) {
+            return text;
+        }
+        final int textAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_text];
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            if (attrs.getAttributeNameResource(i) == textAttr) {
+                int resId = attrs.getAttributeResourceValue(i, 0);
+                return resId != 0 ? context.getText(resId) : attrs.getAttributeValue(i);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * @param attrs the view's xml attributes, can be null
+     * @return the isChecked for the view, set directly on the view or from the style
+     */
+    public boolean isChecked(AttributeSet attrs) {
+        if (!mShared || attrs == null) {
+            return isChecked;
+        }
+        final int isCheckedAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_isChecked];
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            if (attrs.getAttributeNameResource(i) == isCheckedAttr) {
+                return attrs.getAttributeBooleanValue(i, isChecked);
+            }
+        }
+        return isChecked;
+    }
+
+    /**
+     * @param attrs the view's xml attributes, can be null
+     * @return the orientation for the view, set directly on the view or from the style
+     */
+    public int getOrientation(AttributeSet attrs) {
+        if (!mShared || attrs == null) {
+            return orientation;
+        }
+        final int orientationAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_orientation];
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            if (attrs.getAttributeNameResource(i) == orientationAttr) {
+                return attrs.getAttributeIntValue(i, orientation);
+            }
+        }
+        return orientation;
+    }
+
+    /**
+     * @param attrs the view's xml attributes, can be null
+     * @return the textAppearance for the view, set directly on the view or from the style
+     */
+    public int getTextAppearanceResId(AttributeSet attrs) {
+        if (!mShared || attrs == null) {
+            return textAppearanceResId;
+        }
+        final int textAppearanceAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_textAppearance];
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            if (attrs.getAttributeNameResource(i) == textAppearanceAttr) {
+                return attrs.getAttributeResourceValue(i, textAppearanceResId);
+            }
+        }
+        return textAppearanceResId;
+    }
+
+    /**
+     * Gets the style for a view, from the cache when possible.
+     *
+     * @param context
+     * @param attrs    the view's xml attributes, can be null
+     * @param defStyle the default style attribute passed to the view's constructor, usually
+     *                 R.attr.checkBoxTextStyle
+     * @return
+     */
+    public static CheckBoxTextStyle obtain(Context context, AttributeSet attrs, int defStyle) {
+        final int styleResId = attrs != null ? attrs.getStyleAttribute() : 0;
+        if (attrs != null && !isCacheable(attrs)) {
+            return resolve(context, attrs, defStyle);
+        }
+
+        final Resources.Theme theme = context.getTheme();
+        final Configuration configuration = context.getResources().getConfiguration();
+        final long key = ((long) styleResId << 32) | (defStyle & 0xffffffffL);
+
+        CheckBoxTextStyle style = null;
+        final boolean cacheEnabled;
+        synchronized (sLock) {
+            cacheEnabled = sCacheEnabled;
+            if (cacheEnabled) {
+                ThemeStyles styles = sCache.get(theme);
+                style = styles != null ? styles.get(key, configuration) : null;
+            }
+        }
+        if (!cacheEnabled) {
+            return resolve(context, attrs, defStyle);
+        }
+        if (style != null) {
+            return style;
+        }
+
+        // resolve outside of the lock, at worst two threads resolve the same style. Without the
+        // AttributeSet the default style and the style="" are applied to a copy of the theme, the
+        // style="" last so it wins.
+        final Resources.Theme styled = context.getResources().newTheme();
+        styled.setTo(theme);
+        styled.applyStyle(getDefStyleRes(theme, defStyle), true);
+        if (styleResId != 0) {
+            styled.applyStyle(styleResId, true);
+        }
+        TypedArray a = styled.obtainStyledAttributes(R.styleable.CheckBoxText);
+        try {
+            style = new CheckBoxTextStyle(context, a, true);
+        } finally {
+            a.recycle();
+        }
+        if (!style.mShared) {
+            return resolve(context, attrs, defStyle);
+        }
+
+        synchronized (sLock) {
+            ThemeStyles styles = sCache.get(theme);
+            if (styles == null) {
+                styles = new ThemeStyles();
+                sCache.put(theme, styles);
+            }
+            styles.put(key, style, configuration);
+        }
+        return style;
+    }
+
+    /**
+     * Turns the cache on or off, every view resolves its own style while it is off. For measuring
+     * what the cache saves, it is on by default.
+     *
+     * @param enabled
+     */
+    public static void setCacheEnabled(boolean enabled) {
+        synchronized (sLock) {
+            sCacheEnabled = enabled;
+            if (!enabled) {
+                sCache.clear();
+            }
+        }
+    }
+
+    public static boolean isCacheEnabled() {
+        synchronized (sLock) {
+            return sCacheEnabled;
+        }
+    }
+
+    /**
+     * Drops every cached style, call it if the resources change in a way the configuration does not
+     * show (e.g. from onTrimMemory)
+     */
+    public static void clearCache() {
+        synchronized (sLock) {
+            sCache.clear();
+        }
+    }
+
+    /**
+     * @return the style the defStyle attribute points to in the theme, Widget.CheckBoxText if none
+     */
+    private static int getDefStyleRes(Resources.Theme theme, int defStyle) {
+        if (defStyle != 0) {
+            TypedValue value = new TypedValue();
+            if (theme.resolveAttribute(defStyle, value, true) && value.resourceId != 0) {
+                return value.resourceId;
+            }
+        }
+        return R.style.Widget_CheckBoxText;
+    }
+
+    private static CheckBoxTextStyle resolve(Context context, AttributeSet attrs, int defStyle) {
+        TypedArray a = context.getTheme().obtainStyledAttributes(attrs, R.styleable.CheckBoxText, defStyle, R.style.Widget_CheckBoxText);
+        try {
+            return new CheckBoxTextStyle(context, a, false);
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * The attributes differ per view so this runs for every view, but it is one pass over them:
+     * framework attributes (layout_width, id...) are skipped without a lookup and the rest is a
+     * binary search of the CheckBoxText attributes.
+     *
+     * @param attrs
+     * @return true if text, isChecked, orientation and textAppearance are the only CheckBoxText
+     * attributes set on the view and they can be read without a TypedArray
+     */
+    private static boolean isCacheable(AttributeSet attrs) {
+        int[] sorted = sSortedStyleable;
+        if (sorted == null) {
+            // the library's R fields are not constants, look them up once
+            sTextAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_text];
+            sIsCheckedAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_isChecked];
+            sOrientationAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_orientation];
+            sTextAppearanceAttr = R.styleable.CheckBoxText[R.styleable.CheckBoxText_textAppearance];
+            sorted = R.styleable.CheckBoxText.clone();
+            Arrays.sort(sorted);
+            sSortedStyleable = sorted;
+        }
+        final int textAttr = sTextAttr;
+        final int isCheckedAttr = sIsCheckedAttr;
+        final int orientationAttr = sOrientationAttr;
+        final int textAppearanceAttr = sTextAppearanceAttr;
+
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            final int nameResource = attrs.getAttributeNameResource(i);
+            if (nameResource >>> 24 == FRAMEWORK_PACKAGE_ID || Arrays.binarySearch(sorted, nameResource) < 0) {
+                continue;
+            }
+            final String value = attrs.getAttributeValue(i);
+            if (nameResource == textAttr) {
+                // theme attributes (?attr/) need the TypedArray
+                if (value != null && value.startsWith("?")) {
+                    return false;
+                }
+            } else if (nameResource == isCheckedAttr || nameResource == orientationAttr) {
+                // only literal booleans and enum values can be read from the AttributeSet
+                if (attrs.getAttributeResourceValue(i, 0) != 0 || value == null || value.startsWith("?")) {
+                    return false;
+                }
+            } else if (nameResource == textAppearanceAttr) {
+                // a style reference, not a theme attribute
+                if (value == null || !value.startsWith("@")) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The styles cached for one theme, most recently used first. There are only a few so they are
+     * looked up by scanning a long[] of keys, nothing is boxed. Use it with sLock held.
+     */
+    private static final class ThemeStyles {
+
+        private final long[] mKeys = new long[MAX_STYLES_PER_THEME];
+        private final CheckBoxTextStyle[] mStyles = new CheckBoxTextStyle[MAX_STYLES_PER_THEME];
+        private int mSize;
+        /**
+         * The configuration the styles were resolved with, copied
+         */
+        private Configuration mConfiguration;
+
+        /**
+         * @return the style, null if it is not cached or the configuration changed since
+         */
+        CheckBoxTextStyle get(long key, Configuration configuration) {
+            if (mConfiguration == null || mConfiguration.diff(configuration) != 0) {
+                clear();
+                return null;
+            }
+            final long[] keys = mKeys;
+            for (int i = 0; i < mSize; i++) {
+                if (keys[i] == key) {
+                    final CheckBoxTextStyle style = mStyles[i];
+                    moveToFront(i, key, style);
+                    return style;
+                }
+            }
+            return null;
+        }
+
+        void put(long key, CheckBoxTextStyle style, Configuration configuration) {
+            if (mConfiguration == null || mConfiguration.diff(configuration) != 0) {
+                clear();
+                mConfiguration = new Configuration(configuration);
+            }
+            for (int i = 0; i < mSize; i++) {
+                if (mKeys[i] == key) {
+                    moveToFront(i, key, style);
+                    return;
+                }
+            }
+            // the least recently used falls off the end when full
+            if (mSize < mKeys.length) {
+                mSize++;
+            }
+            moveToFront(mSize - 1, key, style);
+        }
+
+        private void moveToFront(int index, long key, CheckBoxTextStyle style) {
+            System.arraycopy(mKeys, 0, mKeys, 1, index);
+            System.arraycopy(mStyles, 0, mStyles, 1, index);
+            mKeys[0] = key;
+            mStyles[0] = style;
+        }
+
+        private void clear() {
+            Arrays.fill(mStyles, 0, mSize, null);
+            mSize = 0;
+            mConfiguration = null;
+        }
+    }
+
+    /**
+     * The padding and margins of the CheckBox and the text for one orientation: a side that is not
+     * set falls back to the padding or margin for all sides, and the side of the text facing the
+     * CheckBox (the CheckBox's bottom margin for TEXT_BELOW) falls back to the
+     * R.dimen.checkbox_text_margin_* of the orientation.
+     */
+    public static final class Spacing {
+
+        public final int checkBoxPaddingLeft;
+        public final int checkBoxPaddingTop;
+        public final int checkBoxPaddingRight;
+        public final int checkBoxPaddingBottom;
+
+        public final int textPaddingLeft;
+        public final int textPaddingTop;
+        public final int textPaddingRight;
+        public final int textPaddingBottom;
+
+        public final int checkBoxMarginLeft;
+        public final int checkBoxMarginTop;
+        public final int checkBoxMarginRight;
+        public final int checkBoxMarginBottom;
+
+        public final int textMarginLeft;
+        public final int textMarginTop;
+        public final int textMarginRight;
+        public final int textMarginBottom;
+
+        private Spacing(CheckBoxTextStyle style, int orientation) {
+            checkBoxPaddingLeft = fallback(style.checkBoxPaddingLeft, style.checkBoxPadding);
+            checkBoxPaddingTop = fallback(style.checkBoxPaddingTop, style.checkBoxPadding);
+            checkBoxPaddingRight = fallback(style.checkBoxPaddingRight, style.checkBoxPadding);
+            checkBoxPaddingBottom = fallback(style.checkBoxPaddingBottom, style.checkBoxPadding);
+
+            textPaddingLeft = fallback(style.textPaddingLeft, style.textPadding);
+            textPaddingTop = fallback(style.textPaddingTop, style.textPadding);
+            textPaddingRight = fallback(style.textPaddingRight, style.textPadding);
+            textPaddingBottom = fallback(style.textPaddingBottom, style.textPadding);
+
+            checkBoxMarginLeft = fallback(style.checkBoxMarginLeft, style.checkBoxMargin);
+            checkBoxMarginTop = fallback(style.checkBoxMarginTop, style.checkBoxMargin);
+            checkBoxMarginRight = fallback(style.checkBoxMarginRight, style.checkBoxMargin);
+            final int checkBoxMarginBottom = fallback(style.checkBoxMarginBottom, style.checkBoxMargin);
+
+            textMarginLeft = fallback(style.textMarginLeft, style.textMargin);
+            textMarginTop = fallback(style.textMarginTop, style.textMargin);
+            final int textMarginRight = fallback(style.textMarginRight, style.textMargin);
+            final int textMarginBottom = fallback(style.textMarginBottom, style.textMargin);
+
+            if (orientation == CheckBoxText.TEXT_BELOW) {
+                this.checkBoxMarginBottom = fallback(checkBoxMarginBottom, style.defaultMarginBelow);
+                this.textMarginRight = textMarginRight;
+                this.textMarginBottom = textMarginBottom;
+            } else if (orientation == CheckBoxText.TEXT_LEFT) {
+                this.checkBoxMarginBottom = checkBoxMarginBottom;
+                this.textMarginRight = fallback(textMarginRight, style.defaultMarginLeft);
+                this.textMarginBottom = textMarginBottom;
+            } else if (orientation == CheckBoxText.TEXT_ABOVE) {
+                this.checkBoxMarginBottom = checkBoxMarginBottom;
+                this.textMarginRight = textMarginRight;
+                this.textMarginBottom = fallback(textMarginBottom, style.defaultMarginAbove);
+            } else {
+                this.checkBoxMarginBottom = checkBoxMarginBottom;
+                this.textMarginRight = fallback(textMarginRight, style.defaultMarginRight);
+                this.textMarginBottom = textMarginBottom;
+            }
+        }
+
+        private static int fallback(int value, int fallback) {
+            return value != 0 ? value : fallback;
+        }
+    }
+}
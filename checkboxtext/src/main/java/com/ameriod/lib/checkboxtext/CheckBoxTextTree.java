@@ -0,0 +1,286 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A checked state model for a tree of CheckBoxTexts (e.g. a permission tree) where a parent is
+ * checked when all of its children are, unchecked when none are and indeterminate otherwise.
+ * <p/>
+ * The nodes are ints in depth first pre-order, so the subtree of a node is the range from the node
+ * to {@link #getSubtreeEnd(int)}. Every node keeps the number of its children that are checked and
+ * indeterminate, so checking or unchecking a node sets its subtree in one pass over that range and
+ * then only walks up the ancestors whose state actually changes, O(depth) instead of recounting
+ * the descendants of every ancestor.
+ * <p/>
+ * Bind a node to a view with
+ * <pre>
+ * view.bind(label, tree.isChecked(node), node);
+ * view.setIndeterminate(tree.isIndeterminate(node));
+ * </pre>
+ */
+public class CheckBoxTextTree {
+
+    /**
+     * Called with the range of nodes whose state changed
+     */
+    public interface OnStateChangedListener {
+        /**
+         * @param fromNode the first node that changed
+         * @param toNode   one past the last node that changed
+         */
+        void onStateChanged(int fromNode, int toNode);
+    }
+
+    public static final int UNCHECKED = 0;
+    public static final int CHECKED = 1;
+    public static final int INDETERMINATE = 2;
+
+    /**
+     * The parent of a root node
+     */
+    public static final int NO_PARENT = -1;
+
+    private final int[] mParents;
+    private final int[] mSubtreeEnds;
+    private final int[] mChildCounts;
+    private final int[] mCheckedChildren;
+    private final int[] mIndeterminateChildren;
+    private final byte[] mStates;
+
+    private OnStateChangedListener mOnStateChangedListener;
+
+    /**
+     * Every node starts out unchecked
+     *
+     * @param parents the parent of each node in depth first pre-order, {@link #NO_PARENT} for the
+     *                roots. A node's parent must be an earlier node whose subtree is still open.
+     */
+    public CheckBoxTextTree(int[] parents) {
+        final int count = parents.length;
+        mParents = parents.clone();
+        mSubtreeEnds = new int[count];
+        mChildCounts = new int[count];
+        mCheckedChildren = new int[count];
+        mIndeterminateChildren = new int[count];
+        mStates = new byte[count];
+
+        // the open subtrees, a node's parent has to be one of them
+        final int[] stack = new int[count];
+        int depth = 0;
+        for (int node = 0; node < count; node++) {
+            final int parent = parents[node];
+            while (depth > 0 && stack[depth - 1] != parent) {
+                depth--;
+                mSubtreeEnds[stack[depth]] = node;
+            }
+            if (parent != NO_PARENT) {
+                if (depth == 0) {
+                    throw new IllegalArgumentException("node " + node + " is not in pre-order, parent: " + parent);
+                }
+                mChildCounts[parent]++;
+            }
+            stack[depth++] = node;
+        }
+        while (depth > 0) {
+            mSubtreeEnds[stack[--depth]] = count;
+        }
+    }
+
+    public int size() {
+        return mParents.length;
+    }
+
+    /**
+     * @param node
+     * @return the parent, {@link #NO_PARENT} for a root
+     */
+    public int getParent(int node) {
+        return mParents[node];
+    }
+
+    public int getChildCount(int node) {
+        return mChildCounts[node];
+    }
+
+    /**
+     * @param node
+     * @return one past the last node of the node's subtree
+     */
+    public int getSubtreeEnd(int node) {
+        return mSubtreeEnds[node];
+    }
+
+    public int getCheckedChildCount(int node) {
+        return mCheckedChildren[node];
+    }
+
+    /**
+     * @param node
+     * @return {@link #UNCHECKED}, {@link #CHECKED} or {@link #INDETERMINATE}
+     */
+    public int getState(int node) {
+        return mStates[node];
+    }
+
+    public boolean isChecked(int node) {
+        return mStates[node] == CHECKED;
+    }
+
+    public boolean isIndeterminate(int node) {
+        return mStates[node] == INDETERMINATE;
+    }
+
+    public void setOnStateChangedListener(OnStateChangedListener listener) {
+        mOnStateChangedListener = listener;
+    }
+
+    /**
+     * Checks an unchecked or indeterminate node and unchecks a checked one, with its subtree
+     *
+     * @param node
+     */
+    public void toggle(int node) {
+        setChecked(node, mStates[node] != CHECKED);
+    }
+
+    /**
+     * Checks or unchecks the node and its whole subtree, then updates the ancestors
+     *
+     * @param node
+     * @param checked
+     */
+    public void setChecked(int node, boolean checked) {
+        final byte state = checked ? (byte) CHECKED : (byte) UNCHECKED;
+        final int end = mSubtreeEnds[node];
+        final int oldState = mStates[node];
+        if (oldState == state) {
+            // a checked node's subtree is all checked, an unchecked node's is all unchecked
+            return;
+        }
+        for (int i = node; i < end; i++) {
+            mStates[i] = state;
+            mCheckedChildren[i] = checked ? mChildCounts[i] : 0;
+            mIndeterminateChildren[i] = 0;
+        }
+        notifyStateChanged(node, end);
+        updateAncestors(node, oldState, state);
+    }
+
+    /**
+     * Replaces every state, e.g. when restoring: the given nodes are checked with their subtrees and
+     * everything else is derived in one pass over the tree
+     *
+     * @param checkedNodes
+     */
+    public void setCheckedNodes(int[] checkedNodes) {
+        final int count = mStates.length;
+        for (int i = 0; i < count; i++) {
+            mStates[i] = UNCHECKED;
+        }
+        for (int node : checkedNodes) {
+            for (int i = node, end = mSubtreeEnds[node]; i < end; i++) {
+                mStates[i] = CHECKED;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            mCheckedChildren[i] = 0;
+            mIndeterminateChildren[i] = 0;
+        }
+        // children come after their parents, so going backwards every parent sees final children
+        for (int i = count - 1; i >= 0; i--) {
+            if (mChildCounts[i] > 0) {
+                mStates[i] = (byte) deriveState(i);
+            }
+            final int parent = mParents[i];
+            if (parent != NO_PARENT) {
+                if (mStates[i] == CHECKED) {
+                    mCheckedChildren[parent]++;
+                } else if (mStates[i] == INDETERMINATE) {
+                    mIndeterminateChildren[parent]++;
+                }
+            }
+        }
+        notifyStateChanged(0, count);
+    }
+
+    /**
+     * @return the checked nodes whose parent is not checked, what {@link #setCheckedNodes(int[])}
+     * needs to restore the states
+     */
+    public int[] getCheckedNodes() {
+        int[] nodes = new int[16];
+        int size = 0;
+        for (int node = 0; node < mStates.length; ) {
+            if (mStates[node] == CHECKED) {
+                if (size == nodes.length) {
+                    int[] grown = new int[size * 2];
+                    System.arraycopy(nodes, 0, grown, 0, size);
+                    nodes = grown;
+                }
+                nodes[size++] = node;
+                node = mSubtreeEnds[node];
+            } else {
+                node++;
+            }
+        }
+        int[] result = new int[size];
+        System.arraycopy(nodes, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * Walks up from a node whose state changed, stopping at the first ancestor that keeps its state
+     */
+    private void updateAncestors(int node, int oldState, int newState) {
+        int parent = mParents[node];
+        while (parent != NO_PARENT && oldState != newState) {
+            if (oldState == CHECKED) {
+                mCheckedChildren[parent]--;
+            } else if (oldState == INDETERMINATE) {
+                mIndeterminateChildren[parent]--;
+            }
+            if (newState == CHECKED) {
+                mCheckedChildren[parent]++;
+            } else if (newState == INDETERMINATE) {
+                mIndeterminateChildren[parent]++;
+            }
+            oldState = mStates[parent];
+            newState = deriveState(parent);
+            if (oldState != newState) {
+                mStates[parent] = (byte) newState;
+                notifyStateChanged(parent, parent + 1);
+            }
+            parent = mParents[parent];
+        }
+    }
+
+    private int deriveState(int node) {
+        if (mCheckedChildren[node] == mChildCounts[node]) {
+            return CHECKED;
+        }
+        if (mCheckedChildren[node] == 0 && mIndeterminateChildren[node] == 0) {
+            return UNCHECKED;
+        }
+        return INDETERMINATE;
+    }
+
+    private void notifyStateChanged(int fromNode, int toNode) {
+        if (mOnStateChangedListener != null) {
+            mOnStateChangedListener.onStateChanged(fromNode, toNode);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * The set of checked item ids, kept as a sorted long[] so there is no boxing like with a
+ * Map&lt;Long, Boolean&gt;. Lookups are a binary search and nothing is allocated unless the array
+ * has to grow.
+ * <p/>
+ * Not thread safe, use it from the UI thread like the adapter.
+ */
+public class CheckedIdSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] mIds;
+    private int mSize;
+
+    public CheckedIdSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CheckedIdSet(int initialCapacity) {
+        mIds = new long[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * @param id
+     * @return true if the id is checked
+     */
+    public boolean contains(long id) {
+        return Arrays.binarySearch(mIds, 0, mSize, id) >= 0;
+    }
+
+    /**
+     * Checks or unchecks an id
+     *
+     * @param id
+     * @param checked
+     */
+    public void set(long id, boolean checked) {
+        if (checked) {
+            add(id);
+        } else {
+            remove(id);
+        }
+    }
+
+    /**
+     * @param id
+     * @return true if the id was not checked before
+     */
+    public boolean add(long id) {
+        int index = Arrays.binarySearch(mIds, 0, mSize, id);
+        if (index >= 0) {
+            return false;
+        }
+        index = ~index;
+        if (mSize == mIds.length) {
+            long[] ids = new long[mSize * 2];
+            System.arraycopy(mIds, 0, ids, 0, mSize);
+            mIds = ids;
+        }
+        System.arraycopy(mIds, index, mIds, index + 1, mSize - index);
+        mIds[index] = id;
+        mSize++;
+        return true;
+    }
+
+    /**
+     * @param id
+     * @return true if the id was checked before
+     */
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(mIds, 0, mSize, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(mIds, index + 1, mIds, index, mSize - index - 1);
+        mSize--;
+        return true;
+    }
+
+    /**
+     * @return the number of checked ids
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @param index 0 to size() - 1
+     * @return the checked id at the index, in ascending order
+     */
+    public long idAt(int index) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mIds[index];
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * @return a copy of the checked ids in ascending order
+     */
+    public long[] toArray() {
+        long[] ids = new long[mSize];
+        System.arraycopy(mIds, 0, ids, 0, mSize);
+        return ids;
+    }
+}
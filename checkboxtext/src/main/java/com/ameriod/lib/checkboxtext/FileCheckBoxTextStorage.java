@@ -0,0 +1,141 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link CheckBoxTextStorage} keeping each key in its own file in a directory, e.g.
+ * {@code new File(context.getFilesDir(), "checkboxtext")}.
+ * <p/>
+ * A file is the bitset in a compact binary format: the magic "CBTS", the format version and the
+ * number of words as big endian ints, then the words as big endian longs, so 1,000 boxes take 140
+ * bytes. Files are read memory mapped and written to a temporary file that is renamed over the old
+ * one, so a crash while writing leaves the previous state.
+ * <p/>
+ * The file of a key is named after the hex of its UTF-8 bytes, so any key is a plain file name in
+ * the directory (a key like "../x" can't name a file outside of it) and keys differing only in case
+ * don't share a file on a case insensitive file system. Keys are limited to 120 bytes.
+ */
+public class FileCheckBoxTextStorage implements CheckBoxTextStorage {
+
+    private static final int MAGIC = 0x43425453;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final String SUFFIX = ".bits";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final File mDirectory;
+
+    /**
+     * @param directory made when the first key is written
+     */
+    public FileCheckBoxTextStorage(File directory) {
+        mDirectory = directory;
+    }
+
+    @Override
+    public long[] read(String key) throws IOException {
+        final File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        FileInputStream in = new FileInputStream(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            final long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Truncated " + file);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a CheckBoxText bitset " + file);
+            }
+            final int count = buffer.getInt();
+            if (count < 0 || size < HEADER_SIZE + count * 8L) {
+                throw new IOException("Truncated " + file);
+            }
+            final LongBuffer longs = buffer.asLongBuffer();
+            final long[] words = new long[count];
+            longs.get(words);
+            return words;
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public void write(String key, long[] words) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Can't make " + mDirectory);
+        }
+        final String name = getFileName(key);
+        final File file = new File(mDirectory, name);
+        final File temp = new File(mDirectory, name + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(temp);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, HEADER_SIZE + words.length * 8));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Can't rename " + temp + " to " + file);
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(mDirectory, getFileName(key));
+    }
+
+    /**
+     * @param key
+     * @return the hex of the key's UTF-8 bytes and the suffix
+     */
+    static String getFileName(String key) {
+        final byte[] bytes;
+        try {
+            bytes = key.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // every VM has UTF-8
+            throw new IllegalStateException(e);
+        }
+        final char[] name = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            name[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            name[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(name) + SUFFIX;
+    }
+}
@@ -0,0 +1,867 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Parcelable;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.widget.CheckBox;
+import android.widget.Checkable;
+
+/**
+ * FlatCheckBoxText is the flat version of {@link CheckBoxText}. Instead of wrapping a CheckBox and
+ * a TextView it is a single View that draws the CheckBox button drawable and a StaticLayout of the
+ * text itself, so each row costs one view, one measure and one click listener.
+ * <p/>
+ * It reads the same xml attributes as CheckBoxText (orientation, text, textAppearance,
+ * checkboxBackground, isChecked and all the padding and margin attributes) and lays the text out
+ * to the right, left, above or below the check glyph the same way.
+ * <p/>
+ * Since there is no CompoundButton to hand back to the listener, FlatCheckBoxText has its own
+ * {@link OnCheckedChangeListener} that receives the FlatCheckBoxText itself, use
+ * {@link #getText()} to get the text.
+ * <p/>
+ * A check change never requests a layout. {@link #setMinimalRedraw(boolean)} also confines its
+ * redraw to the check glyph, see {@link CheckBoxText#setMinimalRedraw(boolean)}.
+ */
+public class FlatCheckBoxText extends View implements Checkable {
+
+    /**
+     * Interface definition for a callback to be invoked when the checked state changes
+     */
+    public interface OnCheckedChangeListener {
+        /**
+         * Called when the checked state has changed.
+         *
+         * @param view      the FlatCheckBoxText whose state has changed
+         * @param isChecked the new checked state
+         */
+        void onCheckedChanged(FlatCheckBoxText view, boolean isChecked);
+    }
+
+    private static final int[] CHECKED_STATE_SET = {android.R.attr.state_checked};
+
+    /**
+     * The TextAppearance attributes that are read, must stay sorted for obtainStyledAttributes
+     */
+    static final int[] TEXT_APPEARANCE_ATTRS = {
+            android.R.attr.textSize,
+            android.R.attr.typeface,
+            android.R.attr.textStyle,
+            android.R.attr.textColor
+    };
+
+    private static final int TYPEFACE_SANS = 1;
+    private static final int TYPEFACE_SERIF = 2;
+    private static final int TYPEFACE_MONOSPACE = 3;
+
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect mGlyphBounds = new Rect();
+
+    private Drawable mButtonDrawable;
+    private ColorStateList mTextColor;
+    private CharSequence mText = "";
+    /**
+     * The text from xml, the text is only saved when it changed from it
+     */
+    private CharSequence mXmlText = "";
+    private Layout mLayout;
+    private PrecomputedLabel mPrecomputedLabel;
+    private int mDesiredTextWidth = -1;
+    /**
+     * The max width mLayout was made for
+     */
+    private int mLayoutMaxWidth = -1;
+    private int mTextAppearanceResId;
+    private int mTextLeft;
+    private int mTextTop;
+
+    private int mTextOrientation = CheckBoxText.TEXT_RIGHT;
+    private boolean mIsChecked;
+    /**
+     * See {@link #setIndeterminate(boolean)}
+     */
+    private boolean mIndeterminate;
+    private boolean mBroadcasting;
+    private boolean mMinimalRedraw;
+    private final ToggleLayer mToggleLayer = new ToggleLayer(this);
+
+    private int mCheckBoxPaddingLeft;
+    private int mCheckBoxPaddingRight;
+    private int mCheckBoxPaddingTop;
+    private int mCheckBoxPaddingBottom;
+
+    private int mTextPaddingLeft;
+    private int mTextPaddingRight;
+    private int mTextPaddingTop;
+    private int mTextPaddingBottom;
+
+    private int mCheckBoxMarginLeft;
+    private int mCheckBoxMarginRight;
+    private int mCheckBoxMarginTop;
+    private int mCheckBoxMarginBottom;
+
+    private int mTextMarginLeft;
+    private int mTextMarginRight;
+    private int mTextMarginTop;
+    private int mTextMarginBottom;
+
+    private OnCheckedChangeListener mOnCheckedChangeListener;
+
+    /**
+     * See {@link CheckBoxText#CheckBoxText(android.content.Context, int)} for the orientations.
+     *
+     * @param context
+     * @param orientation
+     */
+    public FlatCheckBoxText(Context context, int orientation) {
+        super(context, null, R.attr.checkBoxTextStyle);
+        final long start = CheckBoxTextMetrics.start();
+        mTextOrientation = orientation;
+        init(null, R.attr.checkBoxTextStyle);
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
+    }
+
+    public FlatCheckBoxText(Context context) {
+        super(context, null, R.attr.checkBoxTextStyle);
+        final long start = CheckBoxTextMetrics.start();
+        init(null, R.attr.checkBoxTextStyle);
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
+    }
+
+    public FlatCheckBoxText(Context context, AttributeSet attrs) {
+        super(context, attrs, R.attr.checkBoxTextStyle);
+        final long start = CheckBoxTextMetrics.start();
+        init(attrs, R.attr.checkBoxTextStyle);
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
+    }
+
+    public FlatCheckBoxText(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        final long start = CheckBoxTextMetrics.start();
+        init(attrs, defStyle);
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CONSTRUCTOR, mTextOrientation, start);
+    }
+
+    private void init(AttributeSet attrs, int defStyle) {
+        mTextPaint.density = getResources().getDisplayMetrics().density;
+        setClickable(true);
+        setFocusable(true);
+
+        final CheckBoxTextStyle style = CheckBoxTextStyle.obtain(getContext(), attrs, defStyle);
+        if (attrs != null) {
+            mTextOrientation = style.getOrientation(attrs);
+            CharSequence text = style.getText(getContext(), attrs);
+            if (text != null) {
+                mText = text;
+                mXmlText = text;
+            }
+            mIsChecked = style.isChecked(attrs);
+        }
+
+        // resolved once per style, the same spacing as CheckBoxText
+        final CheckBoxTextStyle.Spacing spacing = style.getSpacing(mTextOrientation);
+        mCheckBoxPaddingLeft = spacing.checkBoxPaddingLeft;
+        mCheckBoxPaddingRight = spacing.checkBoxPaddingRight;
+        mCheckBoxPaddingTop = spacing.checkBoxPaddingTop;
+        mCheckBoxPaddingBottom = spacing.checkBoxPaddingBottom;
+
+        mTextPaddingLeft = spacing.textPaddingLeft;
+        mTextPaddingRight = spacing.textPaddingRight;
+        mTextPaddingTop = spacing.textPaddingTop;
+        mTextPaddingBottom = spacing.textPaddingBottom;
+
+        mCheckBoxMarginLeft = spacing.checkBoxMarginLeft;
+        mCheckBoxMarginRight = spacing.checkBoxMarginRight;
+        mCheckBoxMarginTop = spacing.checkBoxMarginTop;
+        mCheckBoxMarginBottom = spacing.checkBoxMarginBottom;
+
+        mTextMarginLeft = spacing.textMarginLeft;
+        mTextMarginRight = spacing.textMarginRight;
+        mTextMarginTop = spacing.textMarginTop;
+        mTextMarginBottom = spacing.textMarginBottom;
+
+        final int textAppearanceResId = style.getTextAppearanceResId(attrs);
+        Drawable checkBoxDrawable = style.newCheckBoxBackground(getResources());
+
+        setTextAppearance(getContext(), textAppearanceResId);
+
+        if (checkBoxDrawable == null) {
+            // the default CheckBox button of the current theme
+            TypedArray a = getContext().getTheme().obtainStyledAttributes(new int[]{android.R.attr.listChoiceIndicatorMultiple});
+            try {
+                final int resId = a.getResourceId(0, 0);
+                checkBoxDrawable = resId != 0 ? CheckBoxTextDrawableCache.get(getContext(), resId) : a.getDrawable(0);
+            } finally {
+                a.recycle();
+            }
+        }
+        setCheckBoxDrawable(checkBoxDrawable);
+    }
+
+    @Override
+    public void setChecked(boolean checked) {
+        if (mIndeterminate) {
+            mIndeterminate = false;
+            if (mIsChecked == checked) {
+                refreshDrawableState();
+            }
+        }
+        if (mIsChecked == checked) {
+            return;
+        }
+        mIsChecked = checked;
+        mToggleLayer.start();
+        refreshDrawableState();
+
+        // avoid infinite recursions if setChecked() is called from the listener
+        if (mBroadcasting) {
+            return;
+        }
+        mBroadcasting = true;
+        if (mOnCheckedChangeListener != null) {
+            mOnCheckedChangeListener.onCheckedChanged(this, mIsChecked);
+        }
+        mBroadcasting = false;
+    }
+
+    @Override
+    public boolean isChecked() {
+        return mIsChecked;
+    }
+
+    @Override
+    public void toggle() {
+        // an indeterminate check becomes checked
+        setChecked(mIndeterminate || !mIsChecked);
+    }
+
+    /**
+     * See {@link CheckBoxText#setIndeterminate(boolean)}
+     *
+     * @param indeterminate
+     */
+    public void setIndeterminate(boolean indeterminate) {
+        if (mIndeterminate == indeterminate) {
+            return;
+        }
+        mIndeterminate = indeterminate;
+        refreshDrawableState();
+    }
+
+    public boolean isIndeterminate() {
+        return mIndeterminate;
+    }
+
+    @Override
+    public boolean performClick() {
+        final long start = CheckBoxTextMetrics.start();
+        toggle();
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.CLICK, mTextOrientation, start);
+        return super.performClick();
+    }
+
+    /**
+     * Register a callback to be invoked when the checked state of this view changes.
+     *
+     * @param listener the callback to call on checked state change
+     */
+    public void setOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        mOnCheckedChangeListener = listener;
+    }
+
+    /**
+     * Redraw-minimized mode: a check change only invalidates the bounds of the check glyph, unless
+     * the text color changes with it. Off by default.
+     *
+     * @param minimalRedraw
+     */
+    public void setMinimalRedraw(boolean minimalRedraw) {
+        mMinimalRedraw = minimalRedraw;
+    }
+
+    public boolean isMinimalRedraw() {
+        return mMinimalRedraw;
+    }
+
+    /**
+     * See {@link CheckBoxText#setToggleLayerDuration(int)}
+     *
+     * @param duration how long the check animation runs in milliseconds, 0 (the default) turns it off
+     */
+    public void setToggleLayerDuration(int duration) {
+        mToggleLayer.setDuration(duration);
+    }
+
+    public int getToggleLayerDuration() {
+        return mToggleLayer.getDuration();
+    }
+
+    /**
+     * Sets the text drawn next to the check glyph
+     *
+     * @param text
+     */
+    public void setText(CharSequence text) {
+        if (text == null) {
+            text = "";
+        }
+        if (mPrecomputedLabel == null && TextUtils.equals(mText, text)) {
+            return;
+        }
+        mText = text;
+        mPrecomputedLabel = null;
+        onTextChanged();
+    }
+
+    /**
+     * Sets a label that was laid out ahead of time, onMeasure reuses its StaticLayout when the view
+     * gets the width and text paint it was made for and lays the text out again otherwise.
+     *
+     * @param label
+     */
+    public void setText(PrecomputedLabel label) {
+        if (label == null) {
+            setText((CharSequence) null);
+            return;
+        }
+        mText = label.getText();
+        mPrecomputedLabel = label;
+        onTextChanged();
+    }
+
+    /**
+     * Sets the text with a string resId
+     *
+     * @param resId
+     */
+    public void setText(int resId) {
+        setText(getContext().getText(resId));
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * @return the paint the text is drawn with, copy it for {@link PrecomputedLabel} and do not
+     * modify it
+     */
+    public TextPaint getTextPaint() {
+        return mTextPaint;
+    }
+
+    /**
+     * @param width the width the view will be laid out with
+     * @return the widest the text can be, what a {@link PrecomputedLabel} has to be made for
+     */
+    public int getMaxTextWidth(int width) {
+        int maxTextWidth = width - getPaddingLeft() - getPaddingRight() - getTextSpacingWidth();
+        if (isHorizontal()) {
+            maxTextWidth -= getGlyphWidth();
+        }
+        return Math.max(0, maxTextWidth);
+    }
+
+    public void setTypeface(Typeface tf) {
+        if (mTextPaint.getTypeface() != tf) {
+            mTextPaint.setTypeface(tf);
+            onTextChanged();
+        }
+    }
+
+    /**
+     * Same as TextView.setTypeface(Typeface, int), fakes the bold and italic styles the typeface
+     * does not have
+     * {@link android.widget.TextView}
+     *
+     * @param tf
+     * @param style
+     */
+    public void setTypeface(Typeface tf, int style) {
+        setTypeface(mTextPaint, tf, style);
+        onTextChanged();
+    }
+
+    /**
+     * Sets the typeface on the paint and fakes the bold and italic the typeface does not have, like
+     * TextView.setTypeface(Typeface, int)
+     *
+     * @param paint
+     * @param tf
+     * @param style
+     */
+    static void setTypeface(TextPaint paint, Typeface tf, int style) {
+        if (style > 0) {
+            tf = tf == null ? Typeface.defaultFromStyle(style) : Typeface.create(tf, style);
+            int typefaceStyle = tf != null ? tf.getStyle() : 0;
+            int need = style & ~typefaceStyle;
+            paint.setFakeBoldText((need & Typeface.BOLD) != 0);
+            paint.setTextSkewX((need & Typeface.ITALIC) != 0 ? -0.25f : 0);
+        } else {
+            paint.setFakeBoldText(false);
+            paint.setTextSkewX(0);
+        }
+        paint.setTypeface(tf);
+    }
+
+    /**
+     * @param typefaceIndex the android:typeface enum value of a TextAppearance
+     * @return the typeface or null for the default
+     */
+    static Typeface getTypeface(int typefaceIndex) {
+        switch (typefaceIndex) {
+            case TYPEFACE_SANS:
+                return Typeface.SANS_SERIF;
+            case TYPEFACE_SERIF:
+                return Typeface.SERIF;
+            case TYPEFACE_MONOSPACE:
+                return Typeface.MONOSPACE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Sets the text size in scaled pixels
+     *
+     * @param size
+     */
+    public void setTextSize(float size) {
+        setTextSize(TypedValue.COMPLEX_UNIT_SP, size);
+    }
+
+    public void setTextSize(int unit, float size) {
+        setRawTextSize(TypedValue.applyDimension(unit, size, getResources().getDisplayMetrics()));
+    }
+
+    public float getTextSize() {
+        return mTextPaint.getTextSize();
+    }
+
+    private void setRawTextSize(float size) {
+        if (size != mTextPaint.getTextSize()) {
+            mTextPaint.setTextSize(size);
+            onTextChanged();
+        }
+    }
+
+    public void setTextColor(int color) {
+        setTextColor(ColorStateList.valueOf(color));
+    }
+
+    public void setTextColor(ColorStateList textColorStateList) {
+        if (textColorStateList == null) {
+            return;
+        }
+        mTextColor = textColorStateList;
+        updateTextColor();
+    }
+
+    /**
+     * Reads the textSize, typeface, textStyle and textColor out of a TextAppearance style
+     *
+     * @param context
+     * @param resId
+     */
+    public void setTextAppearance(Context context, int resId) {
+        mTextAppearanceResId = resId;
+        TypedArray a = context.obtainStyledAttributes(resId, TEXT_APPEARANCE_ATTRS);
+        try {
+            int textSize = a.getDimensionPixelSize(0, 0);
+            if (textSize != 0) {
+                setRawTextSize(textSize);
+            }
+
+            setTypeface(getTypeface(a.getInt(1, -1)), a.getInt(2, 0));
+
+            ColorStateList color = a.getColorStateList(3);
+            if (color != null) {
+                setTextColor(color);
+            }
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * Sets the check glyph with a resourceId, the drawable's constant state is shared with every
+     * other view using it {@link CheckBoxTextDrawableCache}
+     *
+     * @param resId
+     */
+    public void setCheckBoxDrawable(int resId) {
+        setCheckBoxDrawable(resId != 0 ? CheckBoxTextDrawableCache.get(getContext(), resId) : null);
+    }
+
+    /**
+     * Sets the drawable used as the check glyph, it should be stateful on state_checked just like
+     * a CheckBox button drawable
+     *
+     * @param checkBoxDrawable
+     */
+    public void setCheckBoxDrawable(Drawable checkBoxDrawable) {
+        if (mButtonDrawable == checkBoxDrawable) {
+            return;
+        }
+        if (mButtonDrawable != null) {
+            mButtonDrawable.setCallback(null);
+            unscheduleDrawable(mButtonDrawable);
+        }
+        mButtonDrawable = checkBoxDrawable;
+        if (checkBoxDrawable != null) {
+            checkBoxDrawable.setCallback(this);
+            checkBoxDrawable.setVisible(getVisibility() == VISIBLE, false);
+            if (checkBoxDrawable.isStateful()) {
+                checkBoxDrawable.setState(getDrawableState());
+            }
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Set the padding around the check glyph
+     *
+     * @param left
+     * @param top
+     * @param right
+     * @param bottom
+     */
+    public void setPaddingCheckBox(int left, int top, int right, int bottom) {
+        mCheckBoxPaddingLeft = left;
+        mCheckBoxPaddingTop = top;
+        mCheckBoxPaddingRight = right;
+        mCheckBoxPaddingBottom = bottom;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Set the padding around the text
+     *
+     * @param left
+     * @param top
+     * @param right
+     * @param bottom
+     */
+    public void setPaddingText(int left, int top, int right, int bottom) {
+        mTextPaddingLeft = left;
+        mTextPaddingTop = top;
+        mTextPaddingRight = right;
+        mTextPaddingBottom = bottom;
+        requestLayout();
+        invalidate();
+    }
+
+    private void onTextChanged() {
+        mDesiredTextWidth = -1;
+        mLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    private void updateTextColor() {
+        int color = mTextColor.getColorForState(getDrawableState(), mTextColor.getDefaultColor());
+        if (color != mTextPaint.getColor()) {
+            mTextPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    private boolean isHorizontal() {
+        return mTextOrientation != CheckBoxText.TEXT_ABOVE && mTextOrientation != CheckBoxText.TEXT_BELOW;
+    }
+
+    private int getGlyphWidth() {
+        int width = mButtonDrawable != null ? Math.max(0, mButtonDrawable.getIntrinsicWidth()) : 0;
+        return mCheckBoxMarginLeft + mCheckBoxPaddingLeft + width + mCheckBoxPaddingRight + mCheckBoxMarginRight;
+    }
+
+    private int getGlyphHeight() {
+        int height = mButtonDrawable != null ? Math.max(0, mButtonDrawable.getIntrinsicHeight()) : 0;
+        return mCheckBoxMarginTop + mCheckBoxPaddingTop + height + mCheckBoxPaddingBottom + mCheckBoxMarginBottom;
+    }
+
+    private int getTextSpacingWidth() {
+        return mTextMarginLeft + mTextPaddingLeft + mTextPaddingRight + mTextMarginRight;
+    }
+
+    private int getTextSpacingHeight() {
+        return mTextMarginTop + mTextPaddingTop + mTextPaddingBottom + mTextMarginBottom;
+    }
+
+    /**
+     * Makes the StaticLayout for the text, the old one is reused when the width did not change, the
+     * one of a PrecomputedLabel is used when it fits and otherwise one from the
+     * {@link TextLayoutCache}
+     *
+     * @param maxWidth the widest the text can be
+     */
+    private void makeLayout(int maxWidth) {
+        if (mText.length() == 0) {
+            mLayout = null;
+            return;
+        }
+        if (mLayout != null && mLayoutMaxWidth == maxWidth) {
+            return;
+        }
+        final PrecomputedLabel label = mPrecomputedLabel;
+        if (label != null && label.matches(mTextPaint)) {
+            int width = Math.max(0, Math.min(label.getDesiredWidth(), maxWidth));
+            if (label.getLayout().getWidth() == width) {
+                mDesiredTextWidth = label.getDesiredWidth();
+                setLayout(label.getLayout(), maxWidth);
+                return;
+            }
+        }
+
+        final TextLayoutCache cache = TextLayoutCache.getInstance();
+        final Layout cached = cache.get(mText, mTextAppearanceResId, mTextPaint, maxWidth);
+        if (cached != null) {
+            setLayout(cached, maxWidth);
+            return;
+        }
+
+        if (mDesiredTextWidth < 0) {
+            mDesiredTextWidth = (int) Math.ceil(Layout.getDesiredWidth(mText, mTextPaint));
+        }
+        int width = Math.max(0, Math.min(mDesiredTextWidth, maxWidth));
+        if (mLayout != null && mLayout.getWidth() == width) {
+            mLayoutMaxWidth = maxWidth;
+            return;
+        }
+
+        // a cached layout is shared by other views so it gets its own paint
+        final boolean cacheable = cache.getMaxBytes() > 0 && !(mText instanceof Spanned);
+        TextPaint paint = mTextPaint;
+        if (cacheable) {
+            paint = new TextPaint(mTextPaint);
+            paint.density = mTextPaint.density;
+        }
+        setLayout(new StaticLayout(mText, paint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, true), maxWidth);
+        if (cacheable) {
+            cache.put(mText, mTextAppearanceResId, mTextPaint, maxWidth, mLayout);
+        }
+    }
+
+    private void setLayout(Layout layout, int maxWidth) {
+        mLayout = layout;
+        mLayoutMaxWidth = maxWidth;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final long start = CheckBoxTextMetrics.start();
+        final boolean horizontal = isHorizontal();
+        final int glyphWidth = getGlyphWidth();
+        final int glyphHeight = getGlyphHeight();
+
+        int maxTextWidth = Integer.MAX_VALUE;
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            maxTextWidth = MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight()
+                    - getTextSpacingWidth();
+            if (horizontal) {
+                maxTextWidth -= glyphWidth;
+            }
+        }
+        makeLayout(maxTextWidth);
+
+        final int textWidth = (mLayout != null ? mLayout.getWidth() : 0) + getTextSpacingWidth();
+        final int textHeight = (mLayout != null ? mLayout.getHeight() : 0) + getTextSpacingHeight();
+
+        int width;
+        int height;
+        if (horizontal) {
+            width = glyphWidth + textWidth;
+            height = Math.max(glyphHeight, textHeight);
+        } else {
+            width = Math.max(glyphWidth, textWidth);
+            height = glyphHeight + textHeight;
+        }
+        width = Math.max(width + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth());
+        height = Math.max(height + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
+
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.MEASURE, mTextOrientation, start);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final long start = CheckBoxTextMetrics.start();
+        final int contentLeft = getPaddingLeft();
+        final int contentTop = getPaddingTop();
+        final int contentWidth = right - left - getPaddingLeft() - getPaddingRight();
+        final int contentHeight = bottom - top - getPaddingTop() - getPaddingBottom();
+
+        final int glyphWidth = getGlyphWidth();
+        final int glyphHeight = getGlyphHeight();
+        final int textWidth = (mLayout != null ? mLayout.getWidth() : 0) + getTextSpacingWidth();
+        final int textHeight = (mLayout != null ? mLayout.getHeight() : 0) + getTextSpacingHeight();
+
+        int glyphLeft;
+        int glyphTop;
+        int textLeft;
+        int textTop;
+        if (mTextOrientation == CheckBoxText.TEXT_LEFT) {
+            textLeft = contentLeft;
+            glyphLeft = contentLeft + textWidth;
+            textTop = contentTop + (contentHeight - textHeight) / 2;
+            glyphTop = contentTop + (contentHeight - glyphHeight) / 2;
+        } else if (mTextOrientation == CheckBoxText.TEXT_ABOVE) {
+            textTop = contentTop;
+            glyphTop = contentTop + textHeight;
+            textLeft = contentLeft + (contentWidth - textWidth) / 2;
+            glyphLeft = contentLeft + (contentWidth - glyphWidth) / 2;
+        } else if (mTextOrientation == CheckBoxText.TEXT_BELOW) {
+            glyphTop = contentTop;
+            textTop = contentTop + glyphHeight;
+            textLeft = contentLeft + (contentWidth - textWidth) / 2;
+            glyphLeft = contentLeft + (contentWidth - glyphWidth) / 2;
+        } else {
+            // default to right orientation
+            glyphLeft = contentLeft;
+            textLeft = contentLeft + glyphWidth;
+            textTop = contentTop + (contentHeight - textHeight) / 2;
+            glyphTop = contentTop + (contentHeight - glyphHeight) / 2;
+        }
+
+        glyphLeft += mCheckBoxMarginLeft + mCheckBoxPaddingLeft;
+        glyphTop += mCheckBoxMarginTop + mCheckBoxPaddingTop;
+        mGlyphBounds.set(glyphLeft, glyphTop,
+                glyphLeft + glyphWidth - mCheckBoxMarginLeft - mCheckBoxPaddingLeft - mCheckBoxPaddingRight - mCheckBoxMarginRight,
+                glyphTop + glyphHeight - mCheckBoxMarginTop - mCheckBoxPaddingTop - mCheckBoxPaddingBottom - mCheckBoxMarginBottom);
+        if (mButtonDrawable != null) {
+            mButtonDrawable.setBounds(mGlyphBounds);
+        }
+
+        mTextLeft = textLeft + mTextMarginLeft + mTextPaddingLeft;
+        mTextTop = textTop + mTextMarginTop + mTextPaddingTop;
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.LAYOUT, mTextOrientation, start);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final long start = CheckBoxTextMetrics.start();
+        super.onDraw(canvas);
+        if (mButtonDrawable != null) {
+            mButtonDrawable.draw(canvas);
+        }
+        if (mLayout != null) {
+            if (mLayout.getPaint() != mTextPaint) {
+                // a PrecomputedLabel draws with its own paint
+                mLayout.getPaint().setColor(mTextPaint.getColor());
+            }
+            canvas.save();
+            canvas.translate(mTextLeft, mTextTop);
+            mLayout.draw(canvas);
+            canvas.restore();
+        }
+        CheckBoxTextMetrics.record(CheckBoxTextMetrics.DRAW, mTextOrientation, start);
+    }
+
+    @Override
+    protected int[] onCreateDrawableState(int extraSpace) {
+        final int[] drawableState = super.onCreateDrawableState(extraSpace + 2);
+        if (mIsChecked) {
+            mergeDrawableStates(drawableState, CHECKED_STATE_SET);
+        }
+        if (mIndeterminate) {
+            mergeDrawableStates(drawableState, CheckBoxText.INDETERMINATE_STATE_SET);
+        }
+        return drawableState;
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        if (mButtonDrawable != null && mButtonDrawable.isStateful()) {
+            mButtonDrawable.setState(getDrawableState());
+            if (mMinimalRedraw && !mGlyphBounds.isEmpty()) {
+                invalidate(mGlyphBounds);
+            } else {
+                invalidate();
+            }
+        }
+        if (mTextColor != null && mTextColor.isStateful()) {
+            updateTextColor();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mToggleLayer.cancel();
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return super.verifyDrawable(who) || who == mButtonDrawable;
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        Parcelable superState = super.onSaveInstanceState();
+        return new CheckBoxTextSavedState(superState, mIsChecked, TextUtils.equals(mText, mXmlText) ? null : mText);
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof CheckBoxTextSavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        CheckBoxTextSavedState savedState = (CheckBoxTextSavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (savedState.text != null) {
+            setText(savedState.text);
+        }
+        setChecked(savedState.checked);
+    }
+
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(event);
+        event.setClassName(CheckBox.class.getName());
+        event.setChecked(mIsChecked);
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        info.setClassName(CheckBox.class.getName());
+        info.setCheckable(true);
+        info.setChecked(mIsChecked);
+        info.setText(mText);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link CheckBoxTextStorage} that only keeps the bitsets in memory, a stand-in for the file
+ * storage in tests. It counts the writes.
+ */
+public class MemoryCheckBoxTextStorage implements CheckBoxTextStorage {
+
+    private final Map<String, long[]> mWords = new HashMap<String, long[]>();
+    private int mWriteCount;
+
+    @Override
+    public synchronized long[] read(String key) {
+        final long[] words = mWords.get(key);
+        return words != null ? words.clone() : null;
+    }
+
+    @Override
+    public synchronized void write(String key, long[] words) {
+        mWords.put(key, words);
+        mWriteCount++;
+    }
+
+    /**
+     * @return how many times {@link #write(String, long[])} was called
+     */
+    public synchronized int getWriteCount() {
+        return mWriteCount;
+    }
+}
@@ -0,0 +1,175 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A label whose line breaking was done ahead of time, off the UI thread. Give it to
+ * {@link FlatCheckBoxText#setText(PrecomputedLabel)} and onMeasure uses the StaticLayout as is
+ * instead of measuring the text again, as long as the view ends up with the width and text paint
+ * the label was made for.
+ * <p/>
+ * Get the paint and width on the UI thread from the view that will show the labels:
+ * <pre>
+ * TextPaint paint = new TextPaint(view.getTextPaint());
+ * int maxWidth = view.getMaxTextWidth(rowWidth);
+ * </pre>
+ * then call {@link #create(CharSequence, TextPaint, int)} or
+ * {@link #createAll(java.util.List, TextPaint, int, java.util.concurrent.ExecutorService)} from a
+ * background thread.
+ */
+public final class PrecomputedLabel {
+
+    private final CharSequence mText;
+    private final int mDesiredWidth;
+    private final int mMaxWidth;
+    private final StaticLayout mLayout;
+
+    private PrecomputedLabel(CharSequence text, int desiredWidth, int maxWidth, StaticLayout layout) {
+        mText = text;
+        mDesiredWidth = desiredWidth;
+        mMaxWidth = maxWidth;
+        mLayout = layout;
+    }
+
+    /**
+     * Measures and lays out one label. Can be called from any thread.
+     *
+     * @param text
+     * @param paint    the text paint of the view, it is copied
+     * @param maxWidth the widest the text can be in the view
+     * @return
+     */
+    public static PrecomputedLabel create(CharSequence text, TextPaint paint, int maxWidth) {
+        // the layout draws with its own paint, each label gets a copy so the view can update the color
+        TextPaint labelPaint = new TextPaint(paint);
+        labelPaint.density = paint.density;
+        int desiredWidth = (int) Math.ceil(Layout.getDesiredWidth(text, labelPaint));
+        int width = Math.max(0, Math.min(desiredWidth, maxWidth));
+        StaticLayout layout = new StaticLayout(text, labelPaint, width, Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, true);
+        return new PrecomputedLabel(text, desiredWidth, maxWidth, layout);
+    }
+
+    /**
+     * Precomputes every label in parallel, split into one chunk per executor task. Blocks until all
+     * of them are done so call it from a background thread, not from a task of the same executor.
+     *
+     * @param texts
+     * @param paint    the text paint of the view, it is not modified
+     * @param maxWidth the widest the text can be in the view
+     * @param executor runs the chunks
+     * @param chunks   how many tasks to split the work in, e.g. the number of cores
+     * @return the labels in the same order as the texts
+     * @throws InterruptedException
+     */
+    public static PrecomputedLabel[] createAll(final List<? extends CharSequence> texts, final TextPaint paint,
+                                               final int maxWidth, ExecutorService executor, int chunks)
+            throws InterruptedException {
+        final int size = texts.size();
+        final PrecomputedLabel[] labels = new PrecomputedLabel[size];
+        if (size == 0) {
+            return labels;
+        }
+        chunks = Math.max(1, Math.min(chunks, size));
+        final int chunkSize = (size + chunks - 1) / chunks;
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(chunks);
+        for (int start = 0; start < size; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(size, start + chunkSize);
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = from; i < to; i++) {
+                        labels[i] = create(texts.get(i), paint, maxWidth);
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return labels;
+    }
+
+    /**
+     * Precomputes every label in parallel with one chunk per available processor.
+     *
+     * @see #createAll(java.util.List, android.text.TextPaint, int, java.util.concurrent.ExecutorService, int)
+     */
+    public static PrecomputedLabel[] createAll(List<? extends CharSequence> texts, TextPaint paint, int maxWidth,
+                                               ExecutorService executor) throws InterruptedException {
+        return createAll(texts, paint, maxWidth, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * @return the width of the text on one line
+     */
+    public int getDesiredWidth() {
+        return mDesiredWidth;
+    }
+
+    /**
+     * @return the max width the label was laid out for
+     */
+    public int getMaxWidth() {
+        return mMaxWidth;
+    }
+
+    public StaticLayout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * @param paint
+     * @return true if the label was made with a paint that measures the same as this one
+     */
+    boolean matches(TextPaint paint) {
+        TextPaint labelPaint = mLayout.getPaint();
+        return labelPaint.getTextSize() == paint.getTextSize()
+                && labelPaint.getTypeface() == paint.getTypeface()
+                && labelPaint.isFakeBoldText() == paint.isFakeBoldText()
+                && labelPaint.getTextSkewX() == paint.getTextSkewX();
+    }
+}
@@ -0,0 +1,279 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.TextPaint;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process wide LRU cache of the StaticLayouts of the FlatCheckBoxText labels, so rows repeating the
+ * same label ("Yes", "No", "Enable"...) at the same width share one layout instead of each one
+ * measuring the text again.
+ * <p/>
+ * Layouts are keyed by the text, the TextAppearance, the typeface, size and style of the paint and
+ * the width available to the text. Spanned text is never cached. The cached layouts are made with
+ * their own copy of the paint, the views set the color before drawing.
+ * <p/>
+ * The cache is bounded by an estimate of the bytes used ({@link #setMaxBytes(int)}, 0 turns it off)
+ * and is trimmed on low memory once {@link #registerComponentCallbacks(android.content.Context)} has
+ * been called.
+ */
+public final class TextLayoutCache {
+
+    /**
+     * The default bound, in bytes
+     */
+    public static final int DEFAULT_MAX_BYTES = 256 * 1024;
+
+    /**
+     * Rough size of a cached entry besides the text and lines
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    /**
+     * Rough size of each line of a StaticLayout
+     */
+    private static final int LINE_BYTES = 32;
+
+    private static final TextLayoutCache sInstance = new TextLayoutCache();
+
+    private final LinkedHashMap<Key, Layout> mLayouts = new LinkedHashMap<Key, Layout>(32, 0.75f, true);
+    /**
+     * Reused for the lookups, only touched with the lock held
+     */
+    private final Key mLookupKey = new Key();
+
+    private int mMaxBytes = DEFAULT_MAX_BYTES;
+    private int mBytes;
+    private int mHits;
+    private int mMisses;
+    private int mEvictions;
+    private boolean mRegistered;
+
+    private TextLayoutCache() {
+    }
+
+    public static TextLayoutCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * @param text
+     * @param textAppearanceResId
+     * @param paint
+     * @param maxWidth
+     * @return the cached layout or null
+     */
+    public synchronized Layout get(CharSequence text, int textAppearanceResId, TextPaint paint, int maxWidth) {
+        if (mMaxBytes == 0 || text instanceof Spanned) {
+            return null;
+        }
+        mLookupKey.set(text.toString(), textAppearanceResId, paint, maxWidth);
+        Layout layout = mLayouts.get(mLookupKey);
+        if (layout != null) {
+            mHits++;
+        } else {
+            mMisses++;
+        }
+        return layout;
+    }
+
+    /**
+     * Caches a layout, it has to use its own paint and not the one of a view
+     *
+     * @param text
+     * @param textAppearanceResId
+     * @param paint
+     * @param maxWidth
+     * @param layout
+     */
+    public synchronized void put(CharSequence text, int textAppearanceResId, TextPaint paint, int maxWidth, Layout layout) {
+        if (mMaxBytes == 0 || text instanceof Spanned) {
+            return;
+        }
+        Key key = new Key();
+        key.set(text.toString(), textAppearanceResId, paint, maxWidth);
+        Layout previous = mLayouts.put(key, layout);
+        if (previous != null) {
+            mBytes -= sizeOf(key, previous);
+        }
+        mBytes += sizeOf(key, layout);
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * @param maxBytes the most bytes the cached layouts should take, 0 clears and disables the cache
+     */
+    public synchronized void setMaxBytes(int maxBytes) {
+        mMaxBytes = Math.max(0, maxBytes);
+        trimToSize(mMaxBytes);
+    }
+
+    public synchronized int getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * @return the estimated bytes used by the cached layouts
+     */
+    public synchronized int getBytes() {
+        return mBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return mHits;
+    }
+
+    public synchronized int getMissCount() {
+        return mMisses;
+    }
+
+    public synchronized int getEvictionCount() {
+        return mEvictions;
+    }
+
+    public synchronized int size() {
+        return mLayouts.size();
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * Clears the cache on low memory and halves it when the UI is hidden. Only has an effect from
+     * Ice Cream Sandwich on, call it once, e.g. from Application.onCreate.
+     *
+     * @param context
+     */
+    public void registerComponentCallbacks(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return;
+        }
+        synchronized (this) {
+            if (mRegistered) {
+                return;
+            }
+            mRegistered = true;
+        }
+        context.getApplicationContext().registerComponentCallbacks(new TrimCallbacks());
+    }
+
+    private void trimToSize(int maxBytes) {
+        Iterator<Map.Entry<Key, Layout>> iterator = mLayouts.entrySet().iterator();
+        while (mBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Key, Layout> eldest = iterator.next();
+            mBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            mEvictions++;
+        }
+    }
+
+    private static int sizeOf(Key key, Layout layout) {
+        return ENTRY_OVERHEAD_BYTES + key.text.length() * 2 + layout.getLineCount() * LINE_BYTES;
+    }
+
+    /**
+     * Only loaded from Ice Cream Sandwich on
+     */
+    private final class TrimCallbacks implements ComponentCallbacks2 {
+
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_BACKGROUND) {
+                clear();
+            } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                synchronized (TextLayoutCache.this) {
+                    trimToSize(mBytes / 2);
+                }
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            // the keys have the text size in pixels so nothing goes stale
+        }
+
+        @Override
+        public void onLowMemory() {
+            clear();
+        }
+    }
+
+    private static final class Key {
+        String text;
+        int textAppearanceResId;
+        Typeface typeface;
+        float textSize;
+        boolean fakeBold;
+        float textSkewX;
+        int maxWidth;
+        int hash;
+
+        void set(String text, int textAppearanceResId, TextPaint paint, int maxWidth) {
+            this.text = text;
+            this.textAppearanceResId = textAppearanceResId;
+            this.typeface = paint.getTypeface();
+            this.textSize = paint.getTextSize();
+            this.fakeBold = paint.isFakeBoldText();
+            this.textSkewX = paint.getTextSkewX();
+            this.maxWidth = maxWidth;
+
+            int h = text.hashCode();
+            h = 31 * h + textAppearanceResId;
+            h = 31 * h + (typeface != null ? typeface.hashCode() : 0);
+            h = 31 * h + Float.floatToIntBits(textSize);
+            h = 31 * h + (fakeBold ? 1 : 0);
+            h = 31 * h + Float.floatToIntBits(textSkewX);
+            h = 31 * h + maxWidth;
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && maxWidth == other.maxWidth
+                    && textAppearanceResId == other.textAppearanceResId
+                    && typeface == other.typeface
+                    && textSize == other.textSize
+                    && fakeBold == other.fakeBold
+                    && textSkewX == other.textSkewX
+                    && text.equals(other.text);
+        }
+    }
+}
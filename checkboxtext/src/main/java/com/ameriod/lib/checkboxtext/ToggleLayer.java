@@ -0,0 +1,84 @@
+package com.ameriod.lib.checkboxtext;
+
+/*
+ * Copyright (C) 2014 Parker Williams
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import android.os.Build;
+import android.view.View;
+
+/**
+ * Puts a view on a hardware layer for a while after its checked state changes, so the redraws of
+ * the check animation do not redraw the parent and its siblings. Does nothing before Honeycomb or
+ * when the view is not hardware accelerated.
+ */
+class ToggleLayer implements Runnable {
+
+    private final View mView;
+    private int mDuration;
+    private int mLayerTypeBefore;
+    private boolean mActive;
+
+    ToggleLayer(View view) {
+        mView = view;
+    }
+
+    /**
+     * @param duration how long the layer is kept after a check change in milliseconds, 0 turns it off
+     */
+    void setDuration(int duration) {
+        mDuration = Math.max(0, duration);
+        if (mDuration == 0) {
+            cancel();
+        }
+    }
+
+    int getDuration() {
+        return mDuration;
+    }
+
+    /**
+     * Called when the checked state changes, starts the layer or extends it
+     */
+    void start() {
+        if (mDuration == 0 || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB
+                || !mView.isHardwareAccelerated()) {
+            return;
+        }
+        if (!mActive) {
+            mActive = true;
+            mLayerTypeBefore = mView.getLayerType();
+            mView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+        mView.removeCallbacks(this);
+        mView.postDelayed(this, mDuration);
+    }
+
+    /**
+     * Drops the layer now, e.g. when the view is detached
+     */
+    void cancel() {
+        if (mActive) {
+            mView.removeCallbacks(this);
+            run();
+        }
+    }
+
+    @Override
+    public void run() {
+        mActive = false;
+        mView.setLayerType(mLayerTypeBefore, null);
+    }
+}
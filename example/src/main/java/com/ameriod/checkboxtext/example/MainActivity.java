@@ -8,12 +8,15 @@ import android.widget.CompoundButton;
 import android.widget.Toast;
 
 import com.ameriod.lib.checkboxtext.CheckBoxText;
+import com.ameriod.lib.checkboxtext.CheckBoxTextFactory;
 
 
 public class MainActivity extends ActionBarActivity implements CompoundButton.OnCheckedChangeListener {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // creates the CheckBoxTexts of the layout without reflection
+        CheckBoxTextFactory.install(getLayoutInflater());
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
@@ -32,7 +35,7 @@ public class MainActivity extends ActionBarActivity implements CompoundButton.On
 
     @Override
     public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-        Toast.makeText(getApplicationContext(), buttonView.getTag().toString() + " Checked: " + isChecked, Toast.LENGTH_SHORT).show();
+        Toast.makeText(getApplicationContext(), CheckBoxText.from(buttonView).getLabel() + " Checked: " + isChecked, Toast.LENGTH_SHORT).show();
     }
 
     @Override